@@ -4,6 +4,10 @@ import blank2d.framework.asset.AssetPath;
 import blank2d.framework.file.FileSystem;
 import blank2d.framework.gamestate.GameState;
 import blank2d.framework.gamestate.GameStateMachine;
+import blank2d.framework.input.InputFrame;
+import blank2d.framework.input.InputRecorder;
+import blank2d.framework.input.InputReplayer;
+import blank2d.framework.screen.FrameSink;
 import blank2d.framework.screen.Screen;
 import blank2d.framework.input.InputManager;
 import blank2d.framework.screen.ScreenLayer;
@@ -12,6 +16,7 @@ import blank2d.framework.Time;
 import blank2d.util.math.Vector2D;
 
 import javax.swing.*;
+import java.io.IOException;
 import java.awt.*;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
@@ -41,6 +46,23 @@ public final class Game extends Canvas implements Runnable {
     private JFrame frame;
     private Thread gameThread;
 
+    /** Headless games have no window and deliver their frames to the frame sink. */
+    private final boolean headless;
+    private final FrameSink frameSink;
+
+    /** Unthrottled games run as fast as possible on a simulated clock. */
+    private boolean throttled = true;
+    private double simulatedTime;
+
+    /** The number of frames after which the game stops, 0 to run until the game state machine stops. */
+    private long maxFrames;
+    private long frameNumber;
+
+    /** Lockstep games simulate exactly one fixed tick per frame with the input sampled for that tick. */
+    private boolean lockstep;
+    private InputRecorder inputRecorder;
+    private InputReplayer inputReplayer;
+
     private final Screen screen = Screen.getInstance();
     private final InputManager inputManager = InputManager.getInstance();
     private final Time time = Time.getInstance();
@@ -49,6 +71,37 @@ public final class Game extends Canvas implements Runnable {
     private int[] pixels, uiPixels;
 
     public Game(String name,  int width, int height, float xScale, float yScale) {
+        headless = false;
+        frameSink = null;
+        init(name, width, height, xScale, yScale);
+
+        Dimension size = getScreenDimension();
+        setPreferredSize(size);
+        setMinimumSize(size);
+
+        initListeners();
+        initJFrame();
+
+    }
+
+    /**
+     * Creates a headless game that runs without AWT windowing, e.g. on servers
+     * or in performance regression suites. The game runs the same loop as a
+     * windowed game and renders every frame with the software rasterizer of
+     * the screen, the finished frames are passed to the frame sink.
+     * @param name the name of the game
+     * @param width the width of a frame in pixels
+     * @param height the height of a frame in pixels
+     * @param frameSink receives the rendered frames, {@link FrameSink#NONE} to discard them
+     */
+    public Game(String name, int width, int height, FrameSink frameSink) {
+        if(frameSink == null) throw new NullPointerException("frame sink must not be null");
+        headless = true;
+        this.frameSink = frameSink;
+        init(name, width, height, 1, 1);
+    }
+
+    private void init(String name, int width, int height, float xScale, float yScale) {
         title += " " + name;
 
         setWidth(width);
@@ -64,14 +117,6 @@ public final class Game extends Canvas implements Runnable {
 
         uiImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         uiPixels = ((DataBufferInt)uiImage.getRaster().getDataBuffer()).getData();
-
-        Dimension size = getScreenDimension();
-        setPreferredSize(size);
-        setMinimumSize(size);
-
-        initListeners();
-        initJFrame();
-
     }
 
     private void initListeners() {
@@ -97,11 +142,12 @@ public final class Game extends Canvas implements Runnable {
         if(!gameStateMachine.isRunning()) {
             screen.init(this, getWidth(), getHeight());
             inputManager.init(this);
+            time.tick = 0;
             AssetPath.setContext(initGameState.getClass());
             FileSystem.setupLocalRelativeDirectory(initGameState.getClass());
             gameStateMachine.pushGameState(initGameState);
             gameStateMachine.start();
-            frame.setVisible(true);
+            if(frame != null) frame.setVisible(true);
             gameThread.start();
         }
     }
@@ -109,8 +155,9 @@ public final class Game extends Canvas implements Runnable {
 
     @Override
     public void run() {
-        loop();
-        closeFrame();
+        if(lockstep) lockstepLoop();
+        else loop();
+        if(frame != null) closeFrame();
     }
 
     private void closeFrame() {
@@ -126,16 +173,17 @@ public final class Game extends Canvas implements Runnable {
     public void loop(){
 
         final int MAX_UPDATES_BEFORE_RENDER = 4;
-        double lastUpdateTime = System.nanoTime();
-        double lastRenderTime = System.nanoTime();
+        double lastUpdateTime = now();
+        double lastRenderTime = now();
 
         int frameCount = 0;
         int tps = 0;
 
         int lastSecondTime = (int) (lastUpdateTime / 1000000000);
+        time.fixedDeltaTime = timeBetweenFixedUpdates;
 
         while (gameStateMachine.isRunning()) {
-            double now = System.nanoTime();
+            double now = now();
             int updateCount = 0;
             if (!gameStateMachine.processGameStateChange()) break;
             GameState gameState = gameStateMachine.getActiveGameState();
@@ -143,6 +191,7 @@ public final class Game extends Canvas implements Runnable {
             //do as many game updates as we need to, potentially playing catchup.
             while (now - lastUpdateTime > timeBetweenFixedUpdates && updateCount < MAX_UPDATES_BEFORE_RENDER) {
                 gameState.fixedUpdate();
+                time.tick++;
                 lastUpdateTime += timeBetweenFixedUpdates;
                 updateCount++;
             }
@@ -159,6 +208,7 @@ public final class Game extends Canvas implements Runnable {
             gameState.handleEvents();
             gameState.update();
             render(interpolate);
+            frameNumber++;
             frameCount++;
             tps += updateCount;
             time.deltaTime = (now - lastRenderTime);
@@ -168,7 +218,7 @@ public final class Game extends Canvas implements Runnable {
             int thisSecond = (int) (lastUpdateTime / 1000000000);
             if (thisSecond > lastSecondTime) {
                 title = "\tFPS:\t " + frameCount + "\t TPF:\t " + tps;
-                frame.setTitle("Blank2D["+ version +"]: "+ title);
+                if(frame != null) frame.setTitle("Blank2D["+ version +"]: "+ title);
                 frameCount = 0;
                 tps = 0;
                 lastSecondTime = thisSecond;
@@ -176,6 +226,14 @@ public final class Game extends Canvas implements Runnable {
 
             handleGameFlags();
 
+            if(maxFrames > 0 && frameNumber >= maxFrames) gameStateMachine.stop();
+
+            if(!throttled) {
+                //skip the wait, the simulated clock advances by exactly one render interval per frame
+                simulatedTime += targetTimeBetweenRenders;
+                continue;
+            }
+
             //Yield until it has been at least the target time between renders. This saves the CPU from hogging.
             while (now - lastRenderTime < targetTimeBetweenRenders && now - lastUpdateTime < timeBetweenFixedUpdates) {
                 Thread.yield();
@@ -195,7 +253,106 @@ public final class Game extends Canvas implements Runnable {
         }
     }
 
+    /**
+     * Runs exactly one fixed tick per frame. Each tick first applies its input
+     * frame, sampled from the hardware or read from the replayer, and all
+     * simulation time is derived from the tick count, so a replayed run
+     * produces the same ticks as the recorded one regardless of the speed it
+     * runs at.
+     */
+    private void lockstepLoop(){
+        InputFrame inputFrame = new InputFrame();
+        inputManager.setLockstep(true);
+        if(inputReplayer != null) {
+            gameHertz = inputReplayer.getGameHertz();
+            updateTimeBetweenFixedUpdates();
+        }
+
+        double nextTickTime = now();
+        int frameCount = 0;
+        int lastSecondTime = (int) (nextTickTime / 1000000000);
+
+        try {
+            while (gameStateMachine.isRunning()) {
+                if (!gameStateMachine.processGameStateChange()) break;
+                GameState gameState = gameStateMachine.getActiveGameState();
+
+                if (inputReplayer != null) {
+                    if (!inputReplayer.next(inputFrame)) {
+                        gameStateMachine.stop();
+                        break;
+                    }
+                } else {
+                    inputManager.captureFrame(inputFrame);
+                }
+                if (inputRecorder != null) inputRecorder.record(inputFrame);
+                inputManager.applyFrame(inputFrame);
+
+                time.fixedDeltaTime = timeBetweenFixedUpdates;
+                time.deltaTime = timeBetweenFixedUpdates;
+                gameState.handleEvents();
+                gameState.fixedUpdate();
+                time.tick++;
+                gameState.update();
+                render(1.0f);
+                frameNumber++;
+                frameCount++;
+
+                handleGameFlags();
+                if(maxFrames > 0 && frameNumber >= maxFrames) gameStateMachine.stop();
+
+                nextTickTime += timeBetweenFixedUpdates;
+                if(!throttled) {
+                    simulatedTime = nextTickTime;
+                    continue;
+                }
+
+                int thisSecond = (int) (nextTickTime / 1000000000);
+                if (thisSecond > lastSecondTime) {
+                    title = "\tFPS:\t " + frameCount + "\t TPF:\t " + frameCount;
+                    if(frame != null) frame.setTitle("Blank2D["+ version +"]: "+ title);
+                    frameCount = 0;
+                    lastSecondTime = thisSecond;
+                }
+
+                //a tick that took too long delays the following ticks instead of being caught up
+                if(System.nanoTime() - nextTickTime > timeBetweenFixedUpdates) nextTickTime = System.nanoTime();
+                while (System.nanoTime() < nextTickTime) {
+                    try {
+                        //noinspection BusyWait
+                        Thread.sleep(1);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            gameStateMachine.stop();
+        } finally {
+            inputManager.setLockstep(false);
+            closeInputLogs();
+        }
+    }
+
+    private void closeInputLogs(){
+        try {
+            if(inputRecorder != null) inputRecorder.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if(inputReplayer != null) inputReplayer.close();
+    }
+
+    private double now() {
+        return throttled ? System.nanoTime() : simulatedTime;
+    }
+
     private void render(float interpolate){
+        if(headless) {
+            renderHeadless(interpolate);
+            return;
+        }
         BufferStrategy bs = this.getBufferStrategy();
         if (bs == null) {
             createBufferStrategy(3);
@@ -219,6 +376,14 @@ public final class Game extends Canvas implements Runnable {
         bs.show();
     }
 
+    private void renderHeadless(float interpolate){
+        gameStateMachine.getActiveGameState().render(interpolate);
+        screen.prepareFrame();
+        int[] ui = screen.isLayerActive(ScreenLayer.UI) ? screen.getLayerPixels(ScreenLayer.UI) : null;
+        frameSink.frame(frameNumber, screen.pixels, ui, getWidth(), getHeight());
+        if(debugMode) screen.clearLayer(ScreenLayer.Debug);
+    }
+
     private void handleGameFlags() {
         GAME_FLAG flag;
         while(gameFlagQueue.size() > 0){
@@ -249,6 +414,7 @@ public final class Game extends Canvas implements Runnable {
     }
 
     private void updateScreenScale(){
+        if(frame == null) return;
         frame.setPreferredSize(getScreenDimension());
         frame.pack();
     }
@@ -299,6 +465,88 @@ public final class Game extends Canvas implements Runnable {
         return targetTimeBetweenRenders;
     }
 
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    /**
+     * Enables or disables throttling. An unthrottled game does not wait between
+     * frames and runs on a simulated clock that advances by the target time
+     * between renders each frame, so fixed updates keep their rate relative to
+     * rendered frames while the game runs as fast as possible.
+     * This must be set before the game is started.
+     * @param throttled false to run as fast as possible
+     */
+    public void setThrottled(boolean throttled) {
+        this.throttled = throttled;
+    }
+
+    /**
+     * Stops the game once the specified number of frames has been rendered,
+     * e.g. for benchmarks.
+     * @param maxFrames the number of frames, 0 to run until the game is stopped otherwise
+     */
+    public void setMaxFrames(long maxFrames) {
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * @return the number of frames rendered since the game has been started
+     */
+    public long getFrameNumber() {
+        return frameNumber;
+    }
+
+    /**
+     * Waits until the game loop has finished.
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public void join() throws InterruptedException {
+        if(gameThread != null) gameThread.join();
+    }
+
+    public boolean isLockstep() {
+        return lockstep;
+    }
+
+    /**
+     * Enables or disables the deterministic lockstep mode. A lockstep game
+     * simulates exactly one fixed tick per rendered frame, hardware input is
+     * sampled once per tick and delta time always equals the time between
+     * fixed updates. The engines of a lockstep game run their systems on the
+     * game thread, see {@link blank2d.framework.ecs.Engine#isDeterministic()}. This must be set
+     * before the game is started.
+     * @param lockstep true to enable lockstep mode
+     */
+    public void setLockstep(boolean lockstep) {
+        this.lockstep = lockstep;
+    }
+
+    /**
+     * Records the input of every tick, enables lockstep mode. The recorder is
+     * closed when the game loop ends.
+     * @param inputRecorder the recorder, null to stop recording
+     */
+    public void setInputRecorder(InputRecorder inputRecorder) {
+        this.inputRecorder = inputRecorder;
+        if(inputRecorder != null) lockstep = true;
+    }
+
+    /**
+     * Replaces the hardware input by the input of a recorded log, enables
+     * lockstep mode and adopts the tick rate of the log. The game stops when
+     * the log has been replayed.
+     * @param inputReplayer the replayer, null to use the hardware input
+     */
+    public void setInputReplayer(InputReplayer inputReplayer) {
+        this.inputReplayer = inputReplayer;
+        if(inputReplayer != null) lockstep = true;
+    }
+
     public boolean isDebugMode() {
         return debugMode;
     }
@@ -4,13 +4,18 @@ public class Time {
 
     private static final Time instance = new Time();
     public static Time getInstance() {
-        return instance;
+        WorldContext context = WorldContext.current();
+        return context != null ? context.getTime() : instance;
     }
 
     public Time() { }
 
     public double deltaTime = 0.0;
 
+    //the number of fixed ticks simulated since the game has been started and the duration of one tick
+    public long tick = 0;
+    public double fixedDeltaTime = 0.0;
+
     public double getDeltaTimeNano() {
         return deltaTime;
     }
@@ -24,6 +29,25 @@ public class Time {
         return Time.nanoToSeconds(deltaTime);
     }
 
+    public long getTick() {
+        return tick;
+    }
+    public double getFixedDeltaTimeNano() {
+        return fixedDeltaTime;
+    }
+    public double getFixedDeltaTimeSeconds() {
+        return Time.nanoToSeconds(fixedDeltaTime);
+    }
+
+    /**
+     * Returns the simulated time, derived from the number of ticks so it is
+     * identical for every run of a deterministic simulation.
+     * @return the simulated time in seconds
+     */
+    public double getTickTimeSeconds() {
+        return Time.nanoToSeconds(tick * fixedDeltaTime);
+    }
+
     public static double nanoToMicro(double nano){ return nano/1000.0; }
     public static double nanoToMilli(double nano){ return nano/1000000.0; }
     public static double nanoToSeconds(double nano){ return nano/1000000000.0; }
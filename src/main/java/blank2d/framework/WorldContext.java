@@ -0,0 +1,62 @@
+package blank2d.framework;
+
+import blank2d.framework.input.InputManager;
+import blank2d.framework.screen.Screen;
+
+/**
+ * The screen, input and time of one simulated world. Code running on a thread
+ * the context is bound to receives these instances from
+ * {@link Screen#getInstance()}, {@link InputManager#getInstance()} and
+ * {@link Time#getInstance()}, threads without a context receive the shared
+ * instances of the game. This lets several worlds run at the same time, each
+ * on its own thread, see {@link WorldHost}.
+ *
+ * <p>
+ * Objects that keep a reference to the screen or input manager, such as game
+ * states, entity scripts and the camera system, must be created while the
+ * context of their world is bound. Assets are shared by all worlds and must
+ * be loaded before the worlds run, they hold no per world state: animation
+ * playback is kept by each animation controller and gravity by the physics
+ * system of each engine.
+ * </p>
+ */
+public final class WorldContext {
+
+    private static final ThreadLocal<WorldContext> current = new ThreadLocal<>();
+
+    private final Screen screen = Screen.create();
+    private final InputManager inputManager = InputManager.create();
+    private final Time time = new Time();
+
+    /**
+     * Returns the context bound to the calling thread.
+     * @return the context or null if the thread uses the shared instances
+     */
+    public static WorldContext current() {
+        return current.get();
+    }
+
+    /**
+     * Binds the specified context to the calling thread.
+     * @param context the context, null to use the shared instances
+     * @return the context that was bound before, to be restored afterwards
+     */
+    public static WorldContext bind(WorldContext context) {
+        WorldContext previous = current.get();
+        // a null value keeps the entry of the thread, pool workers bind and unbind every frame
+        current.set(context);
+        return previous;
+    }
+
+    public Screen getScreen() {
+        return screen;
+    }
+
+    public InputManager getInputManager() {
+        return inputManager;
+    }
+
+    public Time getTime() {
+        return time;
+    }
+}
@@ -0,0 +1,188 @@
+package blank2d.framework;
+
+import blank2d.Game;
+import blank2d.framework.ecs.Engine;
+import blank2d.framework.screen.FrameSink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs many independent worlds in parallel, e.g. for AI training or server
+ * side match simulation. Every world has its own {@link WorldContext}, a
+ * headless game and an engine, the worlds are stepped on a fixed thread pool
+ * with one task per world. Each step simulates a number of fixed ticks in
+ * lockstep: delta time equals the time between fixed updates and nothing is
+ * rendered unless the engine contains render systems.
+ *
+ * <pre>
+ * WorldHost host = new WorldHost(Runtime.getRuntime().availableProcessors());
+ * for (int i = 0; i &lt; 64; i++) {
+ *     host.addWorld(320, 240, game -&gt; {
+ *         Engine engine = new Engine(game);
+ *         engine.addSystem(new PhysicsSystem(EntityFamily.rigidBodyEF));
+ *         engine.addEntities(createMatch());
+ *         return engine;
+ *     });
+ * }
+ * host.step(1000);
+ * host.close();
+ * </pre>
+ *
+ * <p>
+ * Since the worlds already keep all threads busy, the systems of each engine
+ * run one after the other on the thread of their world.
+ * </p>
+ */
+public final class WorldHost implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final List<World> worlds = new ArrayList<>();
+    private final List<Callable<Void>> tasks = new ArrayList<>();
+    private int ticksPerStep;
+
+    /**
+     * Creates a new instance
+     * @param numOfThreads the number of worlds simulated at the same time
+     * @throws IllegalArgumentException if the number of threads is not greater than zero
+     */
+    public WorldHost(int numOfThreads) {
+        if (numOfThreads <= 0) throw new IllegalArgumentException("number of threads must be greater than zero");
+        executor = Executors.newFixedThreadPool(numOfThreads, r -> {
+            Thread thread = new Thread(r, "WorldHostThread");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a new world. The engine factory is called on the calling thread
+     * with the context of the new world bound, so systems and scripts created
+     * by the factory refer to the screen and input of the world.
+     * @param width the screen width of the world
+     * @param height the screen height of the world
+     * @param engineFactory creates the engine of the world from its headless game
+     * @return the new world
+     */
+    public World addWorld(int width, int height, Function<Game, Engine> engineFactory) {
+        WorldContext context = new WorldContext();
+        WorldContext previous = WorldContext.bind(context);
+        try {
+            Game game = new Game("World " + worlds.size(), width, height, FrameSink.NONE);
+            context.getScreen().init(game, width, height);
+            context.getInputManager().init(game);
+            context.getTime().fixedDeltaTime = game.getTimeBetweenFixedUpdates();
+            context.getTime().deltaTime = game.getTimeBetweenFixedUpdates();
+
+            Engine engine = engineFactory.apply(game);
+            if (engine == null) throw new NullPointerException("engine factory returned null");
+            engine.setConcurrentSystems(false);
+            World world = new World(context, game, engine);
+            worlds.add(world);
+            tasks.add(() -> {
+                world.step(ticksPerStep);
+                return null;
+            });
+            return world;
+        } finally {
+            WorldContext.bind(previous);
+        }
+    }
+
+    /**
+     * Simulates the specified number of ticks in every world and waits until
+     * all worlds are done.
+     * @param ticks the number of ticks
+     * @throws IllegalStateException if a world failed, the cause is the exception of the world
+     */
+    public void step(int ticks) throws IllegalStateException {
+        ticksPerStep = ticks;
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("world failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while stepping", e);
+        }
+    }
+
+    public List<World> getWorlds() {
+        return Collections.unmodifiableList(worlds);
+    }
+
+    /**
+     * Disposes the engines of all worlds and shuts the thread pool down.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        for (World world : worlds) {
+            WorldContext previous = WorldContext.bind(world.context);
+            try {
+                world.engine.dispose();
+            } finally {
+                WorldContext.bind(previous);
+            }
+        }
+        worlds.clear();
+        tasks.clear();
+    }
+
+    /**
+     * A world simulated by a host.
+     */
+    public static final class World {
+        private final WorldContext context;
+        private final Game game;
+        private final Engine engine;
+
+        World(WorldContext context, Game game, Engine engine) {
+            this.context = context;
+            this.game = game;
+            this.engine = engine;
+        }
+
+        private void step(int ticks) {
+            WorldContext previous = WorldContext.bind(context);
+            try {
+                Time time = context.getTime();
+                for (int i = 0; i < ticks; i++) {
+                    time.fixedDeltaTime = game.getTimeBetweenFixedUpdates();
+                    time.deltaTime = time.fixedDeltaTime;
+                    engine.fixedUpdate();
+                    time.tick++;
+                    engine.update();
+                }
+            } finally {
+                WorldContext.bind(previous);
+            }
+        }
+
+        public WorldContext getContext() {
+            return context;
+        }
+
+        public Game getGame() {
+            return game;
+        }
+
+        public Engine getEngine() {
+            return engine;
+        }
+
+        /**
+         * @return the number of ticks simulated in this world
+         */
+        public long getTick() {
+            return context.getTime().tick;
+        }
+    }
+}
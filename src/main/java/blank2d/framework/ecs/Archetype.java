@@ -0,0 +1,383 @@
+package blank2d.framework.ecs;
+
+import blank2d.util.BitMask;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An archetype stores all entities of an engine that are composed of exactly the
+ * same set of component types. The entities and their components are kept
+ * densely packed in fixed size {@link ArchetypeChunk chunks}, so systems can
+ * walk the component columns of an archetype instead of resolving components
+ * entity by entity.
+ *
+ * <p>
+ * Archetypes are created and maintained by the engine. The {@link Entity}
+ * component API is a facade over this storage once an entity has been added to
+ * an engine.
+ * </p>
+ */
+public final class Archetype {
+
+    /** Column index returned if no component of the requested type exists. */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * Column index returned if more than one component type of this archetype
+     * implements the requested type.
+     */
+    public static final int AMBIGUOUS = -2;
+
+    /** The number of entities a single chunk can hold, must be a power of two. */
+    static final int CHUNK_CAPACITY = 256;
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_CAPACITY);
+    private static final int CHUNK_MASK = CHUNK_CAPACITY - 1;
+
+    /** Orders component types so that equal sets always produce the same key. */
+    private static final Comparator<Class<?>> TYPE_ORDER = Comparator.comparing(Class::getName);
+
+    /** The concrete component types of this archetype in column order. */
+    private final Class<?>[] types;
+
+    /** The chunks storing the entities, chunks beyond the used ones are kept for reuse. */
+    private final List<ArchetypeChunk> chunks = new ArrayList<>();
+
+    /** The first column of each concrete component type. */
+    private final Map<Class<?>, Integer> firstColumns = new HashMap<>();
+
+    /** The latest change tick of the components of each column. */
+    private final int[] columnChangeTicks;
+
+    /** Resolved column indices for arbitrary classes or interfaces, filled lazily by worker threads too. */
+    private final Map<Class<?>, Integer> columnCache = new ConcurrentHashMap<>();
+
+    /** The engine views whose family matches this archetype. */
+    private final List<EntityView> views = new ArrayList<>();
+
+    /** The view changes when moving an entity from this archetype to another one. */
+    private final Map<Archetype, Transition> transitions = new HashMap<>();
+
+    /** The combined component signature of the entities of this archetype. */
+    private final BitMask signature = new BitMask();
+
+    /** The number of entities stored in this archetype. */
+    private int size;
+
+    Archetype(Class<?>[] types) {
+        this.types = types;
+        columnChangeTicks = new int[types.length];
+        for (int i = types.length - 1; i >= 0; --i) {
+            firstColumns.put(types[i], i);
+            signature.or(ComponentType.getSignature(types[i]));
+        }
+    }
+
+    /**
+     * Returns the key of the archetype the specified components belong to.
+     *
+     * @param componentList
+     *            the components of an entity
+     * @return the sorted list of concrete component types
+     */
+    static List<Class<?>> keyOf(List<Component> componentList) {
+        Class<?>[] types = new Class<?>[componentList.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = componentList.get(i).getClass();
+        }
+        Arrays.sort(types, TYPE_ORDER);
+        return Arrays.asList(types);
+    }
+
+    /**
+     * Returns the column that stores components of the specified type. A type
+     * can either be an interface or a class.
+     *
+     * @param tClass
+     *            the class or interface the components of the column must
+     *            implement
+     * @return the column index, {@link #NOT_FOUND} if no component type matches
+     *         or {@link #AMBIGUOUS} if more than one component type matches
+     */
+    public int getColumnIndex(Class<?> tClass) {
+        Integer column = columnCache.get(tClass);
+        if (column == null) {
+            column = findColumn(tClass);
+            columnCache.put(tClass, column);
+        }
+        return column;
+    }
+
+    private int findColumn(Class<?> tClass) {
+        int column = NOT_FOUND;
+        for (int i = 0; i < types.length; i++) {
+            if (!tClass.isAssignableFrom(types[i])) continue;
+            if (column == NOT_FOUND) {
+                column = i;
+            } else if (types[column] != types[i]) {
+                return AMBIGUOUS;
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Returns the combined component signature of the entities of this
+     * archetype. The returned mask must not be modified.
+     *
+     * @return the signature
+     */
+    public BitMask getSignature() {
+        return signature;
+    }
+
+    /**
+     * Returns the engine views whose family matches this archetype.
+     *
+     * @return the list of views
+     */
+    List<EntityView> getViews() {
+        return views;
+    }
+
+    /**
+     * Returns the views an entity leaves and joins when it moves from this
+     * archetype to the specified one. The result is cached until the views of
+     * the engine change.
+     *
+     * @param to
+     *            the archetype the entity moves to
+     * @return the transition
+     */
+    Transition getTransition(Archetype to) {
+        Transition transition = transitions.get(to);
+        if (transition == null) {
+            transition = new Transition(difference(views, to.views), difference(to.views, views));
+            transitions.put(to, transition);
+        }
+        return transition;
+    }
+
+    /**
+     * Returns the views of the first list that are not part of the second one.
+     * Views are compared by identity.
+     */
+    private static EntityView[] difference(List<EntityView> viewsA, List<EntityView> viewsB) {
+        List<EntityView> result = new ArrayList<>();
+        for (EntityView view : viewsA) {
+            boolean found = false;
+            for (EntityView other : viewsB) {
+                if (view == other) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) result.add(view);
+        }
+        return result.toArray(new EntityView[0]);
+    }
+
+    /**
+     * Discards the cached transitions, called whenever a new view is created.
+     */
+    void clearTransitions() {
+        transitions.clear();
+    }
+
+    /**
+     * Returns the number of entities stored in this archetype.
+     *
+     * @return the number of entities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of chunks currently in use.
+     *
+     * @return the number of chunks
+     */
+    public int getNumOfChunks() {
+        return (size + CHUNK_MASK) >> CHUNK_SHIFT;
+    }
+
+    /**
+     * Returns the chunk with the specified index.
+     *
+     * @param idx
+     *            the index of the chunk, must be less than
+     *            {@link #getNumOfChunks()}
+     * @return the requested chunk
+     */
+    public ArchetypeChunk getChunk(int idx) {
+        return chunks.get(idx);
+    }
+
+    /**
+     * Returns the number of component columns of this archetype.
+     *
+     * @return the number of columns
+     */
+    public int getNumOfColumns() {
+        return types.length;
+    }
+
+    /**
+     * Returns the concrete component type stored in the specified column.
+     *
+     * @param column
+     *            the column index
+     * @return the component type
+     */
+    public Class<?> getType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Returns the latest change tick of the components of the specified type.
+     * If no component of this archetype changed since a given tick, the type
+     * tick is not greater than that tick.
+     *
+     * @param type
+     *            the class or interface of the components
+     * @return the change tick or 0 if this archetype has no such component
+     */
+    public int getChangeTick(Class<?> type) {
+        int column = getColumnIndex(type);
+        if (column >= 0) return columnChangeTicks[column];
+        int tick = 0;
+        if (column == AMBIGUOUS) {
+            for (int c = 0; c < types.length; c++) {
+                if (type.isAssignableFrom(types[c])) tick = Math.max(tick, columnChangeTicks[c]);
+            }
+        }
+        return tick;
+    }
+
+    /**
+     * Stamps the change tick of the specified component of an entity stored in
+     * this archetype.
+     *
+     * @param index
+     *            the index of the entity
+     * @param component
+     *            the changed component
+     * @param tick
+     *            the change tick
+     */
+    void markChanged(int index, Component component, int tick) {
+        ArchetypeChunk chunk = chunks.get(index >> CHUNK_SHIFT);
+        int row = index & CHUNK_MASK;
+        for (int c = 0; c < types.length; c++) {
+            if (chunk.columns[c][row] == component) {
+                columnChangeTicks[c] = tick;
+                chunk.changeTick = tick;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the component of the specified column for the entity stored at
+     * the specified index.
+     *
+     * @param index
+     *            the index of the entity within this archetype
+     * @param column
+     *            the column index
+     * @return the component
+     */
+    Component getComponent(int index, int column) {
+        return chunks.get(index >> CHUNK_SHIFT).columns[column][index & CHUNK_MASK];
+    }
+
+    /**
+     * Appends the specified entity and its components to this archetype.
+     *
+     * @param entity
+     *            the entity to be added
+     * @param componentList
+     *            the components of the entity, in the order they have been
+     *            added
+     */
+    void add(Entity entity, List<Component> componentList) {
+        int chunkIdx = size >> CHUNK_SHIFT;
+        if (chunkIdx == chunks.size()) chunks.add(new ArchetypeChunk(types.length, CHUNK_CAPACITY));
+        ArchetypeChunk chunk = chunks.get(chunkIdx);
+        int row = size & CHUNK_MASK;
+
+        chunk.entities[row] = entity;
+        for (Component component : componentList) {
+            // components of the same type occupy neighbouring columns in the order they were added
+            int column = firstColumns.get(component.getClass());
+            while (chunk.columns[column][row] != null) column++;
+            chunk.columns[column][row] = component;
+            columnChangeTicks[column] = Math.max(columnChangeTicks[column], component.changeTick);
+            chunk.changeTick = Math.max(chunk.changeTick, component.changeTick);
+        }
+        chunk.size++;
+
+        entity.archetype = this;
+        entity.archetypeIndex = size++;
+        entity.archetypePending = false;
+    }
+
+    /**
+     * Removes the specified entity from this archetype. The last entity of the
+     * archetype is moved into the freed slot to keep the storage dense.
+     *
+     * @param entity
+     *            the entity to be removed
+     */
+    void remove(Entity entity) {
+        assert entity.archetype == this;
+
+        int idx = entity.archetypeIndex;
+        int last = --size;
+        ArchetypeChunk lastChunk = chunks.get(last >> CHUNK_SHIFT);
+        int lastRow = last & CHUNK_MASK;
+
+        if (idx != last) {
+            ArchetypeChunk chunk = chunks.get(idx >> CHUNK_SHIFT);
+            int row = idx & CHUNK_MASK;
+            Entity moved = lastChunk.entities[lastRow];
+            chunk.entities[row] = moved;
+            for (int c = 0; c < types.length; c++) {
+                chunk.columns[c][row] = lastChunk.columns[c][lastRow];
+            }
+            moved.archetypeIndex = idx;
+            chunk.changeTick = Math.max(chunk.changeTick, lastChunk.changeTick);
+        }
+
+        lastChunk.entities[lastRow] = null;
+        for (int c = 0; c < types.length; c++) {
+            lastChunk.columns[c][lastRow] = null;
+        }
+        lastChunk.size--;
+
+        entity.archetype = null;
+        entity.archetypeIndex = -1;
+    }
+
+    /**
+     * The views an entity leaves and joins when moving between two archetypes.
+     */
+    static final class Transition {
+        final EntityView[] leftViews;
+        final EntityView[] joinedViews;
+
+        Transition(EntityView[] leftViews, EntityView[] joinedViews) {
+            this.leftViews = leftViews;
+            this.joinedViews = joinedViews;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Archetype{" +
+                "types=" + Arrays.toString(types) +
+                ", size=" + size +
+                '}';
+    }
+}
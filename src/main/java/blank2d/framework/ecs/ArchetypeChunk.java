@@ -0,0 +1,86 @@
+package blank2d.framework.ecs;
+
+/**
+ * A fixed size block of entities that share the same archetype. Every column
+ * holds the components of one component type of the archetype, the row of a
+ * component within its column matches the row of its entity.
+ *
+ * <p>
+ * Systems can iterate the columns directly instead of looking up components
+ * entity by entity.
+ * </p>
+ *
+ * <pre>
+ * int column = archetype.getColumnIndex(Foo.class);
+ * for (int c = 0; c &lt; archetype.getNumOfChunks(); c++) {
+ *     ArchetypeChunk chunk = archetype.getChunk(c);
+ *     Component[] foos = chunk.getColumn(column);
+ *     for (int i = 0; i &lt; chunk.size(); i++) {
+ *         ((Foo) foos[i]).doSomething();
+ *     }
+ * }
+ * </pre>
+ */
+public final class ArchetypeChunk {
+
+    /** The entities stored in this chunk. */
+    final Entity[] entities;
+
+    /** The component columns of this chunk, one for each type of the archetype. */
+    final Component[][] columns;
+
+    /** The number of rows in use. */
+    int size;
+
+    /** The latest change tick of the components stored in this chunk. */
+    volatile int changeTick;
+
+    ArchetypeChunk(int numOfColumns, int capacity) {
+        entities = new Entity[capacity];
+        columns = new Component[numOfColumns][capacity];
+    }
+
+    /**
+     * Returns the number of entities stored in this chunk.
+     *
+     * @return the number of used rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the entity stored in the specified row.
+     *
+     * @param row
+     *            the row of the entity
+     * @return the entity
+     */
+    public Entity getEntity(int row) {
+        return entities[row];
+    }
+
+    /**
+     * Returns the specified component column. Only the first {@link #size()}
+     * elements of the returned array are valid. The array must not be modified.
+     *
+     * @param column
+     *            the column index as returned by
+     *            {@link Archetype#getColumnIndex(Class)}
+     * @return the component column
+     */
+    public Component[] getColumn(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Returns the latest change tick of the components stored in this chunk. A
+     * chunk whose tick is not greater than a given tick has no component that
+     * changed since.
+     *
+     * @return the change tick
+     */
+    public int getChangeTick() {
+        return changeTick;
+    }
+}
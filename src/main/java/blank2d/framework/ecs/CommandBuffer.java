@@ -0,0 +1,101 @@
+package blank2d.framework.ecs;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of structural changes that are delayed until the update
+ * cycle of an engine is complete. Commands are stored as opcodes with their
+ * operands in parallel arrays, so queueing a command does not allocate once
+ * the buffer has grown to the size of a typical frame.
+ *
+ * <p>
+ * A buffer is not thread safe, the engine keeps one buffer per thread and
+ * executes all of them on the updating thread.
+ * </p>
+ */
+final class CommandBuffer {
+
+    /** Adds the entity operand to the engine. */
+    static final byte ADD_ENTITY = 0;
+
+    /** Destroys the entity operand and removes it from the engine. */
+    static final byte REMOVE_ENTITY = 1;
+
+    /** Destroys and removes all entities of the engine. */
+    static final byte REMOVE_ALL = 2;
+
+    /** Moves the entity operand to the archetype matching its components. */
+    static final byte UPDATE_ARCHETYPE = 3;
+
+    /** Removes the component operand from the entity operand. */
+    static final byte REMOVE_COMPONENT = 4;
+
+    /** Moves the entity operand to the tag and layer lists matching its tag and layer. */
+    static final byte UPDATE_INDEXES = 5;
+
+    /** Moves the entity operand to the dormant entities. */
+    static final byte SUSPEND_ENTITY = 6;
+
+    /** Moves the entity operand from the dormant entities back to its archetype. */
+    static final byte RESUME_ENTITY = 7;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] opcodes = new byte[INITIAL_CAPACITY];
+    private Entity[] entities = new Entity[INITIAL_CAPACITY];
+    private Component[] components = new Component[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Appends a command to this buffer.
+     *
+     * @param opcode
+     *            the operation
+     * @param entity
+     *            the entity operand or {@code null}
+     * @param component
+     *            the component operand or {@code null}
+     */
+    void add(byte opcode, Entity entity, Component component) {
+        if (size == opcodes.length) {
+            int capacity = size * 2;
+            opcodes = Arrays.copyOf(opcodes, capacity);
+            entities = Arrays.copyOf(entities, capacity);
+            components = Arrays.copyOf(components, capacity);
+        }
+        opcodes[size] = opcode;
+        entities[size] = entity;
+        components[size] = component;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte getOpcode(int index) {
+        return opcodes[index];
+    }
+
+    Entity getEntity(int index) {
+        return entities[index];
+    }
+
+    Component getComponent(int index) {
+        return components[index];
+    }
+
+    /**
+     * Removes all commands, the capacity of this buffer is kept.
+     */
+    void clear() {
+        Arrays.fill(entities, 0, size, null);
+        Arrays.fill(components, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandBuffer{size=" + size + '}';
+    }
+}
@@ -25,6 +25,9 @@ public abstract class Component {
     /** Indicates if this component has been activated. */
     private boolean activated;
 
+    /** The change tick of the engine when this component was last changed. */
+    volatile int changeTick;
+
     /**
      * Sets the reference to the entity this component has been added to. This
      * method is called by the entity when the component is added.
@@ -119,6 +122,30 @@ public abstract class Component {
         return entity.getEngine();
     }
 
+    /**
+     * Marks this component as changed. Setters of components call this method,
+     * code that modifies public fields of a component directly should call it
+     * too, so systems that only process changed entities pick up the change.
+     */
+    public final void markChanged() {
+        Entity e = entity;
+        Engine engine = e != null ? e.getEngine() : null;
+        if (engine == null) return;
+        int tick = engine.getChangeTick();
+        changeTick = tick;
+        if (e.archetype != null && !e.archetypePending) e.archetype.markChanged(e.archetypeIndex, this, tick);
+    }
+
+    /**
+     * Returns the change tick of the engine when this component was last
+     * changed or added to the engine.
+     *
+     * @return the change tick
+     */
+    public final int getChangeTick() {
+        return changeTick;
+    }
+
     /**
      * Returns the state of this component.
      *
@@ -153,6 +180,30 @@ public abstract class Component {
      */
     protected void deactivate() {}
 
+    /**
+     * This method is invoked when the entity of this component is recycled by
+     * an {@link EntityPool}. The component has already been deactivated. It can
+     * be overwritten by derived classes to restore the state the component had
+     * when it was created.
+     */
+    protected void reset() {}
+
+    /**
+     * Creates a new component of the same class with the state of this
+     * component, used by {@link Prefab} to instantiate entities. The copy is
+     * not attached to an entity. Mutable state must be copied, immutable
+     * references such as sprites and animations can be shared. Derived classes
+     * that support prefabs override this method, the default implementation
+     * throws an exception.
+     *
+     * @return the copy
+     * @throws UnsupportedOperationException
+     *             if this component cannot be copied
+     */
+    protected Component copy() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(getClass().getName() + " cannot be copied");
+    }
+
     /**
      * Deactivates this component. This method is called by its parent entity
      * when the entity itself gets deactivated.
@@ -0,0 +1,44 @@
+package blank2d.framework.ecs;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts components of one type to and from the binary representation used
+ * by {@link WorldSnapshot}.
+ *
+ * @param <T>
+ *            the type of the serialized components
+ */
+public interface ComponentSerializer<T extends Component> {
+
+    /**
+     * Returns the number of bytes {@link #write} puts for the specified
+     * component.
+     *
+     * @param component
+     *            the component to be written
+     * @return the size in bytes
+     */
+    int getSize(T component);
+
+    /**
+     * Writes the state of the specified component. The buffer has at least
+     * {@link #getSize} bytes remaining.
+     *
+     * @param component
+     *            the component to be written
+     * @param buffer
+     *            the buffer receiving the bytes
+     */
+    void write(T component, ByteBuffer buffer);
+
+    /**
+     * Creates a component from the bytes written by {@link #write}. The buffer
+     * holds all bytes of the component.
+     *
+     * @param buffer
+     *            the buffer providing the bytes
+     * @return the new component
+     */
+    T read(ByteBuffer buffer);
+}
@@ -0,0 +1,89 @@
+package blank2d.framework.ecs;
+
+import blank2d.util.BitMask;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The registry of component types. Every class or interface that is used as a
+ * component type gets a unique bit index. The signature of a concrete
+ * component class has the bits of the class itself and of all its super
+ * classes and interfaces set, so a signature test gives the same answer as
+ * {@code isInstance}.
+ *
+ * <p>
+ * Entities and archetypes keep the combined signature of their components,
+ * which turns family membership tests into a few bitwise operations.
+ * </p>
+ */
+public final class ComponentType {
+
+    /** The bit index of every registered type. */
+    private static final Map<Class<?>, Integer> indices = new HashMap<>();
+
+    /** The signatures of the concrete component classes seen so far. */
+    private static final Map<Class<?>, BitMask> signatures = new HashMap<>();
+
+    private ComponentType() { }
+
+    /**
+     * Returns the bit index of the specified type, the type is registered if
+     * it has not been used before.
+     *
+     * @param type
+     *            the class or interface
+     * @return the bit index of the type
+     */
+    public static synchronized int getIndex(Class<?> type) {
+        Integer index = indices.get(type);
+        if (index == null) {
+            index = indices.size();
+            indices.put(type, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the signature of the specified component class. The returned mask
+     * is shared and must not be modified.
+     *
+     * @param componentClass
+     *            the concrete class of a component
+     * @return the signature containing the bits of the class and all its
+     *         super types
+     */
+    public static synchronized BitMask getSignature(Class<?> componentClass) {
+        BitMask signature = signatures.get(componentClass);
+        if (signature == null) {
+            signature = new BitMask();
+            addSuperTypes(componentClass, signature);
+            signatures.put(componentClass, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * Creates a mask with the bits of the specified types set.
+     *
+     * @param types
+     *            the classes or interfaces
+     * @return the new mask
+     */
+    public static BitMask maskOf(Iterable<Class<?>> types) {
+        BitMask mask = new BitMask();
+        for (Class<?> type : types) {
+            mask.set(getIndex(type));
+        }
+        return mask;
+    }
+
+    private static void addSuperTypes(Class<?> type, BitMask signature) {
+        if (type == null || type == Object.class) return;
+        signature.set(getIndex(type));
+        addSuperTypes(type.getSuperclass(), signature);
+        for (Class<?> superInterface : type.getInterfaces()) {
+            addSuperTypes(superInterface, signature);
+        }
+    }
+}
@@ -13,12 +13,18 @@
 package blank2d.framework.ecs;
 
 import blank2d.Game;
+import blank2d.framework.ecs.event.EventBus;
+import blank2d.framework.ecs.event.TriggerEvent;
 import blank2d.framework.ecs.signal.entity.EntityRemovedListener;
+import blank2d.framework.ecs.signal.entity.EntityResumedListener;
 import blank2d.framework.ecs.signal.entity.EntitySignal;
+import blank2d.framework.ecs.signal.entity.EntitySuspendedListener;
 import blank2d.framework.ecs.system.*;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The engine is actual management class of this framework. If accomplishes
@@ -67,27 +73,55 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public final class Engine {
 
+    /** The id of the next view created by this engine, id 0 is used by the entity list. */
+    private int nextViewId = 0;
+
     /** The list of entities added to this engine. */
-    private final List<Entity> entityList = new ArrayList<>();
+    private final EntityView entityList = new EntityView(nextViewId++);
+
+    /** The entities that have been suspended. */
+    private final EntityView dormantEntities = new EntityView(nextViewId++);
 
     /** A map for all the different views of the entities. */
-    private final Map<EntityFamily, List<Entity>> views = new HashMap<>();
+    private final Map<EntityFamily, EntityView> views = new HashMap<>();
+
+    /** The archetypes storing the components of the entities, keyed by their sorted component types. */
+    private final Map<List<Class<?>>, Archetype> archetypes = new HashMap<>();
+
+    /** A map for the archetypes matching the different entity families. */
+    private final Map<EntityFamily, List<Archetype>> archetypeViews = new HashMap<>();
+
+    /** The entities of each tag. */
+    private final Map<Tag, EntityView> tags = new EnumMap<>(Tag.class);
 
-    /** A map for all the different tags of the entities. */
-    private final Map<Tag, List<Entity>> tags = new HashMap<>();
+    /** The entities of each layer. */
+    private final Map<Layer, EntityView> layers = new EnumMap<>(Layer.class);
 
-    /** A map for all the different layers of the entities. */
-    private final Map<Layer, List<Entity>> layers = new HashMap<>();
+    /** Index of the entities that have an id, the id is an optional alias of the entity handle. */
+    private final Map<String, Entity> entityIds = new HashMap<>();
 
-    /** A map for all the different layers of the entities. */
-    private final Map<String, Entity> entityIdCache = new HashMap<>();
+    /** Issues and resolves the generational handles of the entities. */
+    private final EntityHandleTable handles = new EntityHandleTable();
 
-    /** List of pending commands. */
-    private final List<Command> commandList = new ArrayList<>();
+    /** The command buffers of all threads that have queued commands. */
+    private final List<CommandBuffer> commandBuffers = new CopyOnWriteArrayList<>();
+
+    /** The command buffer of the current thread. */
+    private final ThreadLocal<CommandBuffer> commandBuffer = ThreadLocal.withInitial(() -> {
+        CommandBuffer buffer = new CommandBuffer();
+        commandBuffers.add(buffer);
+        return buffer;
+    });
 
     /** List of added systems. */
     private final List<EngineSystem> engineSystems = new ArrayList<>();
 
+    /** Runs the systems, concurrently where their declared access allows it. */
+    private final SystemScheduler scheduler = new SystemScheduler();
+
+    /** Records the duration of each system, {@code null} if profiling is disabled. */
+    private EngineProfiler profiler;
+
     /** Registered entity listeners. */
     private final List<IEntityListener> entityListeners = new CopyOnWriteArrayList<>();
 
@@ -96,16 +130,30 @@ public final class Engine {
 
     private final EntitySignal entitySignal = new EntitySignal();
 
+    /** Delivers the events published during an update cycle. */
+    private final EventBus eventBus = new EventBus();
+
     /** Pointer to the main instance of the game */
     private final Game game;
 
+    /** Runs concurrent systems and the segments of parallel systems. */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /** Incremented whenever a transform of this engine changes its parent. */
+    private final AtomicInteger hierarchyVersion = new AtomicInteger();
+
     /** Indicates if an update cycle is currently in progress. */
-    private boolean updating;
+    private volatile boolean updating;
 
 
     public Engine(Game game){
         this.game = game;
         entitySignal.addSignalListener(new EntityRemovedListener());
+        entitySignal.addSignalListener(new EntitySuspendedListener());
+        entitySignal.addSignalListener(new EntityResumedListener());
+        eventBus.register(TriggerEvent.class, TriggerEvent::new);
+        for (Tag tag : Tag.values()) tags.put(tag, new EntityView(nextViewId++));
+        for (Layer layer : Layer.values()) layers.put(layer, new EntityView(nextViewId++));
     }
 
     /**
@@ -171,7 +219,7 @@ public final class Engine {
     public void addEntity(Entity ...entity){
         for (Entity e: entity){
             if(updating){
-                commandList.add(() -> addEntityInternal(e));
+                commandBuffer.get().add(CommandBuffer.ADD_ENTITY, e, null);
             } else {
                 addEntityInternal(e);
             }
@@ -179,13 +227,69 @@ public final class Engine {
 
     }
 
+    /**
+     * Adds all specified entities to this engine in one pass, the entity list
+     * is grown once for all of them. If the entities are added during an update
+     * cycle, they will be added when the update cycle is complete.
+     *
+     * @param entities
+     *            the entities to be added
+     */
+    public void addEntities(Collection<Entity> entities) {
+        if (updating) {
+            CommandBuffer buffer = commandBuffer.get();
+            for (Entity e : entities) buffer.add(CommandBuffer.ADD_ENTITY, e, null);
+            return;
+        }
+        entityList.ensureCapacity(entityList.size() + entities.size());
+        for (Entity e : entities) addEntityInternal(e);
+    }
+
+    /**
+     * Creates the specified number of instances of a prefab and adds them to
+     * this engine. The views the instances become members of are grown once for
+     * the whole batch. If this method is called during an update cycle, the
+     * instances are added when the update cycle is complete.
+     *
+     * @param prefab
+     *            the prefab to be instantiated
+     * @param count
+     *            the number of instances
+     * @return the new instances
+     * @throws IllegalArgumentException
+     *             if the count is negative
+     */
+    public List<Entity> instantiate(Prefab prefab, int count) throws IllegalArgumentException {
+        if (count < 0) throw new IllegalArgumentException("count must not be negative");
+        List<Entity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) entities.add(prefab.instantiate());
+        if (updating || count == 0) {
+            addEntities(entities);
+            return entities;
+        }
+
+        // all instances share the archetype of the first one
+        entityList.ensureCapacity(entityList.size() + count);
+        addEntityInternal(entities.get(0));
+        Entity first = entities.get(0);
+        if (first.getEngine() == this && !first.dormant) {
+            for (EntityView view : first.archetype.getViews()) view.ensureCapacity(view.size() + count - 1);
+        }
+        EntityView tagView = tags.get(prefab.getTag());
+        tagView.ensureCapacity(tagView.size() + count - 1);
+        EntityView layerView = layers.get(prefab.getLayer());
+        layerView.ensureCapacity(layerView.size() + count - 1);
+        for (int i = 1; i < count; i++) addEntityInternal(entities.get(i));
+        return entities;
+    }
+
     /**
      * Removes all entities. If this method is invoked during an update cycle,
      * the command queued and executed when the update cycle is complete.
      */
     public void removeAll(){
         if(updating) {
-            commandList.add(this::removeAllInternal);
+            commandBuffer.get().add(CommandBuffer.REMOVE_ALL, null, null);
         } else {
             removeAllInternal();
         }
@@ -200,8 +304,7 @@ public final class Engine {
      */
     public void removeEntity(Entity entity){
         if(updating){
-            commandList.add(() -> entitySignal.destroy(entity));
-            commandList.add(() -> removeEntityInternal(entity));
+            commandBuffer.get().add(CommandBuffer.REMOVE_ENTITY, entity, null);
         } else {
             entitySignal.destroy(entity);
             removeEntityInternal(entity);
@@ -219,10 +322,16 @@ public final class Engine {
         if(entity.isActivated()) throw new IllegalArgumentException("entity has already been activated");
         if(entityList.contains(entity)) throw new IllegalArgumentException("entity already attached to engine");
 
-        entityList.add(entity);
+        entityList.addEntity(entity);
         entity.setEngine(this);
+        entity.handle = handles.issue(entity);
+        if (entity.getId() != null) entityIds.put(entity.getId(), entity);
+        int tick = getChangeTick();
+        for (Component component : entity.getComponentList()) component.changeTick = tick;
         entity.activate();
 
+        addEntityToArchetype(entity);
+
         addEntityToViews(entity);
 
         for(IEntityListener listener : entityListeners){
@@ -230,7 +339,7 @@ public final class Engine {
         }
 
         filteredListeners.forEach((key, value) -> {
-            if(key.isMember(entity)) for(IEntityListener listener : value) { listener.entityAdded(entity);}
+            if(key.isMember(entity.archetype)) for(IEntityListener listener : value) { listener.entityAdded(entity);}
         });
     }
 
@@ -241,11 +350,120 @@ public final class Engine {
      *            the entity to be added
      */
     private void addEntityToViews(Entity entity){
-        for(EntityFamily family : views.keySet()){
-            if(family.isMember(entity)) views.get(family).add(entity);
+        for(EntityView view : entity.archetype.getViews()){
+            view.addEntity(entity);
+        }
+        tags.get(entity.getTag()).addEntity(entity);
+        layers.get(entity.getLayer()).addEntity(entity);
+    }
+
+    /**
+     * Stores the components of the specified entity in the archetype matching
+     * its component types. The archetype is created if it does not exist yet.
+     *
+     * @param entity
+     *            the entity to be stored
+     */
+    private void addEntityToArchetype(Entity entity) {
+        List<Class<?>> key = Archetype.keyOf(entity.getComponentList());
+        Archetype archetype = archetypes.get(key);
+        if (archetype == null) {
+            archetype = new Archetype(key.toArray(new Class<?>[0]));
+            archetypes.put(key, archetype);
+            for (Map.Entry<EntityFamily, List<Archetype>> entry : archetypeViews.entrySet()) {
+                if (entry.getKey().isMember(archetype)) entry.getValue().add(archetype);
+            }
+            for (Map.Entry<EntityFamily, EntityView> entry : views.entrySet()) {
+                if (entry.getKey().isMember(archetype)) archetype.getViews().add(entry.getValue());
+            }
+        }
+        archetype.add(entity, entity.getComponentList());
+    }
+
+    /**
+     * Invoked by an entity of this engine whenever a component has been added.
+     * Moves the entity to the archetype matching its new component types and
+     * updates the views it is member of. If this happens during an update
+     * cycle, the move is delayed until the update cycle is complete and the
+     * entity resolves its components without its archetype in the meantime.
+     *
+     * @param entity
+     *            the entity that has changed
+     */
+    void componentsChanged(Entity entity) {
+        if (entity.archetype == null) return;
+        if (updating) {
+            if (!entity.archetypePending) {
+                entity.archetypePending = true;
+                commandBuffer.get().add(CommandBuffer.UPDATE_ARCHETYPE, entity, null);
+            }
+        } else {
+            updateArchetype(entity);
         }
     }
 
+    /**
+     * The method that actually moves an entity to the archetype matching its
+     * current component types.
+     *
+     * @param entity
+     *            the entity to be moved
+     */
+    private void updateArchetype(Entity entity) {
+        entity.archetypePending = false;
+        Archetype from = entity.archetype;
+        if (from == null) return;
+        from.remove(entity);
+        addEntityToArchetype(entity);
+        Archetype to = entity.archetype;
+        if (from == to) return;
+
+        // only the views that differ between both archetypes need to change
+        Archetype.Transition transition = from.getTransition(to);
+        for (EntityView view : transition.leftViews) view.removeEntity(entity);
+        for (EntityView view : transition.joinedViews) view.addEntity(entity);
+
+        filteredListeners.forEach((key, value) -> {
+            boolean wasMember = key.isMember(from);
+            boolean isMember = key.isMember(to);
+            if (wasMember && !isMember) for (IEntityListener listener : value) { listener.entityRemoved(entity); }
+            if (!wasMember && isMember) for (IEntityListener listener : value) { listener.entityAdded(entity); }
+        });
+    }
+
+    /**
+     * Removes the specified component from an entity of this engine. If this
+     * happens during an update cycle, the component stays attached until the
+     * update cycle is complete.
+     *
+     * @param entity
+     *            the entity the component belongs to
+     * @param component
+     *            the component to be removed
+     */
+    void removeComponent(Entity entity, Component component) {
+        if (updating) {
+            commandBuffer.get().add(CommandBuffer.REMOVE_COMPONENT, entity, component);
+        } else {
+            removeComponentInternal(entity, component);
+        }
+    }
+
+    /**
+     * The method that actually removes a component and moves its entity to
+     * the archetype matching the remaining component types.
+     *
+     * @param entity
+     *            the entity the component belongs to
+     * @param component
+     *            the component to be removed
+     */
+    private void removeComponentInternal(Entity entity, Component component) {
+        if (component.getEntity() != entity) return;
+        entity.detachComponent(component);
+        updateArchetype(entity);
+    }
+
     /**
      * The method that actually removes the entity.
      *
@@ -260,15 +478,30 @@ public final class Engine {
         assert entityList.contains(entity);
 
         for(IEntityListener listener: entityListeners){ listener.entityRemoved(entity); }
-        filteredListeners.forEach((key, value) -> {
-            if(key.isMember(entity)) for (IEntityListener listener : value) { listener.entityRemoved(entity);}
-        });
+        if (!entity.dormant) {
+            filteredListeners.forEach((key, value) -> {
+                if(key.isMember(entity.archetype)) for (IEntityListener listener : value) { listener.entityRemoved(entity);}
+            });
+        }
 
         entity.deactivate();
         entity.setEngine(null);
-        entityList.remove(entity);
+        entityList.removeEntity(entity);
 
         removeEntityFromViews(entity);
+        if (entity.dormant) {
+            dormantEntities.removeEntity(entity);
+            entity.dormant = false;
+        } else {
+            entity.archetype.remove(entity);
+        }
+
+        eventBus.removeListeners(entity);
+        handles.release(entity.handle);
+        entity.handle = EntityHandle.NULL;
+        if (entity.getId() != null) entityIds.remove(entity.getId(), entity);
+
+        if (entity.pool != null) entity.pool.recycle(entity);
     }
 
     /**
@@ -276,7 +509,7 @@ public final class Engine {
      */
     private void removeAllInternal() {
         while (!entityList.isEmpty()) {
-            Entity entity = entityList.get(0);
+            Entity entity = entityList.get(entityList.size() - 1);
             entitySignal.destroy(entity);
             removeEntityInternal(entity);
         }
@@ -289,9 +522,225 @@ public final class Engine {
      *            the entity to be removed
      */
     private void removeEntityFromViews(Entity entity) {
-        for (List<Entity> view : views.values()) {
-            view.remove(entity);
+        if (!entity.dormant) {
+            for (EntityView view : entity.archetype.getViews()) {
+                view.removeEntity(entity);
+            }
+        }
+        removeFromIndex(tags, entity.getTag(), entity);
+        removeFromIndex(layers, entity.getLayer(), entity);
+    }
+
+    /**
+     * Removes an entity from the view of the specified key. If the key of the
+     * entity has changed in the meantime the entity is removed from whichever
+     * view of the index holds it.
+     */
+    private static <K> void removeFromIndex(Map<K, EntityView> index, K key, Entity entity) {
+        if (index.get(key).removeEntity(entity)) return;
+        for (EntityView view : index.values()) {
+            if (view.removeEntity(entity)) return;
+        }
+    }
+
+    /**
+     * Suspends the specified entity. A dormant entity stays part of this engine
+     * and keeps its components, id, handle, tag and layer, but it is removed
+     * from its archetype and all entity families, so systems no longer process
+     * it. Listeners of these families are notified as if the entity had been
+     * removed, entity scripts receive {@code onSuspend}. Components added to or
+     * removed from a dormant entity take effect when it is resumed. If this
+     * happens during an update cycle, the entity is suspended when the update
+     * cycle is complete.
+     *
+     * @param entity
+     *            the entity to be suspended
+     */
+    public void suspendEntity(Entity entity) {
+        if (updating) {
+            commandBuffer.get().add(CommandBuffer.SUSPEND_ENTITY, entity, null);
+        } else {
+            suspendEntityInternal(entity);
+        }
+    }
+
+    /**
+     * Resumes the specified dormant entity, it becomes a member of its entity
+     * families again. If this happens during an update cycle, the entity is
+     * resumed when the update cycle is complete.
+     *
+     * @param entity
+     *            the entity to be resumed
+     */
+    public void resumeEntity(Entity entity) {
+        if (updating) {
+            commandBuffer.get().add(CommandBuffer.RESUME_ENTITY, entity, null);
+        } else {
+            resumeEntityInternal(entity);
+        }
+    }
+
+    /**
+     * The method that actually suspends an entity.
+     *
+     * @param entity
+     *            the entity to be suspended
+     */
+    private void suspendEntityInternal(Entity entity) {
+        if (entity.getEngine() != this || entity.dormant) return;
+        if (entity.archetypePending) updateArchetype(entity);
+
+        filteredListeners.forEach((key, value) -> {
+            if(key.isMember(entity.archetype)) for (IEntityListener listener : value) { listener.entityRemoved(entity);}
+        });
+        for (EntityView view : entity.archetype.getViews()) {
+            view.removeEntity(entity);
+        }
+        entity.archetype.remove(entity);
+        entity.archetype = null;
+        entity.archetypeIndex = -1;
+        entity.dormant = true;
+        dormantEntities.addEntity(entity);
+
+        entitySignal.suspend(entity);
+    }
+
+    /**
+     * The method that actually resumes an entity.
+     *
+     * @param entity
+     *            the entity to be resumed
+     */
+    private void resumeEntityInternal(Entity entity) {
+        if (entity.getEngine() != this || !entity.dormant) return;
+        dormantEntities.removeEntity(entity);
+        entity.dormant = false;
+
+        int tick = getChangeTick();
+        for (Component component : entity.getComponentList()) component.changeTick = tick;
+        addEntityToArchetype(entity);
+        for (EntityView view : entity.archetype.getViews()) {
+            view.addEntity(entity);
         }
+        filteredListeners.forEach((key, value) -> {
+            if(key.isMember(entity.archetype)) for(IEntityListener listener : value) { listener.entityAdded(entity);}
+        });
+
+        entitySignal.resume(entity);
+    }
+
+    /**
+     * Returns a list of the dormant entities of this engine. It is safe to keep
+     * a reference of the returned list, it is kept up to date when entities are
+     * suspended, resumed or removed.
+     *
+     * <p>
+     * The returned list cannot be modified. Any attempt to do so will result in
+     * an {@code UnsupportedOperationException}.
+     * </p>
+     *
+     * @return the list of dormant entities
+     */
+    public List<Entity> getDormantEntities() {
+        return dormantEntities;
+    }
+
+    /**
+     * Invoked when the tag or layer of an entity of this engine has changed.
+     * If this happens during an update cycle, the tag and layer lists are
+     * updated when the update cycle is complete.
+     *
+     * @param entity
+     *            the entity that has changed
+     */
+    void indexesChanged(Entity entity) {
+        if (updating) {
+            commandBuffer.get().add(CommandBuffer.UPDATE_INDEXES, entity, null);
+        } else {
+            updateIndexes(entity);
+        }
+    }
+
+    /**
+     * The method that actually moves an entity to the tag and layer lists
+     * matching its current tag and layer.
+     *
+     * @param entity
+     *            the entity to be moved
+     */
+    private void updateIndexes(Entity entity) {
+        if (entity.getEngine() != this) return;
+        EntityView tagView = tags.get(entity.getTag());
+        if (!tagView.contains(entity)) {
+            removeFromIndex(tags, entity.getTag(), entity);
+            tagView.addEntity(entity);
+        }
+        EntityView layerView = layers.get(entity.getLayer());
+        if (!layerView.contains(entity)) {
+            removeFromIndex(layers, entity.getLayer(), entity);
+            layerView.addEntity(entity);
+        }
+    }
+
+    /**
+     * Executes the pending commands of all threads. The commands of one thread
+     * are executed in the order they have been queued, the order between
+     * threads is unspecified, see {@link #isDeterministic()}. Commands queued by an executing command are
+     * executed as well.
+     */
+    private void executeCommands() {
+        boolean executed;
+        do {
+            executed = false;
+            for (int i = 0; i < commandBuffers.size(); i++) {
+                executed |= executeCommands(commandBuffers.get(i));
+            }
+        } while (executed);
+    }
+
+    private boolean executeCommands(CommandBuffer buffer) {
+        if (buffer.size() == 0) return false;
+        int reservedUntil = 0;
+        for (int i = 0; i < buffer.size(); i++) {
+            Entity entity = buffer.getEntity(i);
+            switch (buffer.getOpcode(i)) {
+                case CommandBuffer.ADD_ENTITY:
+                    // grow the entity list once for a run of additions
+                    if (i >= reservedUntil) {
+                        reservedUntil = i;
+                        while (reservedUntil < buffer.size() && buffer.getOpcode(reservedUntil) == CommandBuffer.ADD_ENTITY) reservedUntil++;
+                        entityList.ensureCapacity(entityList.size() + reservedUntil - i);
+                    }
+                    addEntityInternal(entity);
+                    break;
+                case CommandBuffer.REMOVE_ENTITY:
+                    entitySignal.destroy(entity);
+                    removeEntityInternal(entity);
+                    break;
+                case CommandBuffer.REMOVE_ALL:
+                    removeAllInternal();
+                    break;
+                case CommandBuffer.UPDATE_ARCHETYPE:
+                    updateArchetype(entity);
+                    break;
+                case CommandBuffer.REMOVE_COMPONENT:
+                    removeComponentInternal(entity, buffer.getComponent(i));
+                    break;
+                case CommandBuffer.UPDATE_INDEXES:
+                    updateIndexes(entity);
+                    break;
+                case CommandBuffer.SUSPEND_ENTITY:
+                    suspendEntityInternal(entity);
+                    break;
+                case CommandBuffer.RESUME_ENTITY:
+                    resumeEntityInternal(entity);
+                    break;
+                default:
+                    throw new IllegalStateException("unknown command " + buffer.getOpcode(i));
+            }
+        }
+        buffer.clear();
+        return true;
     }
 
     /**
@@ -302,17 +751,16 @@ public final class Engine {
     public void fixedUpdate() {
         updating = true;
         // fixedUpdate systems
-        for (EngineSystem s : engineSystems) {
-            if (s.isEnabled()) {
-                s.fixedUpdate();
-            }
-        }
+        scheduler.run(engineSystems, true, isDeterministic(), pool, profiler);
+        eventBus.deliver();
 
-        // execute pending commands
-        for (Command cmd : commandList) {
-            cmd.execute();
+        if (profiler == null) {
+            executeCommands();
+        } else {
+            long start = System.nanoTime();
+            executeCommands();
+            profiler.recordCommands(true, System.nanoTime() - start);
         }
-        commandList.clear();
 
         updating = false;
     }
@@ -327,17 +775,16 @@ public final class Engine {
         updating = true;
 
         // update systems
-        for (EngineSystem s : engineSystems) {
-            if (s.isEnabled()) {
-                s.update();
-            }
-        }
+        scheduler.run(engineSystems, false, isDeterministic(), pool, profiler);
+        eventBus.deliver();
 
-        // execute pending commands
-        for (Command cmd : commandList) {
-            cmd.execute();
+        if (profiler == null) {
+            executeCommands();
+        } else {
+            long start = System.nanoTime();
+            executeCommands();
+            profiler.recordCommands(false, System.nanoTime() - start);
         }
-        commandList.clear();
 
         updating = false;
     }
@@ -346,7 +793,8 @@ public final class Engine {
      * Returns a list that will contain only entities which are members of the
      * specified family. It is safe to keep a reference of the returned list.
      * The list will be updated each update cycle and show reflect the current
-     * state.
+     * state. Entities are added and removed in constant time, the order of the
+     * list is not stable.
      *
      * <p>
      * The returned list cannot be modified. Any attempt to do so will result in
@@ -358,13 +806,44 @@ public final class Engine {
      * @return the list of entities
      */
     public List<Entity> getEntities(EntityFamily family) {
-        List<Entity> view = views.get(family);
+        EntityView view = views.get(family);
         if (view == null) {
-            view = new ArrayList<>();
+            view = new EntityView(nextViewId++);
             views.put(family, view);
             initView(family, view);
         }
-        return Collections.unmodifiableList(view);
+        return view;
+    }
+
+    /**
+     * Returns a list of all archetypes whose entities are members of the
+     * specified family. The list is updated whenever a new matching archetype is
+     * created, systems can iterate the component columns of these archetypes
+     * directly.
+     *
+     * <p>
+     * The returned list cannot be modified. Any attempt to do so will result in
+     * an {@code UnsupportedOperationException}.
+     * </p>
+     *
+     * @param family
+     *            the entity family the archetypes must match
+     * @return the list of archetypes
+     */
+    public List<Archetype> getArchetypes(EntityFamily family) {
+        return Collections.unmodifiableList(archetypeList(family));
+    }
+
+    private List<Archetype> archetypeList(EntityFamily family) {
+        List<Archetype> archetypeList = archetypeViews.get(family);
+        if (archetypeList == null) {
+            archetypeList = new ArrayList<>();
+            archetypeViews.put(family, archetypeList);
+            for (Archetype archetype : archetypes.values()) {
+                if (family.isMember(archetype)) archetypeList.add(archetype);
+            }
+        }
+        return archetypeList;
     }
 
     /**
@@ -375,17 +854,27 @@ public final class Engine {
      * @param view
      *            the view that should be initialized
      */
-    private void initView(EntityFamily family, List<Entity> view) {
+    private void initView(EntityFamily family, EntityView view) {
         assert view.isEmpty();
-        for (Entity entity : entityList) {
-            if (family.isMember(entity)) {
-                view.add(entity);
+        for (Archetype archetype : archetypes.values()) {
+            archetype.clearTransitions();
+            if (!family.isMember(archetype)) continue;
+            archetype.getViews().add(view);
+            view.ensureCapacity(view.size() + archetype.size());
+            for (int c = 0; c < archetype.getNumOfChunks(); c++) {
+                ArchetypeChunk chunk = archetype.getChunk(c);
+                for (int i = 0; i < chunk.size(); i++) {
+                    view.addEntity(chunk.getEntity(i));
+                }
             }
         }
     }
 
     /**
-     * Returns a list of entities that have the given tag
+     * Returns a list of entities that have the given tag. It is safe to keep a
+     * reference of the returned list, it is kept up to date when entities are
+     * added, removed or change their tag. Changes during an update cycle are
+     * applied when the update cycle is complete.
      *
      * <p>
      * The returned list cannot be modified. Any attempt to do so will result in
@@ -396,34 +885,14 @@ public final class Engine {
      * @return the list of entities
      */
     public List<Entity> getEntities(Tag tag) {
-        List<Entity> tagList = tags.get(tag);
-        if (tagList == null) {
-            tagList = new ArrayList<>();
-            tags.put(tag, tagList);
-            initTagList(tag, tagList);
-        }
-        return Collections.unmodifiableList(tagList);
-    }
-
-    /**
-     * Initializes the specified tag.
-     *
-     * @param tag
-     *            the entity tag the new tagList should contain
-     * @param tagList
-     *            the tagList that should be initialized
-     */
-    private void initTagList(Tag tag, List<Entity> tagList) {
-        assert tagList.isEmpty();
-        for (Entity entity : entityList) {
-            if (tag.equals(entity.getTag())) {
-                tagList.add(entity);
-            }
-        }
+        return tags.get(tag);
     }
 
     /**
-     * Returns a list of entities that have the given layer
+     * Returns a list of entities that have the given layer. It is safe to keep
+     * a reference of the returned list, it is kept up to date when entities
+     * are added, removed or change their layer. Changes during an update cycle
+     * are applied when the update cycle is complete.
      *
      * <p>
      * The returned list cannot be modified. Any attempt to do so will result in
@@ -434,43 +903,135 @@ public final class Engine {
      * @return the list of entities
      */
     public List<Entity> getEntities(Layer layer) {
-        List<Entity> layerList = layers.get(layer);
-        if (layerList == null) {
-            layerList = new ArrayList<>();
-            layers.put(layer, layerList);
-            initLayerList(layer, layerList);
-        }
-        return Collections.unmodifiableList(layerList);
+        return layers.get(layer);
     }
 
     /**
-     * Initializes the specified layer.
+     * Returns the current change tick of this engine. The tick advances each
+     * time systems are run, components that change are stamped with it.
      *
-     * @param layer
-     *            the entity layer the new tagList should contain
-     * @param layerList
-     *            the layerList that should be initialized
+     * @return the change tick
      */
-    private void initLayerList(Layer layer, List<Entity> layerList) {
-        assert layerList.isEmpty();
-        for (Entity entity : entityList) {
-            if (layer.equals(entity.getLayer())) {
-                layerList.add(entity);
-            }
-        }
+    public int getChangeTick() {
+        return scheduler.getChangeTick();
     }
 
-    public Entity getEntity(String id){
-        Entity entity = entityIdCache.get(id);
-        if(entity == null){
-            for (Entity e: entityList) {
-                if(id.equals(e.getId())) {
-                    entityIdCache.put(id, e);
-                    return e;
+    /**
+     * Returns a counter that changes whenever a transform of this engine
+     * changes its parent, systems keeping transforms in depth order compare
+     * it to detect an outdated order.
+     *
+     * @return the hierarchy version
+     */
+    public int getHierarchyVersion() {
+        return hierarchyVersion.get();
+    }
+
+    /**
+     * Invoked by transforms of this engine when their parent changes. This
+     * method may be called from worker threads.
+     */
+    public void hierarchyChanged() {
+        hierarchyVersion.incrementAndGet();
+    }
+
+    /**
+     * Collects the members of the specified family that have a component of
+     * one of the tracked types which changed after the specified tick.
+     * Archetypes and chunks without such a change are skipped as a whole.
+     *
+     * @param family
+     *            the entity family
+     * @param sinceTick
+     *            the change tick to compare with, e.g.
+     *            {@link EngineSystem#getLastRunTick()}
+     * @param result
+     *            the list receiving the changed entities
+     * @param trackedTypes
+     *            the component types to test
+     * @return the result list
+     */
+    public List<Entity> getChangedEntities(EntityFamily family, int sinceTick, List<Entity> result, Class<?>... trackedTypes) {
+        List<Archetype> archetypeList = archetypeList(family);
+        for (int a = 0; a < archetypeList.size(); a++) {
+            Archetype archetype = archetypeList.get(a);
+            if (!changedSince(archetype, trackedTypes, sinceTick)) continue;
+            for (int c = 0; c < archetype.getNumOfChunks(); c++) {
+                ArchetypeChunk chunk = archetype.getChunk(c);
+                if (chunk.getChangeTick() <= sinceTick) continue;
+                for (int i = 0; i < chunk.size(); i++) {
+                    Entity entity = chunk.getEntity(i);
+                    for (Class<?> type : trackedTypes) {
+                        if (entity.changedSince(type, sinceTick)) {
+                            result.add(entity);
+                            break;
+                        }
+                    }
                 }
             }
         }
-        return entity;
+        return result;
+    }
+
+    /**
+     * Tests if a component of one of the specified types of an archetype
+     * changed after the specified tick.
+     */
+    static boolean changedSince(Archetype archetype, Class<?>[] types, int tick) {
+        for (Class<?> type : types) {
+            if (archetype.getChangeTick(type) > tick) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the entity with the specified id. If more than one entity uses
+     * the same id, the entity that has been assigned the id last is returned.
+     *
+     * @param id
+     *            the id of the requested entity
+     * @return the entity or {@code null} if no entity of this engine uses the
+     *         id
+     */
+    public Entity getEntity(String id){
+        return entityIds.get(id);
+    }
+
+    /**
+     * Returns the entity the specified handle refers to.
+     *
+     * @param handle
+     *            the handle as returned by {@link Entity#getHandle()}
+     * @return the entity or {@code null} if the entity has been removed from
+     *         this engine in the meantime
+     */
+    public Entity getEntity(int handle){
+        return handles.get(handle);
+    }
+
+    /**
+     * Tests if the specified handle still refers to an entity of this engine.
+     *
+     * @param handle
+     *            the handle as returned by {@link Entity#getHandle()}
+     * @return {@code true} if the entity is alive, {@code false} if the handle
+     *         is stale
+     */
+    public boolean isAlive(int handle){
+        return handles.isValid(handle);
+    }
+
+    /**
+     * Invoked by an entity of this engine whenever its id has changed.
+     *
+     * @param entity
+     *            the entity that has changed
+     * @param oldId
+     *            the previous id of the entity, may be {@code null}
+     */
+    void entityIdChanged(Entity entity, String oldId){
+        if (oldId != null) entityIds.remove(oldId, entity);
+        if (entity.getId() != null) entityIds.put(entity.getId(), entity);
     }
 
     /**
@@ -495,6 +1056,8 @@ public final class Engine {
         }
         system.setEngine(this);
         engineSystems.add(system);
+        scheduler.invalidate();
+        if (profiler != null) profiler.addSystem(system);
         system.addedToEngine(this);
     }
 
@@ -515,6 +1078,8 @@ public final class Engine {
         if (!engineSystems.contains(system)) throw new IllegalArgumentException("system is unknown");
         system.removedFromEngine(this);
         engineSystems.remove(system);
+        scheduler.invalidate();
+        if (profiler != null) profiler.removeSystem(system);
         system.setEngine(null);
     }
 
@@ -549,7 +1114,10 @@ public final class Engine {
      *             in case no suitable system could be found
      */
     public <T> T getSystem(Class<T> tClass) throws IllegalArgumentException {
-        for (EngineSystem system : engineSystems) { if (tClass.isInstance(system)) return tClass.cast(system); }
+        for (int i = 0; i < engineSystems.size(); i++) {
+            EngineSystem system = engineSystems.get(i);
+            if (tClass.isInstance(system)) return tClass.cast(system);
+        }
         throw new IllegalArgumentException("system not found " + tClass.getName());
     }
 
@@ -572,12 +1140,18 @@ public final class Engine {
 
         // dispose entities
         removeAll();
-        entityList.clear();
+        entityList.clearEntities();
         entitySignal.clear();
+        eventBus.clear();
+        for (EntityView view : views.values()) view.clearEntities();
         views.clear();
-        tags.clear();
-        layers.clear();
-        entityIdCache.clear();
+        archetypes.clear();
+        archetypeViews.clear();
+        for (EntityView view : tags.values()) view.clearEntities();
+        for (EntityView view : layers.values()) view.clearEntities();
+        dormantEntities.clearEntities();
+        entityIds.clear();
+        handles.clear();
 
         // dispose systems
         for (int i = engineSystems.size() - 1; i >= 0; --i) {
@@ -587,6 +1161,8 @@ public final class Engine {
             system.setEngine(null);
         }
         engineSystems.clear();
+        scheduler.invalidate();
+        profiler = null;
     }
 
     /**
@@ -598,6 +1174,120 @@ public final class Engine {
         return engineSystems.size();
     }
 
+    /**
+     * Returns whether the duration of each system is recorded.
+     *
+     * @return {@code true} if profiling is enabled
+     */
+    public boolean isProfilingEnabled() {
+        return profiler != null;
+    }
+
+    /**
+     * Enables or disables recording the duration of each system and of the
+     * command execution. A new profiler with a window of
+     * {@link EngineProfiler#DEFAULT_WINDOW_SIZE} samples is created when
+     * profiling is enabled. Disabled profiling has no overhead.
+     *
+     * @param enabled
+     *            {@code true} to enable profiling
+     * @throws IllegalStateException
+     *             if this method is invoked during an update cycle
+     */
+    public void setProfilingEnabled(boolean enabled) throws IllegalStateException {
+        if (updating) throw new IllegalStateException("cannot change profiling while updating");
+        if (enabled == isProfilingEnabled()) return;
+        if (enabled) {
+            profiler = new EngineProfiler(EngineProfiler.DEFAULT_WINDOW_SIZE);
+            for (EngineSystem system : engineSystems) profiler.addSystem(system);
+        } else {
+            profiler = null;
+        }
+    }
+
+    /**
+     * Returns the profiler of this engine.
+     *
+     * @return the profiler or {@code null} if profiling is disabled
+     */
+    public EngineProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Invoked when a system of this engine changes the types it accesses.
+     */
+    void systemsChanged() {
+        scheduler.invalidate();
+    }
+
+    /**
+     * Returns whether this engine runs all systems, including the segments of
+     * parallel iterating systems, on the updating thread. The engines of a
+     * lockstep game do, so the commands of an update cycle are queued into a
+     * single buffer in the same order on every run and a replay reproduces
+     * the recorded simulation.
+     *
+     * @return {@code true} if the game of this engine is in lockstep mode
+     */
+    public boolean isDeterministic() {
+        return game != null && game.isLockstep();
+    }
+
+    /**
+     * Returns the pool running the concurrent systems of this engine and the
+     * segments of its parallel iterating systems.
+     *
+     * @return the pool of this engine
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the pool running the concurrent systems of this engine and the
+     * segments of its parallel iterating systems, by default the common pool.
+     * The workers of the common pool clear their thread locals after each
+     * task, so the world context is bound anew on every step; a dedicated pool
+     * keeps concurrent steps free of allocations.
+     *
+     * @param pool
+     *            the pool
+     * @throws NullPointerException
+     *             if the pool is {@code null}
+     * @throws IllegalStateException
+     *             if this method is invoked during an update cycle
+     */
+    public void setPool(ForkJoinPool pool) throws NullPointerException, IllegalStateException {
+        if (pool == null) throw new NullPointerException("pool must not be null");
+        if (updating) throw new IllegalStateException("cannot change the pool while updating");
+        this.pool = pool;
+    }
+
+    /**
+     * Returns whether systems with non conflicting access run concurrently.
+     *
+     * @return {@code true} if systems may run concurrently
+     */
+    public boolean isConcurrentSystems() {
+        return scheduler.isConcurrent();
+    }
+
+    /**
+     * Enables or disables running systems with non conflicting access
+     * concurrently. If disabled, all systems run one after the other in the
+     * order they have been added.
+     *
+     * @param concurrent
+     *            {@code true} to run systems concurrently
+     * @throws IllegalStateException
+     *             if this method is invoked during an update cycle
+     */
+    public void setConcurrentSystems(boolean concurrent) throws IllegalStateException {
+        if (updating) throw new IllegalStateException("cannot change scheduling while updating");
+        scheduler.setConcurrent(concurrent);
+    }
+
     /**
      * Returns the system with the specified index.
      *
@@ -613,7 +1303,9 @@ public final class Engine {
     }
 
     /**
-     * Returns the number of active entities within this engine.
+     * Returns the number of entities within this engine, including dormant
+     * entities. Subtract the size of {@link #getDormantEntities()} to get the
+     * number of entities taking part in updates.
      *
      * @return the number of entities
      */
@@ -621,6 +1313,15 @@ public final class Engine {
         return entityList.size();
     }
 
+    /**
+     * Returns all entities of this engine including dormant entities.
+     *
+     * @return the entity list
+     */
+    List<Entity> getEntityList() {
+        return entityList;
+    }
+
 
     /**
      * Creates a default engine structure with all the base systems in the order of execution needed
@@ -631,11 +1332,13 @@ public final class Engine {
 
         //the order you add the systems are the order that is executed for the fixed updated and updated loops
         //all of fixed updated is done first, the all of update
+        //systems that declare non conflicting access may run at the same time
 
         defaultEngine.addSystem(new ColliderSystem(EntityFamily.colliderEF));
         defaultEngine.addSystem(new ScriptSystem(EntityFamily.entityScriptEF));
         defaultEngine.addSystem(new PhysicsSystem(EntityFamily.rigidBodyEF));
         defaultEngine.addSystem(new AnimationSystem(EntityFamily.animationEF));
+        defaultEngine.addSystem(new TransformSystem(EntityFamily.transformEF));
         defaultEngine.addSystem(new RendererSystem(EntityFamily.spriteRendererEF));
         defaultEngine.addSystem(new CameraSystem(EntityFamily.cameraEF));
         defaultEngine.addSystem(new UISystem(EntityFamily.UIElementEF));
@@ -645,6 +1348,16 @@ public final class Engine {
     }
 
 
+    /**
+     * Returns the event bus of this engine. Events published during an update
+     * cycle are delivered once all systems have been updated.
+     *
+     * @return the event bus
+     */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
     public Game getGame() {
         return game;
     }
@@ -654,18 +1367,11 @@ public final class Engine {
         return "Engine{" +
                 "entityList=" + entityList +
                 ", views=" + views +
-                ", commandList=" + commandList +
+                ", commandBuffers=" + commandBuffers +
                 ", engineSystems=" + engineSystems +
                 ", entityListeners=" + entityListeners +
                 ", filteredListeners=" + filteredListeners +
                 ", updating=" + updating +
                 '}';
     }
-
-    /**
-     * Interface for the command pattern.
-     */
-    private interface Command {
-        void execute();
-    }
 }
@@ -0,0 +1,228 @@
+package blank2d.framework.ecs;
+
+import blank2d.framework.Time;
+import blank2d.framework.file.FileSystem;
+import blank2d.util.SampleBuffer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the time each system of an engine spends in {@code update} and
+ * {@code fixedUpdate}, as well as the time spent executing the commands queued
+ * during an update cycle. Samples are kept in preallocated ring buffers, so
+ * statistics cover a sliding window of the most recent cycles.
+ *
+ * <p>
+ * A profiler is created by {@link Engine#setProfilingEnabled(boolean)}. The
+ * statistics should be queried between update cycles.
+ * </p>
+ */
+public final class EngineProfiler {
+
+    /** The default number of samples kept per system and phase. */
+    public static final int DEFAULT_WINDOW_SIZE = 300;
+
+    private final int windowSize;
+
+    /** The update and fixed update samples of each system. */
+    private final Map<EngineSystem, SampleBuffer[]> systemSamples = new LinkedHashMap<>();
+
+    private final SampleBuffer updateCommandSamples;
+    private final SampleBuffer fixedUpdateCommandSamples;
+
+    EngineProfiler(int windowSize) {
+        this.windowSize = windowSize;
+        updateCommandSamples = new SampleBuffer(windowSize);
+        fixedUpdateCommandSamples = new SampleBuffer(windowSize);
+    }
+
+    void addSystem(EngineSystem system) {
+        systemSamples.put(system, new SampleBuffer[] { new SampleBuffer(windowSize), new SampleBuffer(windowSize) });
+    }
+
+    void removeSystem(EngineSystem system) {
+        systemSamples.remove(system);
+    }
+
+    /**
+     * Records the duration of one update of a system. Systems running
+     * concurrently record into their own buffers.
+     */
+    void record(EngineSystem system, boolean fixed, long nanos) {
+        systemSamples.get(system)[fixed ? 1 : 0].add(nanos);
+    }
+
+    void recordCommands(boolean fixed, long nanos) {
+        (fixed ? fixedUpdateCommandSamples : updateCommandSamples).add(nanos);
+    }
+
+    /**
+     * Returns the durations of the {@code update} calls of a system in
+     * nanoseconds.
+     *
+     * @param system
+     *            the system
+     * @return the samples of the system
+     * @throws IllegalArgumentException
+     *             if the system is not part of the profiled engine
+     */
+    public SampleBuffer getUpdateSamples(EngineSystem system) throws IllegalArgumentException {
+        return getSamples(system)[0];
+    }
+
+    /**
+     * Returns the durations of the {@code fixedUpdate} calls of a system in
+     * nanoseconds.
+     *
+     * @param system
+     *            the system
+     * @return the samples of the system
+     * @throws IllegalArgumentException
+     *             if the system is not part of the profiled engine
+     */
+    public SampleBuffer getFixedUpdateSamples(EngineSystem system) throws IllegalArgumentException {
+        return getSamples(system)[1];
+    }
+
+    private SampleBuffer[] getSamples(EngineSystem system) {
+        SampleBuffer[] samples = systemSamples.get(system);
+        if (samples == null) throw new IllegalArgumentException("system is unknown");
+        return samples;
+    }
+
+    /**
+     * Returns the durations of executing the commands queued during
+     * {@code update} in nanoseconds.
+     *
+     * @return the command samples
+     */
+    public SampleBuffer getUpdateCommandSamples() {
+        return updateCommandSamples;
+    }
+
+    /**
+     * Returns the durations of executing the commands queued during
+     * {@code fixedUpdate} in nanoseconds.
+     *
+     * @return the command samples
+     */
+    public SampleBuffer getFixedUpdateCommandSamples() {
+        return fixedUpdateCommandSamples;
+    }
+
+    /**
+     * Returns the number of samples kept per system and phase.
+     *
+     * @return the window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public void clear() {
+        for (SampleBuffer[] samples : systemSamples.values()) {
+            samples[0].clear();
+            samples[1].clear();
+        }
+        updateCommandSamples.clear();
+        fixedUpdateCommandSamples.clear();
+    }
+
+    /**
+     * Writes the current statistics as CSV, one row per system and phase, with
+     * all durations in milliseconds.
+     *
+     * @param filePath
+     *            the file path relative to the local directory of the
+     *            {@link FileSystem}
+     * @return {@code true} if the file has been written
+     */
+    public boolean writeCsv(String filePath) {
+        BufferedWriter writer = FileSystem.getWriter(filePath, false);
+        if (writer == null) return false;
+        try (BufferedWriter w = writer) {
+            w.write("name,phase,samples,min,mean,p95,p99");
+            w.newLine();
+            for (Map.Entry<EngineSystem, SampleBuffer[]> entry : systemSamples.entrySet()) {
+                writeCsvRow(w, getName(entry.getKey()), "update", entry.getValue()[0]);
+                writeCsvRow(w, getName(entry.getKey()), "fixedUpdate", entry.getValue()[1]);
+            }
+            writeCsvRow(w, "commands", "update", updateCommandSamples);
+            writeCsvRow(w, "commands", "fixedUpdate", fixedUpdateCommandSamples);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private static void writeCsvRow(BufferedWriter w, String name, String phase, SampleBuffer samples) throws IOException {
+        w.write(name + "," + phase + "," + samples.size() + "," + toMilli(samples.getMin()) + "," + toMilli(samples.getMean())
+                + "," + toMilli(samples.getPercentile(95)) + "," + toMilli(samples.getPercentile(99)));
+        w.newLine();
+    }
+
+    /**
+     * Writes the current statistics as a JSON array, one object per system and
+     * phase, with all durations in milliseconds.
+     *
+     * @param filePath
+     *            the file path relative to the local directory of the
+     *            {@link FileSystem}
+     * @return {@code true} if the file has been written
+     */
+    public boolean writeJson(String filePath) {
+        BufferedWriter writer = FileSystem.getWriter(filePath, false);
+        if (writer == null) return false;
+        try (BufferedWriter w = writer) {
+            w.write("[");
+            boolean first = true;
+            for (Map.Entry<EngineSystem, SampleBuffer[]> entry : systemSamples.entrySet()) {
+                first = writeJsonObject(w, first, getName(entry.getKey()), "update", entry.getValue()[0]);
+                first = writeJsonObject(w, first, getName(entry.getKey()), "fixedUpdate", entry.getValue()[1]);
+            }
+            first = writeJsonObject(w, first, "commands", "update", updateCommandSamples);
+            writeJsonObject(w, first, "commands", "fixedUpdate", fixedUpdateCommandSamples);
+            w.newLine();
+            w.write("]");
+            w.newLine();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private static boolean writeJsonObject(BufferedWriter w, boolean first, String name, String phase, SampleBuffer samples) throws IOException {
+        if (!first) w.write(",");
+        w.newLine();
+        w.write("  {\"name\": \"" + name + "\", \"phase\": \"" + phase + "\", \"samples\": " + samples.size()
+                + ", \"min\": " + toMilli(samples.getMin()) + ", \"mean\": " + toMilli(samples.getMean())
+                + ", \"p95\": " + toMilli(samples.getPercentile(95)) + ", \"p99\": " + toMilli(samples.getPercentile(99)) + "}");
+        return false;
+    }
+
+    private static String getName(EngineSystem system) {
+        String name = system.getClass().getSimpleName();
+        return name.isEmpty() ? system.getClass().getName() : name;
+    }
+
+    private static double toMilli(double nanos) {
+        return Time.nanoToMilli(nanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("EngineProfiler{");
+        for (Map.Entry<EngineSystem, SampleBuffer[]> entry : systemSamples.entrySet()) {
+            s.append(getName(entry.getKey())).append("=").append(toMilli(entry.getValue()[0].getMean())).append("ms, ");
+        }
+        return s.append("commands=").append(toMilli(updateCommandSamples.getMean())).append("ms}").toString();
+    }
+}
@@ -12,6 +12,10 @@
  */
 package blank2d.framework.ecs;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A engine system maintains a certain aspect of the engine.
  * <p>
@@ -21,6 +25,13 @@ package blank2d.framework.ecs;
  * system can be used to realize other tasks that do not directly process
  * entities (e.g. camera management or centralized input processing).
  * </p>
+ *
+ * <p>
+ * Systems can declare the component types and shared resources (e.g. the
+ * screen) they read and write. The engine runs systems whose access does not
+ * conflict concurrently. A system that declares nothing is exclusive and never
+ * runs at the same time as another system.
+ * </p>
  */
 public abstract class EngineSystem {
 
@@ -30,6 +41,18 @@ public abstract class EngineSystem {
     /** A reference to the engine this system belongs to. */
     private Engine engine;
 
+    /** The change tick at the start of the previous and the current run, for update and fixed update. */
+    private final int[] runTicks = new int[2];
+
+    /** The change tick at the start of the previous run of the phase currently running. */
+    private int lastRunTick;
+
+    /** The types this system reads, {@code null} as long as no access is declared. */
+    private Set<Class<?>> readTypes;
+
+    /** The types this system writes, {@code null} as long as no access is declared. */
+    private Set<Class<?>> writeTypes;
+
     /**
      * Sets the reference to the engine this system belongs to.
      *
@@ -72,6 +95,115 @@ public abstract class EngineSystem {
         return engine;
     }
 
+    /**
+     * Declares types this system reads during its update methods.
+     *
+     * @param types
+     *            the component types or shared resources that are read
+     */
+    protected final void reads(Class<?>... types) {
+        declareAccess();
+        Collections.addAll(readTypes, types);
+    }
+
+    /**
+     * Declares types this system modifies during its update methods. Writing a
+     * type implies reading it.
+     *
+     * @param types
+     *            the component types or shared resources that are modified
+     */
+    protected final void writes(Class<?>... types) {
+        declareAccess();
+        Collections.addAll(writeTypes, types);
+    }
+
+    private void declareAccess() {
+        if (readTypes == null) {
+            readTypes = new HashSet<>();
+            writeTypes = new HashSet<>();
+        }
+        if (engine != null) engine.systemsChanged();
+    }
+
+    /**
+     * Returns whether this system has declared the types it accesses.
+     *
+     * @return {@code false} if this system is exclusive
+     */
+    public final boolean declaresAccess() {
+        return readTypes != null;
+    }
+
+    /**
+     * Returns the types this system reads.
+     *
+     * @return an unmodifiable set of the read types
+     */
+    public final Set<Class<?>> getReadTypes() {
+        return readTypes == null ? Collections.emptySet() : Collections.unmodifiableSet(readTypes);
+    }
+
+    /**
+     * Returns the types this system writes.
+     *
+     * @return an unmodifiable set of the written types
+     */
+    public final Set<Class<?>> getWriteTypes() {
+        return writeTypes == null ? Collections.emptySet() : Collections.unmodifiableSet(writeTypes);
+    }
+
+    /**
+     * Tests if this system must not run at the same time as the specified
+     * system. Two systems conflict if one of them is exclusive or writes a type
+     * the other one accesses. Types are related if one is assignable to the
+     * other.
+     *
+     * @param other
+     *            the other system
+     * @return {@code true} if both systems conflict
+     */
+    final boolean conflictsWith(EngineSystem other) {
+        if (!declaresAccess() || !other.declaresAccess()) return true;
+        return overlaps(writeTypes, other.writeTypes) || overlaps(writeTypes, other.readTypes)
+                || overlaps(readTypes, other.writeTypes);
+    }
+
+    private static boolean overlaps(Set<Class<?>> a, Set<Class<?>> b) {
+        for (Class<?> x : a) {
+            for (Class<?> y : b) {
+                if (x.isAssignableFrom(y) || y.isAssignableFrom(x)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the change tick of the engine when this system starts to run.
+     *
+     * @param fixed
+     *            {@code true} for fixed updates
+     * @param tick
+     *            the current change tick
+     */
+    final void beginRun(boolean fixed, int tick) {
+        int phase = fixed ? 1 : 0;
+        lastRunTick = runTicks[phase];
+        runTicks[phase] = tick;
+    }
+
+    /**
+     * Returns the change tick of the engine when the current update method of
+     * this system ran the previous time. Components with a greater change tick
+     * have changed since. Changes made while the system ran the previous time
+     * are reported again.
+     *
+     * @return the change tick, 0 if this is the first run
+     */
+    public final int getLastRunTick() {
+        return lastRunTick;
+    }
+
     /**
      * Invoked when this system is added to an engine. This method can be
      * overwritten by derived classes to provide initialization code.
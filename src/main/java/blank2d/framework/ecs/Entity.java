@@ -13,23 +13,53 @@
 package blank2d.framework.ecs;
 
 import blank2d.framework.ecs.component.physics2d.Transform;
+import blank2d.util.BitMask;
 
 import java.util.*;
 
 /**
- * The component container class for entities.
+ * The component container class for entities. Entities are compared by
+ * identity.
  */
 public final class Entity {
 
     /** The list of components this entity is composed of. */
-    private final List<Component> componentList = new ArrayList<>();
+    private final List<Component> componentList;
 
-    /** Provides fast access to components based on its type. */
-    private final Map<Class<?>, Component> cache = new HashMap<>();
+    /** The combined {@link ComponentType} signature of the components of this entity. */
+    private final BitMask signature = new BitMask();
+
+    /** The archetype storing the components while this entity is added to an engine. */
+    Archetype archetype;
+
+    /** The index of this entity within its archetype. */
+    int archetypeIndex = -1;
+
+    /** Indicates that the components changed and the archetype is outdated until the engine moves this entity. */
+    boolean archetypePending;
+
+    /** Indicates that this entity has been suspended and is not stored in an archetype. */
+    boolean dormant;
 
     /** Unique id for this entity */
     private String id;
 
+    /** The index of this entity within each engine view, indexed by view id, -1 if not part of the view. */
+    private int[] viewIndices = new int[0];
+
+    /** The generational handle issued by the engine this entity has been added to. */
+    int handle = EntityHandle.NULL;
+
+    /** The pool this entity returns to when it is removed from its engine. */
+    EntityPool pool;
+
+    /** The components this entity had when its pool created it. */
+    Component[] poolComponents;
+
+    /** The tag and layer this entity had when its pool created it. */
+    Tag poolTag;
+    Layer poolLayer;
+
     /** Entity tag */
     private Tag tag = Tag.UNTAGGED;
 
@@ -43,9 +73,21 @@ public final class Entity {
     private Engine engine;
 
     public Entity(){
+        componentList = new ArrayList<>();
         addComponent(new Transform());
     }
 
+    /**
+     * Creates an entity without any component, not even a transform. Used by
+     * prefabs, which add a copy of their own transform.
+     *
+     * @param numOfComponents
+     *            the number of components that will be added
+     */
+    Entity(int numOfComponents) {
+        componentList = new ArrayList<>(numOfComponents);
+    }
+
     /**
      * Sets the references to the engine this entity belongs to. This method is
      * called by the engine when this entity is added.
@@ -84,7 +126,7 @@ public final class Entity {
      * @return {@code true} if the requested component is part of this entity
      */
     public boolean hasComponent(Class<?> tClass) {
-        if (cache.containsKey(tClass)) return true;
+        if (archetype != null && !archetypePending) return archetype.getColumnIndex(tClass) != Archetype.NOT_FOUND;
         for (Component component : componentList) {
             if (tClass.isInstance(component)) return true;
         }
@@ -158,14 +200,15 @@ public final class Entity {
      *             if no component with the specified type could be found
      */
     public <T> T getComponent(Class<T> tClass) throws IllegalArgumentException {
-        Component cached = cache.get(tClass);
-        if (cached != null) return tClass.cast(cached);
+        if (archetype != null && !archetypePending) {
+            int column = archetype.getColumnIndex(tClass);
+            if (column >= 0) return tClass.cast(archetype.getComponent(archetypeIndex, column));
+            if (column == Archetype.NOT_FOUND) throw new IllegalArgumentException("component not found " + tClass.getName());
+        }
 
+        // not stored in an archetype yet or more than one component type matches
         for (Component component : componentList) {
-            if (tClass.isInstance(component)) {
-                cache.put(tClass, component);
-                return tClass.cast(component);
-            }
+            if (tClass.isInstance(component)) return tClass.cast(component);
         }
         throw new IllegalArgumentException("component not found " + tClass.getName());
     }
@@ -192,8 +235,9 @@ public final class Entity {
     }
 
     /**
-     * Adds the specified component to this entity. Component cannot be added if
-     * this entity has already been added to an engine and activated.
+     * Adds the specified component to this entity. If this entity has already
+     * been added to an engine the component gets activated immediately, the
+     * engine views are updated once the current update cycle is complete.
      *
      * @param component
      *            the component to be added
@@ -203,11 +247,135 @@ public final class Entity {
         if (component.getEntity() != null) throw new IllegalArgumentException("component already attached an entity");
         componentList.add(component);
         component.setEntity(this);
+        signature.or(ComponentType.getSignature(component.getClass()));
+        if (engine != null) {
+            component.changeTick = engine.getChangeTick();
+            engine.componentsChanged(this);
+        }
 
         //could change this so that components can be added on the fly
         if (isActivated() && !component.isActivated()) component.activateInternal();
     }
 
+    /**
+     * Removes the specified component from this entity. If this entity has been
+     * added to an engine and the engine is currently updating, the component
+     * stays attached until the update cycle is complete. The component gets
+     * deactivated and the engine views are updated accordingly.
+     *
+     * @param component
+     *            the component to be removed
+     * @throws IllegalArgumentException
+     *             if the component is not attached to this entity
+     */
+    public void removeComponent(Component component) throws IllegalArgumentException {
+        if (component.getEntity() != this) throw new IllegalArgumentException("component not attached to this entity");
+        if (engine != null) {
+            engine.removeComponent(this, component);
+        } else {
+            detachComponent(component);
+        }
+    }
+
+    /**
+     * Removes the first component of the specified type from this entity.
+     *
+     * @param tClass
+     *            the class or interface the component must implement
+     * @throws IllegalArgumentException
+     *             if no component with the specified type could be found
+     * @see #removeComponent(Component)
+     */
+    public void removeComponent(Class<?> tClass) throws IllegalArgumentException {
+        removeComponent((Component) getComponent(tClass));
+    }
+
+    /**
+     * The method that actually removes a component from this entity.
+     *
+     * @param component
+     *            the component to be removed
+     */
+    void detachComponent(Component component) {
+        if (component.isActivated()) component.deactivateInternal();
+        componentList.remove(component);
+        component.setEntity(null);
+
+        signature.clear();
+        for (Component c : componentList) {
+            signature.or(ComponentType.getSignature(c.getClass()));
+        }
+    }
+
+    /**
+     * Tests if a component of the specified type changed after the specified
+     * tick.
+     *
+     * @param tClass
+     *            the class or interface of the components
+     * @param tick
+     *            the change tick to compare with
+     * @return {@code true} if a matching component has a greater change tick
+     */
+    boolean changedSince(Class<?> tClass, int tick) {
+        if (archetype != null && !archetypePending) {
+            int column = archetype.getColumnIndex(tClass);
+            if (column >= 0) return archetype.getComponent(archetypeIndex, column).changeTick > tick;
+            if (column == Archetype.NOT_FOUND) return false;
+        }
+        for (Component component : componentList) {
+            if (tClass.isInstance(component) && component.changeTick > tick) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the combined {@link ComponentType} signature of the components of
+     * this entity. The returned mask must not be modified.
+     *
+     * @return the signature
+     */
+    public BitMask getSignature() {
+        return signature;
+    }
+
+    /**
+     * Returns the components of this entity in the order they have been added.
+     *
+     * @return the component list
+     */
+    List<Component> getComponentList() {
+        return componentList;
+    }
+
+    /**
+     * Returns the index of this entity within the specified view.
+     *
+     * @param viewId
+     *            the id of the view
+     * @return the index or -1 if this entity is not part of the view
+     */
+    int getViewIndex(int viewId) {
+        return viewId < viewIndices.length ? viewIndices[viewId] : -1;
+    }
+
+    /**
+     * Stores the index of this entity within the specified view.
+     *
+     * @param viewId
+     *            the id of the view
+     * @param idx
+     *            the index or -1 if this entity is no longer part of the view
+     */
+    void setViewIndex(int viewId, int idx) {
+        if (viewId >= viewIndices.length) {
+            int oldLength = viewIndices.length;
+            viewIndices = Arrays.copyOf(viewIndices, Math.max(viewId + 1, oldLength * 2));
+            Arrays.fill(viewIndices, oldLength, viewIndices.length, -1);
+        }
+        viewIndices[viewId] = idx;
+    }
+
     /**
      * removes this entity from the engine.
      */
@@ -268,7 +436,10 @@ public final class Entity {
     }
 
     public void setTag(Tag tag) {
+        if (tag == null) throw new NullPointerException("tag must not be null");
+        if (this.tag == tag) return;
         this.tag = tag;
+        if (engine != null) engine.indexesChanged(this);
     }
 
     public String getId() {
@@ -276,7 +447,34 @@ public final class Entity {
     }
 
     public void setId(String id) {
+        String oldId = this.id;
         this.id = id;
+        if (engine != null) engine.entityIdChanged(this, oldId);
+    }
+
+    /**
+     * Returns the generational handle of this entity. The handle is issued when
+     * this entity is added to an engine and can be resolved in constant time
+     * with {@link Engine#getEntity(int)}. Once this entity is removed the
+     * handle becomes stale.
+     *
+     * @return the handle or {@link EntityHandle#NULL} if this entity has not
+     *         been added to an engine
+     */
+    public int getHandle() {
+        return handle;
+    }
+
+    /**
+     * Returns {@code true} if this entity has been suspended by its engine.
+     * Dormant entities keep their components but are not part of any entity
+     * family, so systems do not process them.
+     *
+     * @return {@code true} if this entity is dormant
+     * @see Engine#suspendEntity(Entity)
+     */
+    public boolean isDormant() {
+        return dormant;
     }
 
     public Layer getLayer() {
@@ -284,7 +482,10 @@ public final class Entity {
     }
 
     public void setLayer(Layer layer) {
+        if (layer == null) throw new NullPointerException("layer must not be null");
+        if (this.layer == layer) return;
         this.layer = layer;
+        if (engine != null) engine.indexesChanged(this);
     }
 
     @Override
@@ -297,24 +498,4 @@ public final class Entity {
                 ", componentList=" + componentList +
                 '}';
     }
-
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Entity entity = (Entity) o;
-        return isActivated() == entity.isActivated() &&
-                componentList.equals(entity.componentList) &&
-                cache.equals(entity.cache) &&
-                getId().equals(entity.getId()) &&
-                getTag() == entity.getTag() &&
-                getLayer() == entity.getLayer() &&
-                getEngine().equals(entity.getEngine());
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(componentList, cache, getId(), getTag(), getLayer(), isActivated(), getEngine());
-    }
 }
-
@@ -14,22 +14,37 @@ package blank2d.framework.ecs;
 
 import blank2d.framework.ecs.component.ui.UIElement;
 import blank2d.framework.ecs.component.physics2d.RigidBody;
+import blank2d.framework.ecs.component.physics2d.Transform;
 import blank2d.framework.ecs.component.physics2d.collider.Collider;
 import blank2d.framework.ecs.component.rendering.AnimationController;
 import blank2d.framework.ecs.component.rendering.Camera;
 import blank2d.framework.ecs.component.rendering.SpriteRenderer;
 import blank2d.framework.ecs.component.script.EntityScript;
 
+import blank2d.util.BitMask;
+
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
 
 /**
  * An entity family specified criteria which must be met by an entity in order
- * to be considered to be a member of this family. This version currently
- * supports a list of component types as criterion, where all types must exists
- * within the entity (and operation).
+ * to be considered to be a member of this family. A family supports three
+ * clauses of component types:
+ *
+ * <ul>
+ * <li>{@code all}: all types must exist within the entity (and operation).</li>
+ * <li>{@code any}: at least one of the types must exist within the entity (or
+ * operation), ignored if empty.</li>
+ * <li>{@code exclude}: none of the types may exist within the entity.</li>
+ * </ul>
+ *
+ * <p>
+ * Each clause is kept as a bit mask of {@link ComponentType} indices, so
+ * testing an entity or archetype signature takes a few bitwise operations.
+ * </p>
  *
  * <p>
  * <strong>Note</strong>: It is safe to compare different instance of Family
@@ -42,7 +57,8 @@ import java.util.Set;
  * An entity family can be created by using the static factory method
  * {@code create} which takes an arbitrary number of parameters that specified
  * the different types of components this family must contain in order to accept
- * an entity as member.
+ * an entity as member. Families are immutable, the clause methods return a new
+ * family.
  * </p>
  * <p>
  * <strong>Example</strong>
@@ -52,15 +68,30 @@ import java.util.Set;
  * Family f1 = Family.create(Pose.class, Visual.class);
  * Family f2 = Family.create(Pose.class, Collider.class);
  * Family f3 = Family.create(Pose.class, ItemLogic.class, Destroyable.class);
+ * Family f4 = Family.create(Pose.class).any(Visual.class, Light.class).exclude(Hidden.class);
  * </pre>
  *
  */
 public class EntityFamily {
     /** The set of types an entity must contain as component. */
-    private final Set<Class<?>> types = new HashSet<>();
+    private final Set<Class<?>> allTypes = new HashSet<>();
+
+    /** The set of types an entity must contain at least one of as component. */
+    private final Set<Class<?>> anyTypes = new HashSet<>();
+
+    /** The set of types an entity must not contain as component. */
+    private final Set<Class<?>> excludedTypes = new HashSet<>();
+
+    private BitMask allMask;
+    private BitMask anyMask;
+    private BitMask excludeMask;
+
+    /** The hash code, computed once the types are final since families are map keys looked up every frame. */
+    private int hash;
 
 
 
+    public static EntityFamily transformEF = EntityFamily.create(Transform.class);
     public static EntityFamily colliderEF = EntityFamily.create(Collider.class);
     public static EntityFamily entityScriptEF = EntityFamily.create(EntityScript.class);
     public static EntityFamily rigidBodyEF = EntityFamily.create(RigidBody.class);
@@ -79,7 +110,8 @@ public class EntityFamily {
      */
     public static EntityFamily create(Class<?> ...types){
         EntityFamily family = new EntityFamily();
-        family.types.addAll(Arrays.asList(types));
+        family.allTypes.addAll(Arrays.asList(types));
+        family.updateMasks();
         return family;
     }
 
@@ -91,6 +123,70 @@ public class EntityFamily {
 
     }
 
+    /**
+     * Returns a new family that additionally requires all of the specified
+     * types.
+     *
+     * @param types
+     *            the types of components an entity must contain
+     * @return the new instance
+     */
+    public EntityFamily all(Class<?> ...types){
+        EntityFamily family = copy();
+        family.allTypes.addAll(Arrays.asList(types));
+        family.updateMasks();
+        return family;
+    }
+
+    /**
+     * Returns a new family that additionally requires at least one of the
+     * specified types.
+     *
+     * @param types
+     *            the types of components an entity must contain at least one of
+     * @return the new instance
+     */
+    public EntityFamily any(Class<?> ...types){
+        EntityFamily family = copy();
+        family.anyTypes.addAll(Arrays.asList(types));
+        family.updateMasks();
+        return family;
+    }
+
+    /**
+     * Returns a new family that rejects entities containing any of the
+     * specified types.
+     *
+     * @param types
+     *            the types of components an entity must not contain
+     * @return the new instance
+     */
+    public EntityFamily exclude(Class<?> ...types){
+        EntityFamily family = copy();
+        family.excludedTypes.addAll(Arrays.asList(types));
+        family.updateMasks();
+        return family;
+    }
+
+    private EntityFamily copy(){
+        EntityFamily family = new EntityFamily();
+        family.allTypes.addAll(allTypes);
+        family.anyTypes.addAll(anyTypes);
+        family.excludedTypes.addAll(excludedTypes);
+        return family;
+    }
+
+    private void updateMasks(){
+        allMask = ComponentType.maskOf(allTypes);
+        anyMask = ComponentType.maskOf(anyTypes);
+        excludeMask = ComponentType.maskOf(excludedTypes);
+        final int prime = 31;
+        hash = 7;
+        hash = prime * hash + allTypes.hashCode();
+        hash = prime * hash + anyTypes.hashCode();
+        hash = prime * hash + excludedTypes.hashCode();
+    }
+
     /**
      * Tests if the specified entity is a member of this family.
      *
@@ -99,19 +195,65 @@ public class EntityFamily {
      * @return {@code true} if the entity is a member, {@code false} otherwise
      */
     public boolean isMember(Entity entity){
-        for(Class<?> type : types){
-            if(!entity.hasComponent(type)){
-                return false;
-            }
-        }
-        return true;
+        return matches(entity.getSignature());
+    }
+
+    /**
+     * Tests if the entities stored in the specified archetype are members of
+     * this family.
+     *
+     * @param archetype
+     *            the archetype to be tested
+     * @return {@code true} if the entities of the archetype are members,
+     *         {@code false} otherwise
+     */
+    public boolean isMember(Archetype archetype){
+        return matches(archetype.getSignature());
+    }
+
+    /**
+     * Tests if the specified component signature satisfies all clauses of
+     * this family.
+     *
+     * @param signature
+     *            the signature as built by {@link ComponentType}
+     * @return {@code true} if the signature matches, {@code false} otherwise
+     */
+    public boolean matches(BitMask signature){
+        return signature.containsAll(allMask)
+                && (anyTypes.isEmpty() || signature.intersects(anyMask))
+                && !signature.intersects(excludeMask);
+    }
+
+    /**
+     * Returns the types an entity must contain as component.
+     *
+     * @return an unmodifiable set of types
+     */
+    public Set<Class<?>> getAllTypes() {
+        return Collections.unmodifiableSet(allTypes);
+    }
+
+    /**
+     * Returns the types an entity must contain at least one of as component.
+     *
+     * @return an unmodifiable set of types
+     */
+    public Set<Class<?>> getAnyTypes() {
+        return Collections.unmodifiableSet(anyTypes);
+    }
+
+    /**
+     * Returns the types an entity must not contain as component.
+     *
+     * @return an unmodifiable set of types
+     */
+    public Set<Class<?>> getExcludedTypes() {
+        return Collections.unmodifiableSet(excludedTypes);
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int hash = 7;
-        hash = prime * hash + types.hashCode();
         return hash;
     }
 
@@ -124,13 +266,15 @@ public class EntityFamily {
         if (getClass() != obj.getClass())
             return false;
         EntityFamily other = (EntityFamily) obj;
-        return types.equals(other.types);
+        return allTypes.equals(other.allTypes) && anyTypes.equals(other.anyTypes) && excludedTypes.equals(other.excludedTypes);
     }
 
     @Override
     public String toString() {
         return "EntityFamily{" +
-                "types=" + types +
+                "all=" + allTypes +
+                ", any=" + anyTypes +
+                ", exclude=" + excludedTypes +
                 '}';
     }
 }
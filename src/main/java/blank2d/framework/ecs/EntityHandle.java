@@ -0,0 +1,85 @@
+package blank2d.framework.ecs;
+
+/**
+ * Helper methods for generational entity handles. A handle is a compact
+ * {@code int} issued by the engine when an entity is added. It encodes the
+ * index of the slot the entity occupies and the generation of that slot.
+ * Slots are reused once their entity has been removed, the generation is
+ * advanced on every reuse so that handles of removed entities can be detected
+ * as stale.
+ *
+ * <p>
+ * <strong>Example</strong>
+ * </p>
+ *
+ * <pre>
+ * int target = enemy.getHandle();
+ * //...
+ * Entity e = engine.getEntity(target);
+ * if (e != null) {
+ *     // still alive
+ * }
+ * </pre>
+ */
+public final class EntityHandle {
+
+    /** A handle that never refers to an entity. */
+    public static final int NULL = 0;
+
+    /** The number of bits used for the slot index. */
+    static final int INDEX_BITS = 20;
+
+    /** The maximum number of slots, and therefore entities, of a single engine. */
+    static final int MAX_INDEX = (1 << INDEX_BITS) - 1;
+
+    /** The largest generation before it wraps around, generation 0 is reserved for {@link #NULL}. */
+    static final int MAX_GENERATION = (1 << (Integer.SIZE - INDEX_BITS)) - 1;
+
+    private EntityHandle() { }
+
+    /**
+     * Creates a handle from the specified slot index and generation.
+     *
+     * @param index
+     *            the slot index
+     * @param generation
+     *            the generation of the slot
+     * @return the handle
+     */
+    static int of(int index, int generation) {
+        return (generation << INDEX_BITS) | index;
+    }
+
+    /**
+     * Returns the slot index encoded in the specified handle.
+     *
+     * @param handle
+     *            the entity handle
+     * @return the slot index
+     */
+    public static int index(int handle) {
+        return handle & MAX_INDEX;
+    }
+
+    /**
+     * Returns the generation encoded in the specified handle.
+     *
+     * @param handle
+     *            the entity handle
+     * @return the generation
+     */
+    public static int generation(int handle) {
+        return handle >>> INDEX_BITS;
+    }
+
+    /**
+     * Returns a readable representation of the specified handle.
+     *
+     * @param handle
+     *            the entity handle
+     * @return the string representation
+     */
+    public static String toString(int handle) {
+        return handle == NULL ? "EntityHandle{NULL}" : "EntityHandle{index=" + index(handle) + ", generation=" + generation(handle) + '}';
+    }
+}
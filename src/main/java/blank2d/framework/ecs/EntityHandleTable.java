@@ -0,0 +1,104 @@
+package blank2d.framework.ecs;
+
+import java.util.Arrays;
+
+/**
+ * Issues and resolves the generational handles of the entities of an engine.
+ * Freed slots are reused in LIFO order and advance their generation, so a
+ * handle of a removed entity never resolves to the entity that reused its
+ * slot.
+ */
+final class EntityHandleTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The entity occupying each slot, {@code null} for free slots. */
+    private Entity[] entities = new Entity[INITIAL_CAPACITY];
+
+    /** The current generation of each slot. */
+    private int[] generations = new int[INITIAL_CAPACITY];
+
+    /** Stack of free slot indices. */
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int numOfFreeSlots;
+
+    /** The number of slots that have ever been used. */
+    private int numOfSlots;
+
+    /**
+     * Assigns a slot to the specified entity and returns its new handle.
+     *
+     * @param entity
+     *            the entity
+     * @return the handle of the entity
+     * @throws IllegalStateException
+     *             if all slots are in use
+     */
+    int issue(Entity entity) throws IllegalStateException {
+        int index;
+        if (numOfFreeSlots > 0) {
+            index = freeSlots[--numOfFreeSlots];
+        } else {
+            if (numOfSlots > EntityHandle.MAX_INDEX) throw new IllegalStateException("too many entities");
+            index = numOfSlots++;
+            if (index == entities.length) grow();
+            generations[index] = 1;
+        }
+        entities[index] = entity;
+        return EntityHandle.of(index, generations[index]);
+    }
+
+    /**
+     * Frees the slot of the specified handle. The handle and all its copies
+     * become stale.
+     *
+     * @param handle
+     *            the handle to be released
+     */
+    void release(int handle) {
+        if (!isValid(handle)) return;
+        int index = EntityHandle.index(handle);
+        entities[index] = null;
+        generations[index] = generations[index] == EntityHandle.MAX_GENERATION ? 1 : generations[index] + 1;
+        if (numOfFreeSlots == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        freeSlots[numOfFreeSlots++] = index;
+    }
+
+    /**
+     * Returns the entity the specified handle refers to.
+     *
+     * @param handle
+     *            the entity handle
+     * @return the entity or {@code null} if the handle is stale
+     */
+    Entity get(int handle) {
+        return isValid(handle) ? entities[EntityHandle.index(handle)] : null;
+    }
+
+    /**
+     * Tests if the specified handle refers to an entity that is still alive.
+     *
+     * @param handle
+     *            the entity handle
+     * @return {@code true} if the handle is valid, {@code false} if it is
+     *         stale
+     */
+    boolean isValid(int handle) {
+        int index = EntityHandle.index(handle);
+        return handle != EntityHandle.NULL && index < numOfSlots && generations[index] == EntityHandle.generation(handle) && entities[index] != null;
+    }
+
+    /**
+     * Frees all slots. Handles issued before become stale.
+     */
+    void clear() {
+        for (int i = 0; i < numOfSlots; i++) {
+            if (entities[i] != null) release(EntityHandle.of(i, generations[i]));
+        }
+    }
+
+    private void grow() {
+        entities = Arrays.copyOf(entities, entities.length * 2);
+        generations = Arrays.copyOf(generations, generations.length * 2);
+    }
+}
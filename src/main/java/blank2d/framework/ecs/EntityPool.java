@@ -0,0 +1,258 @@
+package blank2d.framework.ecs;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A pool of entities built by a prefab factory. Entities obtained from a pool
+ * return to it as soon as they are removed from their engine, e.g. by
+ * {@link Entity#destroy()}. Recycled entities keep their components, which are
+ * {@link Component#reset() reset} to their initial state, and get back the tag
+ * and layer set by the factory, so spawning high churn entities like
+ * projectiles does not allocate.
+ *
+ * <pre>
+ * EntityPool bullets = new EntityPool(() -&gt; {
+ *     Entity bullet = new Entity();
+ *     bullet.addComponent(new SpriteRenderer("bullet"));
+ *     bullet.addComponent(new RigidBody());
+ *     return bullet;
+ * });
+ *
+ * Entity bullet = bullets.obtain();
+ * bullet.getComponent(Transform.class).setPositionXY(x, y);
+ * engine.addEntity(bullet);
+ * </pre>
+ *
+ * <p>
+ * References to an entity must not be kept once it has been removed from its
+ * engine, the entity may already be in use again. Components added after an
+ * entity has been obtained are detached when it is recycled. An entity that
+ * lost one of the components of its prefab is discarded instead of recycled.
+ * </p>
+ */
+public class EntityPool {
+
+    /** The default maximum number of free entities kept by a pool. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final Supplier<Entity> factory;
+    private final int capacity;
+    private final ArrayDeque<Entity> freeEntities = new ArrayDeque<>();
+
+    /** The number of obtained entities that have been recycled before. */
+    private long hits;
+
+    /** The number of obtained entities that had to be created. */
+    private long misses;
+
+    /** The number of entities that could not be recycled. */
+    private long discarded;
+
+    /**
+     * Creates a new pool keeping at most {@link #DEFAULT_CAPACITY} free
+     * entities.
+     *
+     * @param factory
+     *            creates new entities that are not added to an engine
+     * @throws NullPointerException
+     *             if the factory is null
+     */
+    public EntityPool(Supplier<Entity> factory) {
+        this(factory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new pool.
+     *
+     * @param factory
+     *            creates new entities that are not added to an engine
+     * @param capacity
+     *            the maximum number of free entities kept by this pool
+     * @throws NullPointerException
+     *             if the factory is null
+     * @throws IllegalArgumentException
+     *             if the capacity is negative
+     */
+    public EntityPool(Supplier<Entity> factory, int capacity) {
+        if (factory == null) throw new NullPointerException("factory must not be null");
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative");
+        this.factory = factory;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a free entity of this pool, a new entity is created if the pool
+     * is empty. The entity has not been added to an engine.
+     *
+     * @return the entity
+     * @throws IllegalStateException
+     *             if the factory returns an entity that belongs to an engine
+     *             or to another pool
+     */
+    public synchronized Entity obtain() throws IllegalStateException {
+        Entity entity = freeEntities.pollLast();
+        if (entity != null) {
+            hits++;
+            return entity;
+        }
+        misses++;
+        return create();
+    }
+
+    /**
+     * Fills this pool with new entities until it holds the specified number of
+     * free entities or its capacity is reached.
+     *
+     * @param count
+     *            the number of free entities
+     */
+    public synchronized void prewarm(int count) {
+        int target = Math.min(count, capacity);
+        while (freeEntities.size() < target) {
+            freeEntities.addLast(create());
+        }
+    }
+
+    /**
+     * Returns an obtained entity that has never been added to an engine to this
+     * pool.
+     *
+     * @param entity
+     *            the entity to be returned
+     * @throws IllegalArgumentException
+     *             if the entity does not belong to this pool or is part of an
+     *             engine
+     */
+    public synchronized void free(Entity entity) throws IllegalArgumentException {
+        if (entity.pool != this) throw new IllegalArgumentException("entity does not belong to this pool");
+        if (entity.getEngine() != null) throw new IllegalArgumentException("entity is part of an engine");
+        if (freeEntities.contains(entity)) throw new IllegalArgumentException("entity is already free");
+        recycle(entity);
+    }
+
+    /**
+     * Resets the specified entity and keeps it for reuse. This method is
+     * called by the engine when an entity of this pool has been removed.
+     *
+     * @param entity
+     *            the entity to be recycled
+     */
+    synchronized void recycle(Entity entity) {
+        if (freeEntities.size() >= capacity || !restore(entity)) {
+            entity.pool = null;
+            entity.poolComponents = null;
+            entity.poolTag = null;
+            entity.poolLayer = null;
+            discarded++;
+            return;
+        }
+        freeEntities.addLast(entity);
+    }
+
+    private boolean restore(Entity entity) {
+        List<Component> componentList = entity.getComponentList();
+        Component[] original = entity.poolComponents;
+        for (int i = componentList.size() - 1; i >= 0; --i) {
+            if (!contains(original, componentList.get(i))) entity.detachComponent(componentList.get(i));
+        }
+        if (componentList.size() != original.length) return false;
+
+        for (Component component : componentList) {
+            component.reset();
+        }
+        entity.setId(null);
+        entity.setTag(entity.poolTag);
+        entity.setLayer(entity.poolLayer);
+        return true;
+    }
+
+    private static boolean contains(Component[] components, Component component) {
+        for (Component c : components) {
+            if (c == component) return true;
+        }
+        return false;
+    }
+
+    private Entity create() {
+        Entity entity = factory.get();
+        if (entity.getEngine() != null) throw new IllegalStateException("factory returned an entity of an engine");
+        if (entity.pool != null) throw new IllegalStateException("factory returned an entity of a pool");
+        entity.pool = this;
+        entity.poolComponents = entity.getComponentList().toArray(new Component[0]);
+        entity.poolTag = entity.getTag();
+        entity.poolLayer = entity.getLayer();
+        return entity;
+    }
+
+    /**
+     * Removes all free entities from this pool.
+     */
+    public synchronized void clear() {
+        for (Entity entity : freeEntities) {
+            entity.pool = null;
+            entity.poolComponents = null;
+            entity.poolTag = null;
+            entity.poolLayer = null;
+        }
+        freeEntities.clear();
+    }
+
+    /**
+     * Returns the number of obtained entities that have been recycled before.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of obtained entities that had to be created.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entities that have been dropped because this pool
+     * was full or their components could not be restored.
+     *
+     * @return the number of discarded entities
+     */
+    public synchronized long getDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Returns the number of free entities kept by this pool.
+     *
+     * @return the number of free entities
+     */
+    public synchronized int getNumOfFreeEntities() {
+        return freeEntities.size();
+    }
+
+    /**
+     * Returns the maximum number of free entities kept by this pool.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EntityPool{" +
+                "free=" + freeEntities.size() +
+                ", capacity=" + capacity +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", discarded=" + discarded +
+                '}';
+    }
+}
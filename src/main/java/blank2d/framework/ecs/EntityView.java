@@ -0,0 +1,117 @@
+package blank2d.framework.ecs;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A dense, unmodifiable list of entities maintained by the engine. Every view
+ * has an id and each entity remembers its index within the views it is part
+ * of, so entities are added and removed in constant time. Removing an entity
+ * moves the last entity of the view into the freed slot, the order of a view
+ * is therefore not stable.
+ *
+ * <p>
+ * Entities are compared by identity.
+ * </p>
+ */
+public final class EntityView extends AbstractList<Entity> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The id of this view, used as index into the view indices of entities. */
+    private final int id;
+
+    private Entity[] entities = new Entity[INITIAL_CAPACITY];
+    private int size;
+
+    EntityView(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public Entity get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        return entities[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Entity)) return false;
+        int idx = ((Entity) o).getViewIndex(id);
+        return idx >= 0 && idx < size && entities[idx] == o;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return contains(o) ? ((Entity) o).getViewIndex(id) : -1;
+    }
+
+    /**
+     * Appends the specified entity to this view.
+     *
+     * @param entity
+     *            the entity to be added
+     */
+    void addEntity(Entity entity) {
+        assert !contains(entity);
+        if (size == entities.length) entities = Arrays.copyOf(entities, size * 2);
+        entities[size] = entity;
+        entity.setViewIndex(id, size++);
+    }
+
+    /**
+     * Removes the specified entity from this view, the last entity of this view
+     * takes its place.
+     *
+     * @param entity
+     *            the entity to be removed
+     * @return {@code true} if the entity was part of this view
+     */
+    boolean removeEntity(Entity entity) {
+        if (!contains(entity)) return false;
+        int idx = entity.getViewIndex(id);
+        Entity last = entities[--size];
+        entities[idx] = last;
+        last.setViewIndex(id, idx);
+        entities[size] = null;
+        entity.setViewIndex(id, -1);
+        return true;
+    }
+
+    /**
+     * Ensures this view can hold the specified number of entities without
+     * growing.
+     *
+     * @param capacity
+     *            the required capacity
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > entities.length) entities = Arrays.copyOf(entities, Math.max(capacity, entities.length * 2));
+    }
+
+    /**
+     * Removes all entities from this view.
+     */
+    void clearEntities() {
+        for (int i = 0; i < size; i++) {
+            entities[i].setViewIndex(id, -1);
+            entities[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the id of this view.
+     *
+     * @return the view id
+     */
+    int getId() {
+        return id;
+    }
+}
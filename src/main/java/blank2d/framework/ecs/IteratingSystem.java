@@ -12,6 +12,7 @@
  */
 package blank2d.framework.ecs;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -25,6 +26,15 @@ public abstract class IteratingSystem extends EngineSystem {
     /** View to the currently present entities which match the family. */
     private List<Entity> entityList;
 
+    /** View to the archetypes whose entities match the family. */
+    private List<Archetype> archetypeList;
+
+    /** The component types whose changes select the processed entities, {@code null} to process all entities. */
+    private Class<?>[] changeFilter;
+
+    /** The changed entities of the current run, reused between runs. */
+    private final List<Entity> changedEntities = new ArrayList<>();
+
     /**
      * Creates a new instance
      *
@@ -43,27 +53,71 @@ public abstract class IteratingSystem extends EngineSystem {
     @Override
     public void addedToEngine(Engine e) {
         entityList = e.getEntities(family);
+        archetypeList = e.getArchetypes(family);
     }
 
     @Override
     public void removedFromEngine(Engine e) {
         entityList = null;
+        archetypeList = null;
     }
 
     @Override
     public void update() {
-        for (Entity entity : entityList) {
+        for (Entity entity : getProcessedEntities()) {
             processEntity(entity);
         }
     }
 
     @Override
     public void fixedUpdate() {
-        for (Entity entity : entityList) {
+        for (Entity entity : getProcessedEntities()) {
             fixedProcessEntity(entity);
         }
     }
 
+    private List<Entity> getProcessedEntities() {
+        if (changeFilter == null) return entityList;
+        changedEntities.clear();
+        return getEngine().getChangedEntities(family, getLastRunTick(), changedEntities, changeFilter);
+    }
+
+    /**
+     * Restricts this system to entities with a component of one of the
+     * specified types that changed since this system ran the previous time.
+     * Entities that have been added since count as changed.
+     *
+     * <p>
+     * Parallel systems skip unchanged archetypes and chunks, but process every
+     * entity of a chunk that contains a change.
+     * </p>
+     *
+     * @param trackedTypes
+     *            the tracked component types, none to process all entities
+     */
+    protected final void setChangeFilter(Class<?>... trackedTypes) {
+        changeFilter = trackedTypes.length == 0 ? null : trackedTypes.clone();
+    }
+
+    /**
+     * Returns the component types whose changes select the processed
+     * entities.
+     *
+     * @return the tracked types or {@code null} if all entities are processed
+     */
+    protected final Class<?>[] getChangeFilter() {
+        return changeFilter;
+    }
+
+    /**
+     * Returns the family of components this system processes.
+     *
+     * @return the entity family
+     */
+    public final EntityFamily getFamily() {
+        return family;
+    }
+
     /**
      * Returns the list of entities this system processes.
      *
@@ -73,6 +127,50 @@ public abstract class IteratingSystem extends EngineSystem {
         return entityList;
     }
 
+    /**
+     * Returns the list of archetypes whose entities this system processes.
+     * Derived systems can iterate the component columns of these archetypes
+     * instead of resolving components entity by entity.
+     *
+     * @return the list of archetypes.
+     */
+    public final List<Archetype> getArchetypeList() {
+        return archetypeList;
+    }
+
+    /**
+     * Processes all entities of the specified archetype one at a time. Derived
+     * systems iterating component columns can use this as fallback for
+     * archetypes where a column cannot be resolved unambiguously.
+     *
+     * @param archetype
+     *            the archetype to process
+     */
+    protected final void processArchetype(Archetype archetype) {
+        for (int c = 0; c < archetype.getNumOfChunks(); c++) {
+            ArchetypeChunk chunk = archetype.getChunk(c);
+            for (int i = 0; i < chunk.size(); i++) {
+                processEntity(chunk.getEntity(i));
+            }
+        }
+    }
+
+    /**
+     * Fixed processes all entities of the specified archetype one at a time.
+     *
+     * @param archetype
+     *            the archetype to process
+     * @see #processArchetype(Archetype)
+     */
+    protected final void fixedProcessArchetype(Archetype archetype) {
+        for (int c = 0; c < archetype.getNumOfChunks(); c++) {
+            ArchetypeChunk chunk = archetype.getChunk(c);
+            for (int i = 0; i < chunk.size(); i++) {
+                fixedProcessEntity(chunk.getEntity(i));
+            }
+        }
+    }
+
     /**
      * Processes one entity of the family.
      *
@@ -0,0 +1,267 @@
+package blank2d.framework.ecs;
+
+import blank2d.framework.WorldContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An engine system that processes a component family on several threads. The
+ * archetype chunks of the family are split into segments of
+ * {@link #getMinChunkSize()} entities, which are processed by the
+ * {@link ForkJoinPool} of the engine. Families smaller than one segment, and the families of
+ * a deterministic engine, are processed on the calling thread.
+ *
+ * <p>
+ * {@code processEntity} and {@code fixedProcessEntity} are called from worker
+ * threads and must only modify the processed entity. Adding or removing
+ * entities and components from a worker thread is safe, these changes are
+ * queued by the engine and applied once the update cycle is complete.
+ * </p>
+ *
+ * <p>
+ * Derived systems can override {@link #processChunk} and
+ * {@link #fixedProcessChunk} to iterate the component columns of a segment
+ * directly.
+ * </p>
+ */
+public abstract class ParallelIteratingSystem extends IteratingSystem {
+
+    /** The default minimum number of entities processed by a single task. */
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 64;
+
+    private ForkJoinPool pool;
+    private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+    private boolean parallelUpdate = true;
+    private boolean parallelFixedUpdate = true;
+
+    /** The segments of the current cycle, reused between cycles. */
+    private Archetype[] segmentArchetypes = new Archetype[16];
+    private ArchetypeChunk[] segmentChunks = new ArchetypeChunk[16];
+    private int[] segmentFrom = new int[16];
+    private int[] segmentTo = new int[16];
+
+    /** The number of entities preceding each segment, with the total at the end. */
+    private int[] segmentOffsets = new int[17];
+    private int numOfSegments;
+
+    /**
+     * Creates a new instance
+     *
+     * @param family
+     *            the family of entity components this system processes
+     * @throws NullPointerException
+     *             in case the specified entity family is null
+     */
+    public ParallelIteratingSystem(EntityFamily family) {
+        super(family);
+    }
+
+    @Override
+    public void update() {
+        process(parallelUpdate, false);
+    }
+
+    @Override
+    public void fixedUpdate() {
+        process(parallelFixedUpdate, true);
+    }
+
+    private void process(boolean parallel, boolean fixed) {
+        buildSegments();
+        if (numOfSegments == 0) return;
+        if (!parallel || getEngine().isDeterministic() || segmentOffsets[numOfSegments] <= minChunkSize) {
+            processSegments(0, numOfSegments, fixed);
+        } else {
+            getPool().invoke(new SegmentTask(0, numOfSegments, fixed, WorldContext.current()));
+        }
+    }
+
+    /**
+     * Splits the archetype chunks of the family into segments holding at most
+     * {@link #getMinChunkSize()} entities.
+     */
+    private void buildSegments() {
+        numOfSegments = 0;
+        Class<?>[] changeFilter = getChangeFilter();
+        int lastRunTick = getLastRunTick();
+        List<Archetype> archetypeList = getArchetypeList();
+        for (int a = 0; a < archetypeList.size(); a++) {
+            Archetype archetype = archetypeList.get(a);
+            if (changeFilter != null && !Engine.changedSince(archetype, changeFilter, lastRunTick)) continue;
+            for (int c = 0; c < archetype.getNumOfChunks(); c++) {
+                ArchetypeChunk chunk = archetype.getChunk(c);
+                if (changeFilter != null && chunk.getChangeTick() <= lastRunTick) continue;
+                for (int from = 0; from < chunk.size(); from += minChunkSize) {
+                    addSegment(archetype, chunk, from, Math.min(chunk.size(), from + minChunkSize));
+                }
+            }
+        }
+    }
+
+    private void addSegment(Archetype archetype, ArchetypeChunk chunk, int from, int to) {
+        if (numOfSegments == segmentChunks.length) {
+            int capacity = numOfSegments * 2;
+            segmentArchetypes = Arrays.copyOf(segmentArchetypes, capacity);
+            segmentChunks = Arrays.copyOf(segmentChunks, capacity);
+            segmentFrom = Arrays.copyOf(segmentFrom, capacity);
+            segmentTo = Arrays.copyOf(segmentTo, capacity);
+            segmentOffsets = Arrays.copyOf(segmentOffsets, capacity + 1);
+        }
+        segmentArchetypes[numOfSegments] = archetype;
+        segmentChunks[numOfSegments] = chunk;
+        segmentFrom[numOfSegments] = from;
+        segmentTo[numOfSegments] = to;
+        segmentOffsets[numOfSegments + 1] = segmentOffsets[numOfSegments] + to - from;
+        numOfSegments++;
+    }
+
+    private void processSegments(int lo, int hi, boolean fixed) {
+        for (int i = lo; i < hi; i++) {
+            if (fixed) {
+                fixedProcessChunk(segmentArchetypes[i], segmentChunks[i], segmentFrom[i], segmentTo[i]);
+            } else {
+                processChunk(segmentArchetypes[i], segmentChunks[i], segmentFrom[i], segmentTo[i]);
+            }
+        }
+    }
+
+    /**
+     * Processes a range of rows of an archetype chunk. The default
+     * implementation calls {@link #processEntity} for each row. This method may
+     * be called from a worker thread.
+     *
+     * @param archetype
+     *            the archetype the chunk belongs to
+     * @param chunk
+     *            the chunk to process
+     * @param from
+     *            the first row, inclusive
+     * @param to
+     *            the last row, exclusive
+     */
+    protected void processChunk(Archetype archetype, ArchetypeChunk chunk, int from, int to) {
+        for (int i = from; i < to; i++) {
+            processEntity(chunk.getEntity(i));
+        }
+    }
+
+    /**
+     * Fixed processes a range of rows of an archetype chunk. The default
+     * implementation calls {@link #fixedProcessEntity} for each row. This
+     * method may be called from a worker thread.
+     *
+     * @param archetype
+     *            the archetype the chunk belongs to
+     * @param chunk
+     *            the chunk to process
+     * @param from
+     *            the first row, inclusive
+     * @param to
+     *            the last row, exclusive
+     */
+    protected void fixedProcessChunk(Archetype archetype, ArchetypeChunk chunk, int from, int to) {
+        for (int i = from; i < to; i++) {
+            fixedProcessEntity(chunk.getEntity(i));
+        }
+    }
+
+    /**
+     * Returns the minimum number of entities processed by a single task.
+     *
+     * @return the minimum chunk size
+     */
+    public final int getMinChunkSize() {
+        return minChunkSize;
+    }
+
+    /**
+     * Sets the minimum number of entities processed by a single task. Families
+     * with fewer entities are processed on the calling thread.
+     *
+     * @param minChunkSize
+     *            the minimum chunk size, must be greater than zero
+     * @throws IllegalArgumentException
+     *             if the chunk size is not greater than zero
+     */
+    public final void setMinChunkSize(int minChunkSize) throws IllegalArgumentException {
+        if (minChunkSize <= 0) throw new IllegalArgumentException("min chunk size must be greater than zero");
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Enables or disables parallel processing for {@code update}.
+     *
+     * @param parallelUpdate
+     *            {@code false} to process entities on the calling thread
+     */
+    public final void setParallelUpdate(boolean parallelUpdate) {
+        this.parallelUpdate = parallelUpdate;
+    }
+
+    /**
+     * Enables or disables parallel processing for {@code fixedUpdate}.
+     *
+     * @param parallelFixedUpdate
+     *            {@code false} to process entities on the calling thread
+     */
+    public final void setParallelFixedUpdate(boolean parallelFixedUpdate) {
+        this.parallelFixedUpdate = parallelFixedUpdate;
+    }
+
+    /**
+     * Returns the pool this system uses.
+     *
+     * @return the pool of this system or the pool of its engine
+     */
+    public final ForkJoinPool getPool() {
+        return pool != null || getEngine() == null ? pool : getEngine().getPool();
+    }
+
+    /**
+     * Sets the pool this system uses.
+     *
+     * @param pool
+     *            the pool or {@code null} to use the pool of the engine
+     */
+    public final void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Splits the segment range in halves until it holds no more than the
+     * minimum chunk size.
+     */
+    private final class SegmentTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+        private final boolean fixed;
+        private final WorldContext context;
+
+        SegmentTask(int lo, int hi, boolean fixed, WorldContext context) {
+            this.lo = lo;
+            this.hi = hi;
+            this.fixed = fixed;
+            this.context = context;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= 1 || segmentOffsets[hi] - segmentOffsets[lo] <= minChunkSize) {
+                WorldContext previous = WorldContext.bind(context);
+                try {
+                    processSegments(lo, hi, fixed);
+                } finally {
+                    WorldContext.bind(previous);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new SegmentTask(lo, mid, fixed, context), new SegmentTask(mid, hi, fixed, context));
+        }
+    }
+}
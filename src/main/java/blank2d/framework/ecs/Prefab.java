@@ -0,0 +1,113 @@
+package blank2d.framework.ecs;
+
+import java.util.List;
+
+/**
+ * A template of a fully configured entity. The components of the template are
+ * copied once when the prefab is created, instances receive copies of these
+ * components made by {@link Component#copy()}. Mutable state is copied while
+ * immutable references such as sprites and animations are shared, so no
+ * constructor code or asset lookup runs when an instance is created.
+ *
+ * <pre>
+ * Entity bullet = new Entity();
+ * bullet.addComponent(new SpriteRenderer("bullet"));
+ * bullet.addComponent(new BoxCollider(new Vector2D(4, 4)));
+ * bullet.addComponent(new RigidBody());
+ * bullet.addComponent(new BulletScript());
+ * Prefab bulletPrefab = new Prefab(bullet);
+ *
+ * List&lt;Entity&gt; bullets = engine.instantiate(bulletPrefab, 10000);
+ * </pre>
+ *
+ * <p>
+ * Instances get the tag and layer of the template but no id, since ids must
+ * be unique. The parent of the template transform is not copied.
+ * </p>
+ *
+ * <p>
+ * Scripts are copied by creating a new instance with their no-arg
+ * constructor, fields set on the template script after construction are not
+ * copied unless the script overrides {@code copy()}.
+ * </p>
+ */
+public final class Prefab {
+
+    private final Component[] components;
+    private final Tag tag;
+    private final Layer layer;
+
+    /**
+     * Creates a new prefab from the current state of the specified entity.
+     * Later changes of the entity do not affect the prefab.
+     *
+     * @param template
+     *            the configured entity, must not be part of an engine
+     * @throws IllegalArgumentException
+     *             if the template is part of an engine
+     * @throws UnsupportedOperationException
+     *             if a component of the template cannot be copied
+     */
+    public Prefab(Entity template) throws IllegalArgumentException, UnsupportedOperationException {
+        if (template.getEngine() != null) throw new IllegalArgumentException("template must not be part of an engine");
+        List<Component> componentList = template.getComponentList();
+        components = new Component[componentList.size()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = copy(componentList.get(i));
+        }
+        tag = template.getTag();
+        layer = template.getLayer();
+    }
+
+    private static Component copy(Component component) {
+        Component copy = component.copy();
+        if (copy == null || copy.getClass() != component.getClass()) {
+            throw new IllegalStateException(component.getClass().getName() + " copied to a component of a different class");
+        }
+        return copy;
+    }
+
+    /**
+     * Creates a new instance of this prefab that has not been added to an
+     * engine.
+     *
+     * @return the new entity
+     * @see Engine#instantiate(Prefab, int)
+     */
+    public Entity instantiate() {
+        Entity entity = new Entity(components.length);
+        for (Component component : components) {
+            entity.addComponent(component.copy());
+        }
+        entity.setTag(tag);
+        entity.setLayer(layer);
+        return entity;
+    }
+
+    public Tag getTag() {
+        return tag;
+    }
+
+    public Layer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Returns the number of components of each instance.
+     *
+     * @return the number of components
+     */
+    public int getNumOfComponents() {
+        return components.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("Prefab{tag=").append(tag).append(", layer=").append(layer).append(", components=[");
+        for (int i = 0; i < components.length; i++) {
+            if (i > 0) s.append(", ");
+            s.append(components[i].getClass().getSimpleName());
+        }
+        return s.append("]}").toString();
+    }
+}
@@ -0,0 +1,215 @@
+package blank2d.framework.ecs;
+
+import blank2d.framework.WorldContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the systems of an engine based on the types they access. A system
+ * depends on every system added before it that it conflicts with, which keeps
+ * the insertion order wherever it matters. The resulting graph is split into
+ * levels, the systems of a level run concurrently and each level waits for the
+ * previous one to complete.
+ *
+ * <p>
+ * The levels are rebuilt lazily whenever the set of systems or their declared
+ * access changes. The tasks running the systems are created with the levels
+ * and reused afterwards, so running the systems does not allocate.
+ * </p>
+ */
+final class SystemScheduler {
+
+    /** The tasks of the systems of each level, in insertion order. */
+    private final List<List<SystemTask>> levels = new ArrayList<>();
+
+    /** The tasks of the enabled systems of the level currently running. */
+    private SystemTask[] running = new SystemTask[0];
+    private int numOfRunning;
+
+    /** The arguments of the current run, read by the tasks on the workers. */
+    private boolean fixed;
+    private EngineProfiler profiler;
+    private WorldContext context;
+
+    /** The number of systems of the running level that have not completed yet. */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** The thread waiting for the systems of the running level. */
+    private volatile Thread waiter;
+
+    /** The first exception thrown by a system of the running level. */
+    private volatile Throwable failure;
+
+    private boolean concurrent = true;
+    private boolean dirty = true;
+
+    /** The change tick, advanced before each system or level of systems runs. */
+    private volatile int changeTick = 1;
+
+    /**
+     * Marks the levels as outdated.
+     */
+    void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Calls {@code update} or {@code fixedUpdate} of all enabled systems.
+     *
+     * @param systems
+     *            the systems in insertion order
+     * @param fixed
+     *            {@code true} to call {@code fixedUpdate}
+     * @param sequential
+     *            {@code true} to run the systems one after the other even if
+     *            this scheduler is concurrent
+     * @param pool
+     *            the pool running the systems of a level
+     * @param profiler
+     *            the profiler recording the duration of each system or
+     *            {@code null}
+     */
+    void run(List<EngineSystem> systems, boolean fixed, boolean sequential, ForkJoinPool pool, EngineProfiler profiler) {
+        if (sequential || !concurrent) {
+            for (int i = 0; i < systems.size(); i++) {
+                EngineSystem s = systems.get(i);
+                if (!s.isEnabled()) continue;
+                s.beginRun(fixed, changeTick++);
+                runSystem(s, fixed, profiler);
+            }
+            return;
+        }
+        if (dirty) build(systems);
+        for (int l = 0; l < levels.size(); l++) {
+            List<SystemTask> level = levels.get(l);
+            numOfRunning = 0;
+            for (int i = 0; i < level.size(); i++) {
+                SystemTask task = level.get(i);
+                if (!task.system.isEnabled()) continue;
+                task.system.beginRun(fixed, changeTick);
+                running[numOfRunning++] = task;
+            }
+            // changes made by the systems of this level are stamped after their start tick
+            changeTick++;
+            if (numOfRunning == 1) {
+                runSystem(running[0].system, fixed, profiler);
+            } else if (numOfRunning > 1) {
+                runLevel(fixed, pool, profiler);
+            }
+        }
+    }
+
+    /**
+     * Runs the systems of the current level on the pool and on the calling
+     * thread. The calling thread runs the first system and every system no
+     * worker has started yet, then parks until the workers are done. Joining
+     * the tasks instead would allocate a wait node each time the calling
+     * thread has to park.
+     */
+    private void runLevel(boolean fixed, ForkJoinPool pool, EngineProfiler profiler) {
+        this.fixed = fixed;
+        this.profiler = profiler;
+        context = WorldContext.current();
+        waiter = Thread.currentThread();
+        pending.set(numOfRunning);
+        for (int i = 1; i < numOfRunning; i++) {
+            running[i].reinitialize();
+            pool.execute(running[i]);
+        }
+        running[0].runSystem();
+        for (int i = numOfRunning - 1; i > 0; i--) {
+            if (running[i].tryUnfork()) running[i].invoke();
+        }
+        while (pending.get() > 0) LockSupport.park(this);
+        // a worker completes its task just after running it, the task must be done before it is reused
+        for (int i = 1; i < numOfRunning; i++) {
+            while (!running[i].isDone()) Thread.yield();
+        }
+        waiter = null;
+        this.profiler = null;
+        context = null;
+
+        Throwable t = failure;
+        if (t == null) return;
+        failure = null;
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        throw new IllegalStateException(t);
+    }
+
+    private void build(List<EngineSystem> systems) {
+        levels.clear();
+        int[] levelOf = new int[systems.size()];
+        for (int j = 0; j < systems.size(); j++) {
+            int level = 0;
+            for (int i = 0; i < j; i++) {
+                if (levelOf[i] >= level && systems.get(i).conflictsWith(systems.get(j))) level = levelOf[i] + 1;
+            }
+            levelOf[j] = level;
+            if (level == levels.size()) levels.add(new ArrayList<>());
+            levels.get(level).add(new SystemTask(systems.get(j)));
+        }
+        int maxLevelSize = 0;
+        for (int l = 0; l < levels.size(); l++) maxLevelSize = Math.max(maxLevelSize, levels.get(l).size());
+        running = new SystemTask[maxLevelSize];
+        dirty = false;
+    }
+
+    private static void runSystem(EngineSystem system, boolean fixed, EngineProfiler profiler) {
+        long start = profiler != null ? System.nanoTime() : 0;
+        if (fixed) {
+            system.fixedUpdate();
+        } else {
+            system.update();
+        }
+        if (profiler != null) profiler.record(system, fixed, System.nanoTime() - start);
+    }
+
+    int getChangeTick() {
+        return changeTick;
+    }
+
+    boolean isConcurrent() {
+        return concurrent;
+    }
+
+    void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Runs one system on a worker of the pool or on the calling thread.
+     */
+    private final class SystemTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final EngineSystem system;
+
+        SystemTask(EngineSystem system) {
+            this.system = system;
+        }
+
+        @Override
+        protected void compute() {
+            runSystem();
+        }
+
+        void runSystem() {
+            // workers of the pool run the systems in the world of the calling thread
+            WorldContext previous = WorldContext.bind(context);
+            try {
+                SystemScheduler.runSystem(system, fixed, profiler);
+            } catch (Throwable t) {
+                if (failure == null) failure = t;
+            } finally {
+                WorldContext.bind(previous);
+                if (pending.decrementAndGet() == 0) LockSupport.unpark(waiter);
+            }
+        }
+    }
+}
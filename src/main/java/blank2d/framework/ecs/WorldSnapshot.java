@@ -0,0 +1,431 @@
+package blank2d.framework.ecs;
+
+import blank2d.framework.ecs.component.physics2d.RigidBody;
+import blank2d.framework.ecs.component.physics2d.Transform;
+import blank2d.framework.ecs.component.physics2d.collider.BoxCollider;
+import blank2d.framework.ecs.component.rendering.SpriteRenderer;
+import blank2d.framework.file.FileSystem;
+import blank2d.util.math.Vector2D;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves and loads the entities of an engine in a compact binary format. A
+ * snapshot holds the id, tag and layer of each entity and all components with
+ * a registered {@link ComponentSerializer}, other components are not saved.
+ * Snapshots are streamed through a {@link FileChannel} with a buffer that is
+ * reused between calls, loaded entities are added to the engine in one pass.
+ *
+ * <pre>
+ * WorldSnapshot snapshot = WorldSnapshot.withDefaultSerializers();
+ * snapshot.register(Health.class, new HealthSerializer());
+ * snapshot.save(engine, "quicksave.bin");
+ * //..
+ * engine.removeAll();
+ * snapshot.load(engine, "quicksave.bin");
+ * </pre>
+ *
+ * <p>
+ * The transform hierarchy and the dormant state of entities are not saved.
+ * Components are identified by their class name, so a snapshot can be loaded
+ * by a snapshot with its serializers registered in a different order.
+ * Components of types that are not registered when loading are skipped.
+ * </p>
+ */
+public final class WorldSnapshot {
+
+    /** The first bytes of every snapshot file. */
+    private static final int MAGIC = 0x42324453;
+
+    private static final short VERSION = 1;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final Tag[] TAGS = Tag.values();
+    private static final Layer[] LAYERS = Layer.values();
+
+    /** The registered serializers in registration order. */
+    private final Map<Class<?>, ComponentSerializer<?>> serializers = new LinkedHashMap<>();
+
+    /** The registered types by class name, used to resolve the type table of a snapshot. */
+    private final Map<String, Class<?>> typeNames = new HashMap<>();
+
+    /** The index of each type within the type table of the snapshot being written. */
+    private final Map<Class<?>, Integer> typeIndices = new HashMap<>();
+
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+
+    /**
+     * Creates a snapshot with serializers for {@link Transform},
+     * {@link RigidBody}, {@link BoxCollider} and {@link SpriteRenderer}.
+     *
+     * @return the new snapshot
+     */
+    public static WorldSnapshot withDefaultSerializers() {
+        WorldSnapshot snapshot = new WorldSnapshot();
+        snapshot.register(Transform.class, new TransformSerializer());
+        snapshot.register(RigidBody.class, new RigidBodySerializer());
+        snapshot.register(BoxCollider.class, new BoxColliderSerializer());
+        snapshot.register(SpriteRenderer.class, new SpriteRendererSerializer());
+        return snapshot;
+    }
+
+    /**
+     * Registers the serializer for components of the specified type. Only
+     * components of exactly this class are saved with it.
+     *
+     * @param <T>
+     *            the type of the components
+     * @param type
+     *            the class of the components
+     * @param serializer
+     *            the serializer
+     * @throws IllegalArgumentException
+     *             if a serializer for the type has already been registered
+     */
+    public <T extends Component> void register(Class<T> type, ComponentSerializer<T> serializer) throws IllegalArgumentException {
+        if (serializer == null) throw new NullPointerException("serializer must not be null");
+        if (serializers.containsKey(type)) throw new IllegalArgumentException("serializer already registered for " + type.getName());
+        serializers.put(type, serializer);
+        typeNames.put(type.getName(), type);
+    }
+
+    /**
+     * Writes all entities of the specified engine, including dormant entities.
+     * This method must not be called during an update cycle.
+     *
+     * @param engine
+     *            the engine to be saved
+     * @param filePath
+     *            the file path relative to the local directory of the
+     *            {@link FileSystem}
+     * @return {@code true} if the snapshot has been written
+     */
+    public boolean save(Engine engine, String filePath) {
+        FileChannel channel = FileSystem.getChannel(filePath, true);
+        if (channel == null) return false;
+        try (FileChannel c = channel) {
+            buffer.clear();
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.putInt(serializers.size());
+            typeIndices.clear();
+            for (Class<?> type : serializers.keySet()) {
+                typeIndices.put(type, typeIndices.size());
+                ensureWritable(c, sizeOf(type.getName()));
+                putString(buffer, type.getName());
+            }
+
+            List<Entity> entities = engine.getEntityList();
+            ensureWritable(c, 4);
+            buffer.putInt(entities.size());
+            for (int i = 0; i < entities.size(); i++) writeEntity(c, entities.get(i));
+
+            buffer.flip();
+            while (buffer.hasRemaining()) c.write(buffer);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeEntity(FileChannel channel, Entity entity) throws IOException {
+        List<Component> components = entity.getComponentList();
+        int numOfComponents = 0;
+        for (Component component : components) {
+            if (serializers.containsKey(component.getClass())) numOfComponents++;
+        }
+        ensureWritable(channel, 4 + sizeOf(entity.getId()));
+        buffer.put((byte) entity.getTag().ordinal());
+        buffer.put((byte) entity.getLayer().ordinal());
+        putString(buffer, entity.getId());
+        buffer.putShort((short) numOfComponents);
+
+        for (Component component : components) {
+            ComponentSerializer<Component> serializer = (ComponentSerializer<Component>) serializers.get(component.getClass());
+            if (serializer == null) continue;
+            int size = serializer.getSize(component);
+            ensureWritable(channel, 6 + size);
+            buffer.putShort(typeIndices.get(component.getClass()).shortValue());
+            buffer.putInt(size);
+            int end = buffer.position() + size;
+            serializer.write(component, buffer);
+            if (buffer.position() != end) throw new IllegalStateException("serializer of " + component.getClass().getName() + " wrote a wrong number of bytes");
+        }
+    }
+
+    /**
+     * Makes room for the specified number of bytes, the buffer is flushed to
+     * the channel or grown if necessary.
+     */
+    private void ensureWritable(FileChannel channel, int size) throws IOException {
+        if (buffer.remaining() >= size) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+        if (buffer.capacity() < size) buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+    }
+
+    /**
+     * Reads a snapshot and adds its entities to the specified engine. Nothing
+     * is added if the snapshot cannot be read. If this method is called during
+     * an update cycle, the entities are added when the update cycle is
+     * complete.
+     *
+     * @param engine
+     *            the engine receiving the entities
+     * @param filePath
+     *            the file path relative to the local directory of the
+     *            {@link FileSystem}
+     * @return the loaded entities or {@code null} if the snapshot could not be
+     *         read
+     */
+    public List<Entity> load(Engine engine, String filePath) {
+        FileChannel channel = FileSystem.getChannel(filePath, false);
+        if (channel == null) return null;
+        List<Entity> entities;
+        try (FileChannel c = channel) {
+            buffer.clear();
+            buffer.flip();
+            ensureReadable(c, 10);
+            if (buffer.getInt() != MAGIC) throw new IOException(filePath + " is not a snapshot");
+            short version = buffer.getShort();
+            if (version != VERSION) throw new IOException("unsupported snapshot version " + version);
+
+            ComponentSerializer<?>[] types = new ComponentSerializer<?>[buffer.getInt()];
+            for (int i = 0; i < types.length; i++) {
+                Class<?> type = typeNames.get(readString(c));
+                types[i] = type != null ? serializers.get(type) : null;
+            }
+
+            ensureReadable(c, 4);
+            int numOfEntities = buffer.getInt();
+            entities = new ArrayList<>(numOfEntities);
+            for (int i = 0; i < numOfEntities; i++) {
+                entities.add(readEntity(c, types));
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+        engine.addEntities(entities);
+        return entities;
+    }
+
+    private Entity readEntity(FileChannel channel, ComponentSerializer<?>[] types) throws IOException {
+        Entity entity = new Entity();
+        // the transform every entity is created with, replaced by the first loaded transform
+        Transform defaultTransform = entity.getComponent(Transform.class);
+        ensureReadable(channel, 2);
+        entity.setTag(TAGS[buffer.get()]);
+        entity.setLayer(LAYERS[buffer.get()]);
+        entity.setId(readString(channel));
+        ensureReadable(channel, 2);
+        int numOfComponents = buffer.getShort();
+
+        for (int i = 0; i < numOfComponents; i++) {
+            ensureReadable(channel, 6);
+            ComponentSerializer<?> serializer = types[buffer.getShort()];
+            int size = buffer.getInt();
+            ensureReadable(channel, size);
+            int end = buffer.position() + size;
+            if (serializer != null) {
+                int limit = buffer.limit();
+                buffer.limit(end);
+                Component component = serializer.read(buffer);
+                if (defaultTransform != null && component.getClass() == Transform.class) {
+                    entity.detachComponent(defaultTransform);
+                    defaultTransform = null;
+                }
+                entity.addComponent(component);
+                buffer.limit(limit);
+            }
+            buffer.position(end);
+        }
+        return entity;
+    }
+
+    /**
+     * Makes sure the specified number of bytes can be read from the buffer,
+     * more bytes are read from the channel or the buffer is grown if
+     * necessary.
+     */
+    private void ensureReadable(FileChannel channel, int size) throws IOException {
+        if (buffer.remaining() >= size) return;
+        if (buffer.capacity() < size) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+            grown.put(buffer);
+            buffer = grown;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < size) {
+            if (channel.read(buffer) < 0) throw new IOException("unexpected end of snapshot");
+        }
+        buffer.flip();
+    }
+
+    private String readString(FileChannel channel) throws IOException {
+        ensureReadable(channel, 2);
+        int length = buffer.getShort();
+        if (length < 0) return null;
+        ensureReadable(channel, length);
+        return getStringBytes(buffer, length);
+    }
+
+    /**
+     * Returns the number of bytes {@link #putString} puts for the specified
+     * string.
+     *
+     * @param s
+     *            the string or {@code null}
+     * @return the size in bytes
+     */
+    public static int sizeOf(String s) {
+        return s == null ? 2 : 2 + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Puts a string of at most 32767 UTF-8 bytes, prefixed by its length.
+     *
+     * @param buffer
+     *            the buffer receiving the bytes
+     * @param s
+     *            the string or {@code null}
+     */
+    public static void putString(ByteBuffer buffer, String s) {
+        if (s == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) throw new IllegalArgumentException("string too long");
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Gets a string put by {@link #putString}.
+     *
+     * @param buffer
+     *            the buffer providing the bytes
+     * @return the string or {@code null}
+     */
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        return length < 0 ? null : getStringBytes(buffer, length);
+    }
+
+    private static String getStringBytes(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class TransformSerializer implements ComponentSerializer<Transform> {
+        @Override
+        public int getSize(Transform component) {
+            return 20;
+        }
+
+        @Override
+        public void write(Transform component, ByteBuffer buffer) {
+            buffer.putFloat(component.position.x).putFloat(component.position.y);
+            buffer.putFloat(component.scale.x).putFloat(component.scale.y);
+            buffer.putFloat(component.angle);
+        }
+
+        @Override
+        public Transform read(ByteBuffer buffer) {
+            Transform transform = new Transform();
+            transform.position.setXY(buffer.getFloat(), buffer.getFloat());
+            transform.scale.setXY(buffer.getFloat(), buffer.getFloat());
+            transform.angle = buffer.getFloat();
+            return transform;
+        }
+    }
+
+    private static final class RigidBodySerializer implements ComponentSerializer<RigidBody> {
+        @Override
+        public int getSize(RigidBody component) {
+            return 14;
+        }
+
+        @Override
+        public void write(RigidBody component, ByteBuffer buffer) {
+            buffer.putFloat(component.getMass());
+            buffer.put((byte) (component.isKinematic() ? 1 : 0));
+            buffer.put((byte) (component.isGravitySimulated() ? 1 : 0));
+            buffer.putFloat(component.getLinearVelocity().x).putFloat(component.getLinearVelocity().y);
+        }
+
+        @Override
+        public RigidBody read(ByteBuffer buffer) {
+            RigidBody rigidBody = new RigidBody();
+            rigidBody.setMass(buffer.getFloat());
+            rigidBody.setKinematic(buffer.get() != 0);
+            rigidBody.setSimulateGravity(buffer.get() != 0);
+            rigidBody.getLinearVelocity().setXY(buffer.getFloat(), buffer.getFloat());
+            return rigidBody;
+        }
+    }
+
+    private static final class BoxColliderSerializer implements ComponentSerializer<BoxCollider> {
+        @Override
+        public int getSize(BoxCollider component) {
+            return 17;
+        }
+
+        @Override
+        public void write(BoxCollider component, ByteBuffer buffer) {
+            buffer.putFloat(component.getOffset().x).putFloat(component.getOffset().y);
+            buffer.putFloat(component.getBox().getSize().x).putFloat(component.getBox().getSize().y);
+            buffer.put((byte) (component.isTrigger() ? 1 : 0));
+        }
+
+        @Override
+        public BoxCollider read(ByteBuffer buffer) {
+            Vector2D offset = new Vector2D(buffer.getFloat(), buffer.getFloat());
+            BoxCollider collider = new BoxCollider(offset, new Vector2D(buffer.getFloat(), buffer.getFloat()));
+            collider.setTrigger(buffer.get() != 0);
+            return collider;
+        }
+    }
+
+    private static final class SpriteRendererSerializer implements ComponentSerializer<SpriteRenderer> {
+        @Override
+        public int getSize(SpriteRenderer component) {
+            return sizeOf(getAssetID(component));
+        }
+
+        @Override
+        public void write(SpriteRenderer component, ByteBuffer buffer) {
+            putString(buffer, getAssetID(component));
+        }
+
+        @Override
+        public SpriteRenderer read(ByteBuffer buffer) {
+            String assetID = getString(buffer);
+            return new SpriteRenderer(assetID);
+        }
+
+        private static String getAssetID(SpriteRenderer component) {
+            return component.getSprite() != null ? component.getSprite().getAssetID() : null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WorldSnapshot{serializers=" + serializers.keySet() + '}';
+    }
+}
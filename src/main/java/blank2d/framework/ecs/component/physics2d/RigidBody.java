@@ -11,22 +11,35 @@ import blank2d.util.math.Ray;
 import blank2d.util.math.Rect;
 import blank2d.util.math.Vector2D;
 
+/**
+ * A body moved by its velocity, forces and gravity that resolves its
+ * collisions with other rigid bodies. A rigid body added to a
+ * {@link RigidBodyStore} keeps its state in the columns of the store and its
+ * accessors read and write its row.
+ */
 public class RigidBody extends Component {
 
     private Collider collider;
 
+    //the store holding the state of this body and its row, null if the fields hold the state
+    RigidBodyStore store;
+    int index = -1;
 
-
-    private final Vector2D linearVelocity = new Vector2D(); //x and y m/s
-    private final Vector2D force = new Vector2D();
+    final Vector2D linearVelocity = new Vector2D(); //x and y m/s
+    final Vector2D force = new Vector2D();
     private final Vector2D acceleration = new Vector2D();
 
     private final Ray collisionRay = new Ray();
 
-    private float mass = 1.0f;
-    private boolean kinematic = false;
-    private boolean simulateGravity = true;
-    private boolean physicsUpdating = false;
+    //reused by every step to resolve the collisions without allocating
+    private final Vector2D contactPoint = new Vector2D();
+    private final Vector2D contactNormal = new Vector2D();
+    private final Vector2D resolveVector = new Vector2D();
+
+    float mass = 1.0f;
+    boolean kinematic = false;
+    boolean simulateGravity = true;
+    boolean physicsUpdating = false;
 
     public RigidBody(float mass, boolean kinematic){
         setMass(mass);
@@ -41,84 +54,155 @@ public class RigidBody extends Component {
         this(1.0f, false);
     }
 
+    @Override
+    protected RigidBody copy() {
+        RigidBody copy = new RigidBody(getMass(), isKinematic());
+        copy.simulateGravity = isGravitySimulated();
+        if (store != null && !store.hasFlag(index, RigidBodyStore.VELOCITY_EXPOSED)) {
+            copy.linearVelocity.setXY(store.velocityX[index], store.velocityY[index]);
+        } else {
+            copy.linearVelocity.setXY(linearVelocity.x, linearVelocity.y);
+        }
+        return copy;
+    }
+
     @Override
     protected void activate() {
         collider = getComponent(Collider.class);
     }
 
+    @Override
+    protected void reset() {
+        linearVelocity.setXY(0, 0);
+        force.setXY(0, 0);
+        acceleration.setXY(0, 0);
+        physicsUpdating = false;
+        if (store != null) {
+            store.velocityX[index] = store.velocityY[index] = 0;
+            store.forceX[index] = store.forceY[index] = 0;
+            store.setFlag(index, RigidBodyStore.UPDATING, false);
+        }
+    }
+
 
     public void fixedUpdate(){
+        fixedUpdate(getSystem(PhysicsSystem.class).getGravity());
+    }
+
+    /**
+     * Integrates the forces of this body, moves it and resolves its collisions.
+     * @param gravity the gravity of the physics system of the engine
+     */
+    public void fixedUpdate(Vector2D gravity){
+        float dt = (float) Time.nanoToSeconds(getEngine().getGame().getTimeBetweenFixedUpdates());
+        if (store != null) {
+            store.step(index, dt, gravity, getEngine());
+            return;
+        }
         physicsUpdating = true;
-        double dt = Time.nanoToSeconds(getEngine().getGame().getTimeBetweenFixedUpdates());
         acceleration.setXY(0,0);
-        if(force.getMagnitude() > 0 && !isKinematic()) { Vector2D.multiply(acceleration, Vector2D.divide(force, mass), (float) dt); }
-        if(isGravitySimulated()) acceleration.add(Vector2D.multiply(PhysicsSystem.gravity, (float) dt));
+        if(force.getMagnitude() > 0 && !isKinematic()) acceleration.setXY((force.x / mass) * dt, (force.y / mass) * dt);
+        if(isGravitySimulated()) acceleration.add(gravity.x * dt, gravity.y * dt);
         linearVelocity.add(acceleration);
 
         if (linearVelocity.getMagnitude() > 0.0f) {
-            //reference variables used as callbacks on the detectCollision function
-            //used to resolve the collision between another rigidbody
-            Vector2D targetPos =  new Vector2D();
-            Vector2D contactPoint = new Vector2D();
-            Vector2D contactNormal = new Vector2D();
-            Node<Float> contactTime = new Node<>();
-
-            Vector2D resolveVector = new Vector2D();
-
+            contactNormal.setXY(0, 0);
             ColliderSystem colliderSystem = getSystem(ColliderSystem.class);
 
             //loop through all the other colliders in order of distance from this collider (ascending order)
-            for (Collider collider : colliderSystem.getOrderedListOfColliders(this)) {
+            int numOfContacts = colliderSystem.collectContacts(this);
+            for (int i = 0; i < numOfContacts; i++) {
+                Collider collider = colliderSystem.getContactCollider(i);
                 //check for collision between the target rect and the this collider's rect
                 if (collider.getEntity().hasComponent(RigidBody.class)) {
-                    Vector2D.add(targetPos, collider.getOffset(), collider.getEntity().getComponent(Transform.class).position);
-                    if (detectCollision(collider.getBox(), targetPos, contactPoint, contactNormal, contactTime) && contactTime.getData() >= 0.0f) {
+                    Vector2D position = collider.getEntity().getComponent(Transform.class).position;
+                    float contactTime = detectCollision(collider.getBox(), collider.getOffset().x + position.x, collider.getOffset().y + position.y, contactPoint, contactNormal);
+                    if (contactTime >= 0.0f) {
                         //if the target collider rect has a rigidbody instance associated with that entity the resolve the collision
                         //finding the finding the correct velocity vector to add to the current linear velocity
                         //inorder that the this collider is no longer colliding with the target in the space
                         resolveVector.setXY(Math.abs(linearVelocity.x), Math.abs(linearVelocity.y));
-                        resolveVector.multiply( 1.0f - contactTime.getData());
+                        resolveVector.multiply( 1.0f - contactTime);
                         resolveVector.multiply(contactNormal);
                         linearVelocity.add(resolveVector);
                     }
                 }
             }
             getComponent(Transform.class).move(linearVelocity);
+            colliderSystem.updateCollider(getEntity());
         }
     }
 
 
     public boolean detectCollision(Rect target, Vector2D targetPos, Vector2D contactPoint, Vector2D contactNormal, Node<Float> contactTime){
-        Rect expandedTarget = new Rect(Vector2D.add(target.getSize(), collider.getBox().getSize()));
+        float time = detectCollision(target, targetPos.x, targetPos.y, contactPoint, contactNormal);
+        if(Float.isNaN(time)) return false;
+        contactTime.setData(time);
+        return true;
+    }
+
+    /**
+     * Casts the velocity of this body against the target rect grown by the
+     * size of this collider, without allocating.
+     * @param target the rect of the other collider
+     * @param targetX the x coordinate of the center of the target
+     * @param targetY the y coordinate of the center of the target
+     * @param contactPoint receives the point of contact
+     * @param contactNormal receives the normal of the contact
+     * @return the time of contact within this step, NaN if there is no collision during this step
+     */
+    public float detectCollision(Rect target, float targetX, float targetY, Vector2D contactPoint, Vector2D contactNormal){
+        Vector2D size = collider.getBox().getSize();
         Vector2D.add(collisionRay.getOrigin(), collider.getOffset(), getComponent(Transform.class).position);
-        collisionRay.getDirection().setXY(linearVelocity);
-        if(collisionRay.rayCastTargetRect(expandedTarget, targetPos, contactPoint, contactNormal, contactTime)){
-            return contactTime.getData() < 1.0f;
-        }
-        return false;
+        collisionRay.getDirection().setXY(getLinearVelocity());
+        float contactTime = collisionRay.rayCastTargetRect(target.getSize().x + size.x, target.getSize().y + size.y, targetX, targetY, contactPoint, contactNormal);
+        return contactTime < 1.0f ? contactTime : Float.NaN;
     }
 
-    public void applyForce(Vector2D force){ if(!physicsUpdating && !isKinematic()) this.force.add(force); }
+    public void applyForce(Vector2D force){
+        if (store != null) {
+            if (!store.hasFlag(index, RigidBodyStore.UPDATING) && !isKinematic()) store.addForce(index, force.x, force.y);
+            return;
+        }
+        if(!physicsUpdating && !isKinematic()) this.force.add(force);
+    }
 
     public void forceReset(){
+        if (store != null) {
+            store.forceX[index] = store.forceY[index] = 0;
+            if (store.hasFlag(index, RigidBodyStore.FORCE_EXPOSED)) force.setXY(0, 0);
+            store.setFlag(index, RigidBodyStore.UPDATING, false);
+            return;
+        }
         force.setXY(0,0);
         physicsUpdating = false;
     }
 
     public boolean isKinematic() {
-        return kinematic;
+        return store != null ? store.hasFlag(index, RigidBodyStore.KINEMATIC) : kinematic;
     }
     public void setKinematic(boolean kinematic) {
         if(kinematic) setSimulateGravity(false);
-        this.kinematic = kinematic;
+        if (store != null) store.setFlag(index, RigidBodyStore.KINEMATIC, kinematic);
+        else this.kinematic = kinematic;
     }
 
+    /**
+     * Returns the velocity of this body, modifications of the returned vector
+     * change the velocity.
+     * @return the velocity in units per fixed update
+     */
     public Vector2D getLinearVelocity() {
-        return linearVelocity;
+        return store != null ? store.exposeVelocity(index) : linearVelocity;
     }
 
+    /**
+     * Returns the force applied during the next fixed update, modifications of
+     * the returned vector change the force.
+     * @return the force
+     */
     public Vector2D getForce() {
-        return force;
+        return store != null ? store.exposeForce(index) : force;
     }
 
     public Collider getCollider() {
@@ -130,18 +214,27 @@ public class RigidBody extends Component {
     }
 
     public float getMass() {
-        return mass;
+        return store != null ? store.mass[index] : mass;
     }
 
     public void setMass(float mass) {
-        this.mass = mass;
+        if (store != null) store.mass[index] = mass;
+        else this.mass = mass;
     }
 
     public boolean isGravitySimulated() {
-        return simulateGravity;
+        return store != null ? store.hasFlag(index, RigidBodyStore.GRAVITY) : simulateGravity;
     }
 
     public void setSimulateGravity(boolean simulateGravity) {
-        this.simulateGravity = simulateGravity;
+        if (store != null) store.setFlag(index, RigidBodyStore.GRAVITY, simulateGravity);
+        else this.simulateGravity = simulateGravity;
+    }
+
+    /**
+     * @return the store holding the state of this body, null if the body holds its own state
+     */
+    public RigidBodyStore getStore() {
+        return store;
     }
 }
@@ -0,0 +1,354 @@
+package blank2d.framework.ecs.component.physics2d;
+
+import blank2d.framework.ecs.Engine;
+import blank2d.framework.ecs.Entity;
+import blank2d.framework.ecs.component.physics2d.collider.Collider;
+import blank2d.framework.ecs.system.ColliderSystem;
+import blank2d.util.math.Ray;
+import blank2d.util.math.Vector2D;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the state of rigid bodies in primitive columns, one array per value,
+ * so a physics step integrates all bodies in one tight loop instead of
+ * visiting each component. A {@link RigidBody} added to a store becomes a view
+ * over its row: its accessors read and write the columns.
+ *
+ * <p>
+ * Positions are read from the transforms at the start of a step and only
+ * written back for bodies that moved. Bodies are resolved in the order they
+ * have been added, a removed body is replaced by the last one.
+ * </p>
+ *
+ * <p>
+ * The vectors returned by {@link RigidBody#getLinearVelocity()} and
+ * {@link RigidBody#getForce()} can still be modified. Once requested, the
+ * vector of a body is copied into its columns before each step and back after
+ * it.
+ * </p>
+ */
+public final class RigidBodyStore {
+
+    static final byte KINEMATIC = 1;
+    static final byte GRAVITY = 2;
+    static final byte UPDATING = 4;
+    static final byte VELOCITY_EXPOSED = 8;
+    static final byte FORCE_EXPOSED = 16;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    float[] positionX = new float[INITIAL_CAPACITY];
+    float[] positionY = new float[INITIAL_CAPACITY];
+    float[] velocityX = new float[INITIAL_CAPACITY];
+    float[] velocityY = new float[INITIAL_CAPACITY];
+    float[] forceX = new float[INITIAL_CAPACITY];
+    float[] forceY = new float[INITIAL_CAPACITY];
+    float[] mass = new float[INITIAL_CAPACITY];
+    byte[] flags = new byte[INITIAL_CAPACITY];
+
+    private RigidBody[] bodies = new RigidBody[INITIAL_CAPACITY];
+    private Transform[] transforms = new Transform[INITIAL_CAPACITY];
+    private int size;
+
+    private final Map<Entity, RigidBody> members = new IdentityHashMap<>();
+
+    //reused by every step to resolve the collisions without allocating
+    private final Ray collisionRay = new Ray();
+    private final Vector2D contactPoint = new Vector2D();
+    private final Vector2D contactNormal = new Vector2D();
+
+    /**
+     * Adds the rigid body of the specified entity, its state is moved into
+     * the columns.
+     * @param entity the entity with a rigid body
+     * @throws IllegalArgumentException if the rigid body belongs to another store
+     */
+    public void add(Entity entity) throws IllegalArgumentException {
+        if (members.containsKey(entity)) return;
+        RigidBody body = entity.getComponent(RigidBody.class);
+        if (body.store != null) throw new IllegalArgumentException("rigid body belongs to another store");
+        if (size == bodies.length) grow(size * 2);
+
+        int i = size++;
+        bodies[i] = body;
+        transforms[i] = entity.getComponent(Transform.class);
+        velocityX[i] = body.linearVelocity.x;
+        velocityY[i] = body.linearVelocity.y;
+        forceX[i] = body.force.x;
+        forceY[i] = body.force.y;
+        mass[i] = body.mass;
+        byte f = 0;
+        if (body.kinematic) f |= KINEMATIC;
+        if (body.simulateGravity) f |= GRAVITY;
+        if (body.physicsUpdating) f |= UPDATING;
+        flags[i] = f;
+        body.store = this;
+        body.index = i;
+        members.put(entity, body);
+    }
+
+    /**
+     * Removes the rigid body of the specified entity, its state is moved back
+     * into the component.
+     * @param entity the entity
+     */
+    public void remove(Entity entity) {
+        RigidBody body = members.remove(entity);
+        if (body == null) return;
+        int i = body.index;
+        unbind(i);
+
+        int last = --size;
+        if (i != last) {
+            bodies[i] = bodies[last];
+            transforms[i] = transforms[last];
+            positionX[i] = positionX[last];
+            positionY[i] = positionY[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            forceX[i] = forceX[last];
+            forceY[i] = forceY[last];
+            mass[i] = mass[last];
+            flags[i] = flags[last];
+            bodies[i].index = i;
+        }
+        bodies[last] = null;
+        transforms[last] = null;
+    }
+
+    /**
+     * Removes all rigid bodies, their state is moved back into the components.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            unbind(i);
+            bodies[i] = null;
+            transforms[i] = null;
+        }
+        size = 0;
+        members.clear();
+    }
+
+    private void unbind(int i) {
+        RigidBody body = bodies[i];
+        byte f = flags[i];
+        if ((f & VELOCITY_EXPOSED) == 0) body.linearVelocity.setXY(velocityX[i], velocityY[i]);
+        if ((f & FORCE_EXPOSED) == 0) body.force.setXY(forceX[i], forceY[i]);
+        body.mass = mass[i];
+        body.kinematic = (f & KINEMATIC) != 0;
+        body.simulateGravity = (f & GRAVITY) != 0;
+        body.physicsUpdating = (f & UPDATING) != 0;
+        body.store = null;
+        body.index = -1;
+    }
+
+    private void grow(int capacity) {
+        positionX = Arrays.copyOf(positionX, capacity);
+        positionY = Arrays.copyOf(positionY, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        forceX = Arrays.copyOf(forceX, capacity);
+        forceY = Arrays.copyOf(forceY, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        bodies = Arrays.copyOf(bodies, capacity);
+        transforms = Arrays.copyOf(transforms, capacity);
+    }
+
+    /**
+     * Resets the forces of all bodies and applies the global forces to the
+     * bodies that are not kinematic, forces can be applied again until the
+     * next step.
+     * @param globalForces the forces applied to every body
+     */
+    public void resetForces(List<Vector2D> globalForces) {
+        Arrays.fill(forceX, 0, size, 0);
+        Arrays.fill(forceY, 0, size, 0);
+        for (int i = 0; i < size; i++) flags[i] &= ~UPDATING;
+        for (int g = 0; g < globalForces.size(); g++) {
+            float x = globalForces.get(g).x, y = globalForces.get(g).y;
+            for (int i = 0; i < size; i++) {
+                if ((flags[i] & KINEMATIC) == 0) {
+                    forceX[i] += x;
+                    forceY[i] += y;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & FORCE_EXPOSED) != 0) bodies[i].force.setXY(forceX[i], forceY[i]);
+        }
+    }
+
+    /**
+     * Integrates the forces and gravity of all bodies, then moves the bodies
+     * one after the other and resolves their collisions with the other rigid
+     * bodies.
+     * @param dt the duration of the step in seconds
+     * @param gravity the gravity applied to bodies that simulate gravity
+     * @param engine the engine providing the collider system
+     * @throws IllegalArgumentException if a body moves and the engine has no collider system
+     */
+    public void step(float dt, Vector2D gravity, Engine engine) throws IllegalArgumentException {
+        pull(0, size);
+        integrate(0, size, dt, gravity.x, gravity.y);
+        ColliderSystem colliderSystem = null;
+        for (int i = 0; i < size; i++) {
+            if (isMoving(i)) {
+                if (colliderSystem == null) colliderSystem = engine.getSystem(ColliderSystem.class);
+                resolve(i, colliderSystem);
+            }
+        }
+        push(0, size);
+    }
+
+    /**
+     * Steps a single body, used when its fixed update is called directly.
+     */
+    void step(int i, float dt, Vector2D gravity, Engine engine) {
+        pull(i, i + 1);
+        integrate(i, i + 1, dt, gravity.x, gravity.y);
+        if (isMoving(i)) resolve(i, engine.getSystem(ColliderSystem.class));
+        push(i, i + 1);
+    }
+
+    //copies the modifiable vectors and the transform positions into the columns
+    private void pull(int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte f = flags[i];
+            if ((f & VELOCITY_EXPOSED) != 0) {
+                velocityX[i] = bodies[i].linearVelocity.x;
+                velocityY[i] = bodies[i].linearVelocity.y;
+            }
+            if ((f & FORCE_EXPOSED) != 0) {
+                forceX[i] = bodies[i].force.x;
+                forceY[i] = bodies[i].force.y;
+            }
+            Vector2D position = transforms[i].position;
+            positionX[i] = position.x;
+            positionY[i] = position.y;
+        }
+    }
+
+    //copies the columns back into the modifiable vectors
+    private void push(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((flags[i] & VELOCITY_EXPOSED) != 0) bodies[i].linearVelocity.setXY(velocityX[i], velocityY[i]);
+        }
+    }
+
+    private void integrate(int from, int to, float dt, float gravityX, float gravityY) {
+        float gravityStepX = gravityX * dt, gravityStepY = gravityY * dt;
+        for (int i = from; i < to; i++) {
+            byte f = flags[i];
+            flags[i] = (byte) (f | UPDATING);
+            float fx = forceX[i], fy = forceY[i];
+            float ax = 0, ay = 0;
+            if ((f & KINEMATIC) == 0 && (float) Math.sqrt(fx * fx + fy * fy) > 0) {
+                ax = (fx / mass[i]) * dt;
+                ay = (fy / mass[i]) * dt;
+            }
+            if ((f & GRAVITY) != 0) {
+                ax += gravityStepX;
+                ay += gravityStepY;
+            }
+            velocityX[i] += ax;
+            velocityY[i] += ay;
+        }
+    }
+
+    private boolean isMoving(int i) {
+        float vx = velocityX[i], vy = velocityY[i];
+        return (float) Math.sqrt(vx * vx + vy * vy) > 0.0f;
+    }
+
+    private void resolve(int i, ColliderSystem colliderSystem) {
+        RigidBody body = bodies[i];
+        Collider collider = body.getCollider();
+        Vector2D size = collider.getBox().getSize();
+        float vx = velocityX[i], vy = velocityY[i];
+        contactNormal.setXY(0, 0);
+
+        //loop through all the other colliders in order of distance from this collider (ascending order)
+        int numOfContacts = colliderSystem.collectContacts(collider, vx, vy);
+        for (int c = 0; c < numOfContacts; c++) {
+            Collider other = colliderSystem.getContactCollider(c);
+            if (!other.getEntity().hasComponent(RigidBody.class)) continue;
+            Vector2D position = other.getEntity().getComponent(Transform.class).position;
+            Vector2D targetSize = other.getBox().getSize();
+            collisionRay.getOrigin().setXY(collider.getOffset().x + positionX[i], collider.getOffset().y + positionY[i]);
+            collisionRay.getDirection().setXY(vx, vy);
+            float contactTime = collisionRay.rayCastTargetRect(targetSize.x + size.x, targetSize.y + size.y,
+                    other.getOffset().x + position.x, other.getOffset().y + position.y, contactPoint, contactNormal);
+            if (contactTime < 1.0f && contactTime >= 0.0f) {
+                //push the body back by the part of its velocity beyond the contact
+                vx += (Math.abs(vx) * (1.0f - contactTime)) * contactNormal.x;
+                vy += (Math.abs(vy) * (1.0f - contactTime)) * contactNormal.y;
+            }
+        }
+        velocityX[i] = vx;
+        velocityY[i] = vy;
+
+        positionX[i] += vx;
+        positionY[i] += vy;
+        Transform transform = transforms[i];
+        transform.position.setXY(positionX[i], positionY[i]);
+        transform.markChanged();
+        colliderSystem.updateCollider(body.getEntity());
+    }
+
+    /**
+     * Copies the velocity of a body into its vector and marks the vector as
+     * modifiable from now on.
+     */
+    Vector2D exposeVelocity(int i) {
+        Vector2D velocity = bodies[i].linearVelocity;
+        if ((flags[i] & VELOCITY_EXPOSED) == 0) {
+            velocity.setXY(velocityX[i], velocityY[i]);
+            flags[i] |= VELOCITY_EXPOSED;
+        }
+        return velocity;
+    }
+
+    /**
+     * Copies the force of a body into its vector and marks the vector as
+     * modifiable from now on.
+     */
+    Vector2D exposeForce(int i) {
+        Vector2D force = bodies[i].force;
+        if ((flags[i] & FORCE_EXPOSED) == 0) {
+            force.setXY(forceX[i], forceY[i]);
+            flags[i] |= FORCE_EXPOSED;
+        }
+        return force;
+    }
+
+    void addForce(int i, float x, float y) {
+        if ((flags[i] & FORCE_EXPOSED) != 0) {
+            bodies[i].force.add(x, y);
+        } else {
+            forceX[i] += x;
+            forceY[i] += y;
+        }
+    }
+
+    void setFlag(int i, byte flag, boolean set) {
+        if (set) flags[i] |= flag;
+        else flags[i] &= ~flag;
+    }
+
+    boolean hasFlag(int i, byte flag) {
+        return (flags[i] & flag) != 0;
+    }
+
+    public boolean contains(Entity entity) {
+        return members.containsKey(entity);
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -1,15 +1,47 @@
 package blank2d.framework.ecs.component.physics2d;
 
 import blank2d.framework.ecs.Component;
+import blank2d.framework.ecs.Engine;
 import blank2d.framework.ecs.component.rendering.Camera;
+import blank2d.util.math.Matrix;
+import blank2d.util.math.Matrix3x3;
 import blank2d.util.math.Vector2D;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The position, scale and angle of an entity relative to its parent transform.
+ * The world matrix combines the local values with the world matrix of the
+ * parent and is cached. It is only recomputed when the local values of this
+ * transform or the world matrix of one of its ancestors have changed. Changes
+ * are detected by comparing the local values with the values the matrix has
+ * been built from, so the public fields can still be modified directly.
+ */
 public class Transform extends Component {
 
     public Vector2D position = new Vector2D();
     public Vector2D scale = new Vector2D(1, 1);
     public float angle = 0.0f;
 
+    private Transform parent;
+    private final List<Transform> children = new ArrayList<>();
+    private int depth;
+
+    private final Matrix3x3 localMatrix = new Matrix3x3();
+    private final Matrix3x3 worldMatrix = new Matrix3x3();
+
+    /** The local values the local matrix has been built from. */
+    private float builtX, builtY, builtScaleX, builtScaleY, builtAngle;
+    private boolean built;
+
+    /** Incremented whenever the world matrix changes. */
+    private int worldVersion;
+
+    /** The world version of the parent the world matrix has been built from. */
+    private int builtParentVersion = -1;
+
     public Transform(Vector2D position,  Vector2D scale){
         this.position = position;
         this.scale = scale;
@@ -26,8 +58,8 @@ public class Transform extends Component {
     }
 
     public Transform(Transform transform){
-        this.position = new Vector2D(position);
-        this.scale = new Vector2D(scale);
+        this.position = new Vector2D(transform.position);
+        this.scale = new Vector2D(transform.scale);
         this.angle = transform.getAngle();
     }
 
@@ -37,6 +69,134 @@ public class Transform extends Component {
 
     public Transform(){}
 
+    @Override
+    protected void reset() {
+        position.setXY(0, 0);
+        scale.setXY(1, 1);
+        angle = 0.0f;
+        detach();
+    }
+
+    /**
+     * Detaches this transform from its parent once its entity is removed, so
+     * the parent does not keep it reachable. The children become root
+     * transforms, their local values are then relative to the world.
+     */
+    @Override
+    protected void deactivate() {
+        detach();
+    }
+
+    private void detach() {
+        setParent(null);
+        for (int i = children.size() - 1; i >= 0; i--) {
+            children.get(i).setParent(null);
+        }
+    }
+
+    @Override
+    protected Transform copy() {
+        return new Transform(this);
+    }
+
+    public Transform getParent() {
+        return parent;
+    }
+
+    /**
+     * Attaches this transform to a parent, the local values become relative to
+     * the parent.
+     * @param parent the new parent or null to detach this transform
+     * @throws IllegalArgumentException if the parent is a descendant of this transform
+     */
+    public void setParent(Transform parent) {
+        if (this.parent == parent) return;
+        for (Transform t = parent; t != null; t = t.parent) {
+            if (t == this) throw new IllegalArgumentException("transform cannot be its own ancestor");
+        }
+        if (this.parent != null) this.parent.children.remove(this);
+        this.parent = parent;
+        if (parent != null) parent.children.add(this);
+        builtParentVersion = -1;
+        updateDepth();
+        Engine engine = getEntity() != null ? getEntity().getEngine() : null;
+        if (engine != null) engine.hierarchyChanged();
+    }
+
+    private void updateDepth() {
+        depth = parent == null ? 0 : parent.depth + 1;
+        for (Transform child : children) child.updateDepth();
+    }
+
+    public List<Transform> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * @return the number of ancestors of this transform
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the world matrix of this transform, it is brought up to date
+     * with this transform and its ancestors first. The returned matrix must
+     * not be modified. Since the cached matrices of the ancestors may be
+     * rebuilt, systems calling this method must declare write access to
+     * transforms.
+     * @return the world matrix
+     */
+    public Matrix3x3 getWorldMatrix() {
+        if (parent != null) parent.getWorldMatrix();
+        updateWorldMatrix();
+        return worldMatrix;
+    }
+
+    /**
+     * Recomputes the world matrix if the local values or the world matrix of
+     * the parent have changed. The world matrix of the parent must be up to
+     * date, which holds when transforms are updated in order of their depth.
+     * @return true if the world matrix has changed
+     */
+    public boolean updateWorldMatrix() {
+        boolean localChanged = updateLocalMatrix();
+        int parentVersion = parent == null ? 0 : parent.worldVersion;
+        if (!localChanged && builtParentVersion == parentVersion) return false;
+        if (parent == null) {
+            worldMatrix.set(localMatrix);
+        } else {
+            Matrix.multiply(worldMatrix, parent.worldMatrix, localMatrix);
+        }
+        builtParentVersion = parentVersion;
+        worldVersion++;
+        return true;
+    }
+
+    private boolean updateLocalMatrix() {
+        if (built && builtX == position.x && builtY == position.y && builtAngle == angle
+                && builtScaleX == scale.x && builtScaleY == scale.y) return false;
+        builtX = position.x;
+        builtY = position.y;
+        builtAngle = angle;
+        builtScaleX = scale.x;
+        builtScaleY = scale.y;
+        built = true;
+        localMatrix.transform(builtX, builtY, builtAngle, builtScaleX, builtScaleY);
+        return true;
+    }
+
+    /**
+     * @param outVector2D the vector receiving the position, a new vector is created if null
+     * @return the position of this transform in world space
+     */
+    public Vector2D getWorldPosition(Vector2D outVector2D) {
+        Matrix3x3 world = getWorldMatrix();
+        if (outVector2D == null) outVector2D = new Vector2D();
+        outVector2D.setXY(world.get(2, 0), world.get(2, 1));
+        return outVector2D;
+    }
+
     public Vector2D getPosition() {
         return position;
     }
@@ -49,28 +209,31 @@ public class Transform extends Component {
 
     public void setPosition(Vector2D position) {
         this.position = position;
+        markChanged();
     }
-    public void setPositionX(float x) { this.position.setX(x); }
-    public void setPositionY(float y) { this.position.setY(y); }
-    public void setPositionXY(float x, float y) {this.position.setX(x); this.position.setY(y); }
+    public void setPositionX(float x) { this.position.setX(x); markChanged(); }
+    public void setPositionY(float y) { this.position.setY(y); markChanged(); }
+    public void setPositionXY(float x, float y) {this.position.setX(x); this.position.setY(y); markChanged(); }
 
     public void move(float x, float y){
         this.position.add(x, y);
+        markChanged();
     }
 
     public void move(Vector2D vector2D){
         this.position.add(vector2D.x, vector2D.y);
+        markChanged();
     }
 
 
-    public void rotate(float theta) { angle += theta; }
+    public void rotate(float theta) { angle += theta; markChanged(); }
     public float getAngle() { return angle; }
-    public void setAngle(float angle) { this.angle = angle; }
+    public void setAngle(float angle) { this.angle = angle; markChanged(); }
 
-    public void scaleX(float factorX) { scale.add(factorX, 0.0f); }
-    public void scaleY(float factorY) { scale.add(0.0f, factorY); }
-    public void scaleXY(float factorX, float factorY) { scale.add(factorX, factorY); }
-    public void scaleXY(Vector2D scaleFactor) { scale.add(scaleFactor); }
+    public void scaleX(float factorX) { scale.add(factorX, 0.0f); markChanged(); }
+    public void scaleY(float factorY) { scale.add(0.0f, factorY); markChanged(); }
+    public void scaleXY(float factorX, float factorY) { scale.add(factorX, factorY); markChanged(); }
+    public void scaleXY(Vector2D scaleFactor) { scale.add(scaleFactor); markChanged(); }
     public Vector2D getScale() { return scale; }
-    public void setScale(Vector2D scale) { this.scale = scale; }
+    public void setScale(Vector2D scale) { this.scale = scale; markChanged(); }
 }
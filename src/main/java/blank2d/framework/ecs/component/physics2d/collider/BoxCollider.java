@@ -20,6 +20,13 @@ public class BoxCollider extends Collider{
     }
 
 
+    @Override
+    protected BoxCollider copy() {
+        BoxCollider copy = new BoxCollider(new Vector2D(offset), new Vector2D(box.getSize()));
+        copy.trigger = trigger;
+        return copy;
+    }
+
     @Override
     public void render() {
         Screen.getInstance().drawRect(box, Vector2D.add(offset, getComponent(Transform.class).position), Color.red, ScreenLayer.Debug);
@@ -1,9 +1,6 @@
 package blank2d.framework.ecs.component.physics2d.collider;
 
 import blank2d.framework.ecs.Component;
-import blank2d.framework.ecs.signal.collider.ColliderTriggerSignal;
-import blank2d.framework.ecs.signal.collider.TriggerEnterListener;
-import blank2d.framework.ecs.signal.collider.TriggerExitListener;
 import blank2d.util.math.Rect;
 import blank2d.util.math.Vector2D;
 
@@ -17,18 +14,33 @@ public abstract class Collider extends Component {
     protected Rect box = new Rect();
 
     protected boolean trigger = false;
-    protected final ColliderTriggerSignal triggerSignal = new ColliderTriggerSignal();
     protected final List<Collider> currentlyColliding = new ArrayList<>();
 
+    //the triggers that have this collider in their currently colliding list
+    private final List<Collider> overlappingTriggers = new ArrayList<>();
 
-    public Collider(){
-        triggerSignal.addSignalListener(new TriggerEnterListener(this));
-        triggerSignal.addSignalListener(new TriggerExitListener(this));
+
+    @Override
+    protected void reset() {
+        clearContacts();
     }
 
     @Override
     protected void deactivate() {
-        triggerSignal.clear();
+        clearContacts();
+    }
+
+    /**
+     * Removes this collider from the triggers it is inside of and the
+     * colliders inside of this trigger, without raising trigger events. Called
+     * once the collider leaves the engine, so no exit event is raised for it
+     * afterwards.
+     */
+    public void clearContacts() {
+        for (int i = 0; i < overlappingTriggers.size(); i++) overlappingTriggers.get(i).currentlyColliding.remove(this);
+        for (int i = 0; i < currentlyColliding.size(); i++) currentlyColliding.get(i).overlappingTriggers.remove(this);
+        currentlyColliding.clear();
+        overlappingTriggers.clear();
     }
 
     public abstract void render();
@@ -37,6 +49,7 @@ public abstract class Collider extends Component {
 
     public void setTrigger(boolean trigger) {
         this.trigger = trigger;
+        markChanged();
     }
 
     public Rect getBox() {
@@ -48,20 +61,28 @@ public abstract class Collider extends Component {
     }
 
 
-    public ColliderTriggerSignal getTriggerSignal() {
-        return triggerSignal;
-    }
-
     public boolean isCurrentlyCollidingWith(Collider collider){
         return currentlyColliding.contains(collider);
     }
 
     public void colliderExited(Collider collider){
-        currentlyColliding.remove(collider);
+        if(currentlyColliding.remove(collider)) collider.overlappingTriggers.remove(this);
     }
 
     public void colliderEntered(Collider collider){
-        if(!isCurrentlyCollidingWith(collider)) currentlyColliding.add(collider);
+        if(!isCurrentlyCollidingWith(collider)) {
+            currentlyColliding.add(collider);
+            collider.overlappingTriggers.add(this);
+        }
+    }
+
+    /**
+     * Returns the triggers this collider is currently inside of, the inverse
+     * of {@link #getCurrentlyColliding()} of these triggers.
+     * @return the list of triggers
+     */
+    public List<Collider> getOverlappingTriggers() {
+        return overlappingTriggers;
     }
 
     public boolean isCurrentlyCollidingWithAnything(){
@@ -4,8 +4,10 @@ import blank2d.framework.asset.AssetManager;
 import blank2d.framework.ecs.Component;
 import blank2d.framework.graphics.Animation;
 import blank2d.framework.Time;
+import blank2d.framework.graphics.Sprite;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 
@@ -18,29 +20,62 @@ public class AnimationController extends Component {
     private double tpf = 10.0;
     private double accumulator = 0.0;
 
+    /** The playback position within the playing animation, animations are shared between controllers. */
+    private Iterator<Sprite> frameIterator;
+    private Animation playing;
+
 
     @Override
     protected void activate() {
         spriteRenderer = getComponent(SpriteRenderer.class);
     }
 
+    @Override
+    protected AnimationController copy() {
+        AnimationController copy = new AnimationController();
+        copy.animationMap.putAll(animationMap);
+        copy.animation = animation;
+        copy.tpf = tpf;
+        return copy;
+    }
+
+    @Override
+    protected void reset() {
+        accumulator = 0.0;
+        playing = null;
+        frameIterator = null;
+    }
+
     public void addAnimation(String  ...assetIDS){
         for (String assetID : assetIDS) {
             animationMap.put(assetID, AssetManager.getInstance().getAnimation(assetID));
         }
     }
 
+    /**
+     * Plays the specified animation from its first frame, nothing changes if
+     * it is already playing.
+     * @param assetID the id of an animation added to this controller
+     */
     public void setAnimation(String assetID){
         animation = animationMap.get(assetID);
-        spriteRenderer.setSprite(animation.getCurrentFrameSprite());
+        if (animation == playing) return;
+        play();
+        spriteRenderer.setSprite(animation.getFirstFrameSprite());
         tpf = 1/animation.getFrameRate();
     }
 
+    private void play() {
+        playing = animation;
+        frameIterator = animation.frameIterator();
+    }
+
     public void update(){
+        if (animation != playing) play();
         accumulator += Time.getInstance().getDeltaTimeSeconds();
         while (accumulator >= tpf){
-            if(animation.nextFrame()) {
-                spriteRenderer.setSprite(animation.getCurrentFrameSprite());
+            if(frameIterator.hasNext()) {
+                spriteRenderer.setSprite(frameIterator.next());
                 accumulator -= tpf;
             }else{
                 //TODO add some kind animation ended trigger
@@ -23,6 +23,15 @@ public class Camera extends Component {
         setZoomFactor(zoomFactor);
     }
 
+    @Override
+    protected Camera copy() {
+        Camera copy = new Camera();
+        copy.rect.getSize().setXY(rect.getSize());
+        copy.zoomFactor = zoomFactor;
+        copy.movable = movable;
+        return copy;
+    }
+
     @Override
     protected void activate() {
         transform = getComponent(Transform.class);
@@ -34,6 +43,7 @@ public class Camera extends Component {
 
     public void setZoomFactor(float zoomFactor) {
         if(zoomFactor > 0.001f) this.zoomFactor = zoomFactor;
+        markChanged();
     }
 
     public Transform getTransform() {
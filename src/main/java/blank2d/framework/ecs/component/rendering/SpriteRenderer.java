@@ -8,7 +8,14 @@ import blank2d.framework.graphics.Sprite;
 public class SpriteRenderer extends Component {
     public Sprite sprite;
     public SpriteRenderer(String assetID){ setSprite(AssetManager.getInstance().getSprite(assetID)); }
-    public void setSprite(Sprite sprite){ this.sprite = sprite; }
+    public SpriteRenderer(Sprite sprite){ this.sprite = sprite; }
+    @Override
+    protected SpriteRenderer copy(){ return new SpriteRenderer(sprite); }
+    public void setSprite(Sprite sprite){
+        if(this.sprite == sprite) return;
+        this.sprite = sprite;
+        markChanged();
+    }
     public Sprite getSprite(){ return sprite; }
     public void render(Transform transform){
         sprite.render(transform);
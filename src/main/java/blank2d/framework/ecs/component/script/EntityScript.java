@@ -1,9 +1,12 @@
 package blank2d.framework.ecs.component.script;
 
 import blank2d.framework.ecs.Component;
+import blank2d.framework.ecs.Prefab;
 import blank2d.framework.screen.Screen;
 import blank2d.framework.input.InputManager;
 
+import java.lang.reflect.Constructor;
+
 public abstract class EntityScript extends Component implements IEntityScript {
 
     public final Screen screen = Screen.getInstance();
@@ -18,4 +21,26 @@ public abstract class EntityScript extends Component implements IEntityScript {
         start();
     }
 
+    /**
+     * Creates a new instance of this script with its no-arg constructor, which
+     * may be private. The copy starts from the state the constructor sets up
+     * and runs {@link #awake()} again. Scripts that are configured after
+     * construction, or that have no no-arg constructor, e.g. inner classes of
+     * another object, override this method to be usable in a {@link Prefab}.
+     *
+     * @return the new script
+     * @throws UnsupportedOperationException
+     *             if this script has no no-arg constructor
+     */
+    @Override
+    protected EntityScript copy() throws UnsupportedOperationException {
+        try {
+            Constructor<? extends EntityScript> constructor = getClass().getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(getClass().getName() + " has no no-arg constructor, override copy()", e);
+        }
+    }
+
 }
@@ -10,6 +10,10 @@ public interface IEntityScript {
     default void lateUpdate(){}
     default void debug(){}
     default void onDestroy(){}
+    /** Called when the entity becomes dormant and is no longer processed by systems. */
+    default void onSuspend(){}
+    /** Called when a dormant entity is processed by systems again. */
+    default void onResume(){}
     default void onTriggerEnter(Collider otherCollider){}
     default void onTriggerExit(Collider otherCollider){}
 }
@@ -11,4 +11,12 @@ public class UIElement extends Component {
     UIElement(){
         uiContent = new UIContent<String>();
     }
+
+    @Override
+    protected UIElement copy() {
+        UIElement copy = new UIElement();
+        copy.uiContent.content = uiContent.content;
+        copy.rect = new Rect(rect.getSize());
+        return copy;
+    }
 }
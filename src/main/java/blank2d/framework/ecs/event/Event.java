@@ -0,0 +1,34 @@
+package blank2d.framework.ecs.event;
+
+import blank2d.framework.ecs.Entity;
+
+/**
+ * The base class of events published on an {@link EventBus}. Event records
+ * are preallocated by their channel and reused once they have been delivered,
+ * so listeners must not keep references to an event.
+ */
+public abstract class Event {
+
+    /** The entity this event is addressed to, may be {@code null}. */
+    Entity target;
+
+    /**
+     * Returns the entity this event is addressed to. Listeners registered for
+     * this entity receive the event in addition to the listeners of the
+     * channel.
+     *
+     * @return the target entity or {@code null}
+     */
+    public final Entity getTarget() {
+        return target;
+    }
+
+    /**
+     * Releases the references of this event after it has been delivered.
+     * Derived classes holding references override this method and call the
+     * super implementation.
+     */
+    protected void clear() {
+        target = null;
+    }
+}
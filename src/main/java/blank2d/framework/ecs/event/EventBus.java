@@ -0,0 +1,148 @@
+package blank2d.framework.ecs.event;
+
+import blank2d.framework.ecs.Entity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Routes events of registered types from publishers to listeners. Each event
+ * type has its own {@link EventChannel}. Events are queued when they are
+ * published and delivered by the engine at a fixed point of the update cycle,
+ * after all systems have been updated and before the structural changes of the
+ * cycle are applied.
+ *
+ * <pre>
+ * EventBus bus = engine.getEventBus();
+ * bus.addListener(TriggerEvent.class, player, event -&gt; {
+ *     if (event.isEntered()) pickUp(event.getOther());
+ * });
+ * </pre>
+ */
+public final class EventBus {
+
+    private final Map<Class<?>, EventChannel<?>> channels = new ConcurrentHashMap<>();
+
+    /** The channels in the order they have been registered, which is the order of delivery. */
+    private final List<EventChannel<?>> channelList = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a new event type.
+     *
+     * @param <E>
+     *            the type of events
+     * @param type
+     *            the class of the events
+     * @param factory
+     *            creates the event records
+     * @return the channel of the event type
+     * @throws IllegalArgumentException
+     *             if the type has already been registered
+     */
+    public <E extends Event> EventChannel<E> register(Class<E> type, Supplier<E> factory) throws IllegalArgumentException {
+        if (factory == null) throw new NullPointerException("factory must not be null");
+        EventChannel<E> channel = new EventChannel<>(type, factory);
+        if (channels.putIfAbsent(type, channel) != null) throw new IllegalArgumentException("event type already registered " + type.getName());
+        channelList.add(channel);
+        return channel;
+    }
+
+    /**
+     * Returns the channel of the specified event type.
+     *
+     * @param <E>
+     *            the type of events
+     * @param type
+     *            the class of the events
+     * @return the channel
+     * @throws IllegalArgumentException
+     *             if the type has not been registered
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Event> EventChannel<E> getChannel(Class<E> type) throws IllegalArgumentException {
+        EventChannel<?> channel = channels.get(type);
+        if (channel == null) throw new IllegalArgumentException("event type not registered " + type.getName());
+        return (EventChannel<E>) channel;
+    }
+
+    /**
+     * Returns {@code true} if the specified event type has been registered.
+     *
+     * @param type
+     *            the class of the events
+     * @return {@code true} if the type has a channel
+     */
+    public boolean hasChannel(Class<?> type) {
+        return channels.containsKey(type);
+    }
+
+    /**
+     * Queues a new event, the caller fills in the returned record.
+     *
+     * @see EventChannel#publish(Entity)
+     */
+    public <E extends Event> E publish(Class<E> type, Entity target) throws IllegalArgumentException {
+        return getChannel(type).publish(target);
+    }
+
+    public <E extends Event> void addListener(Class<E> type, IEventListener<? super E> listener) throws IllegalArgumentException {
+        getChannel(type).addListener(listener);
+    }
+
+    public <E extends Event> void removeListener(Class<E> type, IEventListener<? super E> listener) throws IllegalArgumentException {
+        getChannel(type).removeListener(listener);
+    }
+
+    public <E extends Event> void addListener(Class<E> type, Entity entity, IEventListener<? super E> listener) throws IllegalArgumentException {
+        getChannel(type).addListener(entity, listener);
+    }
+
+    public <E extends Event> void removeListener(Class<E> type, Entity entity, IEventListener<? super E> listener) throws IllegalArgumentException {
+        getChannel(type).removeListener(entity, listener);
+    }
+
+    /**
+     * Delivers the queued events of all channels in the order the channels
+     * have been registered, until no channel has events left. This method is
+     * called by the engine.
+     */
+    public void deliver() {
+        boolean delivered;
+        do {
+            delivered = false;
+            for (int i = 0; i < channelList.size(); i++) {
+                delivered |= channelList.get(i).deliver();
+            }
+        } while (delivered);
+    }
+
+    /**
+     * Removes the entity listeners of the specified entity from all channels.
+     * This method is called by the engine when an entity has been removed.
+     *
+     * @param entity
+     *            the removed entity
+     */
+    public void removeListeners(Entity entity) {
+        for (EventChannel<?> channel : channelList) {
+            channel.removeListeners(entity);
+        }
+    }
+
+    /**
+     * Removes all queued events and listeners, the channels stay registered.
+     */
+    public void clear() {
+        for (EventChannel<?> channel : channelList) {
+            channel.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EventBus{channels=" + channelList + '}';
+    }
+}
@@ -0,0 +1,163 @@
+package blank2d.framework.ecs.event;
+
+import blank2d.framework.ecs.Entity;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * A queue of events of one type together with its listeners. Published events
+ * are kept until the channel is delivered, the event records are created on
+ * demand and reused afterwards, so publishing does not allocate once the
+ * channel has grown to the number of events of a typical frame.
+ *
+ * @param <E>
+ *            the type of events
+ */
+public final class EventChannel<E extends Event> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Class<E> type;
+    private final Supplier<E> factory;
+
+    private E[] records;
+    private int size;
+
+    /** The listeners receiving all events of this channel. */
+    private final List<IEventListener<? super E>> listeners = new CopyOnWriteArrayList<>();
+
+    /** The listeners of single entities, only entities with listeners have an entry. */
+    private final Map<Entity, List<IEventListener<? super E>>> entityListeners = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    EventChannel(Class<E> type, Supplier<E> factory) {
+        this.type = type;
+        this.factory = factory;
+        records = (E[]) new Event[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Queues a new event, the caller fills in the returned record. This method
+     * may be called from worker threads.
+     *
+     * @param target
+     *            the entity the event is addressed to or {@code null}
+     * @return the event record
+     */
+    public synchronized E publish(Entity target) {
+        if (size == records.length) records = Arrays.copyOf(records, size * 2);
+        E event = records[size];
+        if (event == null) {
+            event = factory.get();
+            records[size] = event;
+        }
+        size++;
+        event.target = target;
+        return event;
+    }
+
+    /**
+     * Delivers all queued events to the listeners of this channel and to the
+     * listeners of their target entities, events published meanwhile are
+     * delivered as well. The records are cleared for reuse afterwards.
+     *
+     * @return {@code true} if at least one event has been delivered
+     */
+    boolean deliver() {
+        if (size == 0) return false;
+        for (int i = 0; i < size; i++) {
+            E event = records[i];
+            for (int l = 0; l < listeners.size(); l++) {
+                listeners.get(l).receive(event);
+            }
+            if (event.target != null && !entityListeners.isEmpty()) {
+                List<IEventListener<? super E>> targetListeners = entityListeners.get(event.target);
+                if (targetListeners != null) {
+                    for (int l = 0; l < targetListeners.size(); l++) {
+                        targetListeners.get(l).receive(event);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            records[i].clear();
+        }
+        size = 0;
+        return true;
+    }
+
+    public void addListener(IEventListener<? super E> listener) {
+        if (listener == null) throw new NullPointerException("listener must not be null");
+        listeners.add(listener);
+    }
+
+    public void removeListener(IEventListener<? super E> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds a listener receiving the events addressed to the specified entity.
+     * The listener is removed automatically when the entity is removed from
+     * its engine.
+     *
+     * @param entity
+     *            the target entity
+     * @param listener
+     *            the listener
+     */
+    public void addListener(Entity entity, IEventListener<? super E> listener) {
+        if (listener == null) throw new NullPointerException("listener must not be null");
+        entityListeners.computeIfAbsent(entity, e -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void removeListener(Entity entity, IEventListener<? super E> listener) {
+        List<IEventListener<? super E>> targetListeners = entityListeners.get(entity);
+        if (targetListeners == null) return;
+        targetListeners.remove(listener);
+        if (targetListeners.isEmpty()) entityListeners.remove(entity);
+    }
+
+    void removeListeners(Entity entity) {
+        if (!entityListeners.isEmpty()) entityListeners.remove(entity);
+    }
+
+    /**
+     * Removes all queued events and listeners.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            records[i].clear();
+        }
+        size = 0;
+        listeners.clear();
+        entityListeners.clear();
+    }
+
+    /**
+     * Returns the number of queued events.
+     *
+     * @return the number of events
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public Class<E> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "EventChannel{" +
+                "type=" + type.getSimpleName() +
+                ", queued=" + size +
+                ", listeners=" + listeners.size() +
+                ", entityListeners=" + entityListeners.size() +
+                '}';
+    }
+}
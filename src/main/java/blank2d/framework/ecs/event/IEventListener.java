@@ -0,0 +1,19 @@
+package blank2d.framework.ecs.event;
+
+/**
+ * The interface for event listeners.
+ *
+ * @param <E>
+ *            the type of events the listener receives
+ */
+public interface IEventListener<E extends Event> {
+
+    /**
+     * Invoked when an event is delivered. The event must not be kept, it is
+     * reused once the delivery is complete.
+     *
+     * @param event
+     *            the delivered event
+     */
+    void receive(E event);
+}
@@ -0,0 +1,58 @@
+package blank2d.framework.ecs.event;
+
+import blank2d.framework.ecs.component.physics2d.collider.Collider;
+
+/**
+ * Published when a collider enters or exits a trigger collider. The event is
+ * addressed to the entity of the trigger.
+ */
+public final class TriggerEvent extends Event {
+
+    private Collider trigger;
+    private Collider other;
+    private boolean entered;
+
+    /**
+     * Fills in this event.
+     *
+     * @param trigger
+     *            the trigger collider
+     * @param other
+     *            the collider that entered or exited the trigger
+     * @param entered
+     *            {@code true} if the collider entered the trigger
+     */
+    public void set(Collider trigger, Collider other, boolean entered) {
+        this.trigger = trigger;
+        this.other = other;
+        this.entered = entered;
+    }
+
+    public Collider getTrigger() {
+        return trigger;
+    }
+
+    public Collider getOther() {
+        return other;
+    }
+
+    public boolean isEntered() {
+        return entered;
+    }
+
+    @Override
+    protected void clear() {
+        super.clear();
+        trigger = null;
+        other = null;
+    }
+
+    @Override
+    public String toString() {
+        return "TriggerEvent{" +
+                "trigger=" + trigger +
+                ", other=" + other +
+                ", entered=" + entered +
+                '}';
+    }
+}
@@ -0,0 +1,14 @@
+package blank2d.framework.ecs.signal.entity;
+
+import blank2d.framework.ecs.Entity;
+import blank2d.framework.ecs.component.script.EntityScript;
+import blank2d.framework.ecs.signal.ISignalListener;
+
+public class EntityResumedListener implements ISignalListener<Entity> {
+    @Override
+    public void receive(Entity object) {
+        for (EntityScript script : object.getAllComponents(EntityScript.class)) {
+            script.onResume();
+        }
+    }
+}
@@ -8,4 +8,12 @@ public class EntitySignal extends Signal<Entity> {
     public void destroy(Entity entity){
         dispatch(entity, EntityRemovedListener.class);
     }
+
+    public void suspend(Entity entity){
+        dispatch(entity, EntitySuspendedListener.class);
+    }
+
+    public void resume(Entity entity){
+        dispatch(entity, EntityResumedListener.class);
+    }
 }
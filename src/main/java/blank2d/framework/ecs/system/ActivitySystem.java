@@ -0,0 +1,193 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.framework.ecs.*;
+import blank2d.framework.ecs.component.physics2d.Transform;
+import blank2d.framework.ecs.component.rendering.Camera;
+import blank2d.util.math.Vector2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Suspends entities that are far away from the camera and other anchor
+ * entities, so systems only process the entities around the player. The world
+ * is divided into a grid of square cells, the active region consists of the
+ * cells within the cell radius of the cell of each anchor. Entities of the
+ * family outside the active region are suspended, dormant entities are resumed
+ * as soon as the region moves over them again.
+ *
+ * <p>
+ * Active entities are suspended once they are more than one cell outside the
+ * region, so entities moving along the border do not toggle every frame. Only
+ * active entities whose transform changed are tested, unless an anchor moved
+ * to another cell. Entities with a camera and anchors are never suspended.
+ * </p>
+ *
+ * <pre>
+ * engine.addSystem(new ActivitySystem(EntityFamily.transformEF, 512, 2));
+ * engine.getSystem(ActivitySystem.class).addAnchor(player);
+ * </pre>
+ */
+public class ActivitySystem extends IteratingSystem {
+
+    private final float cellSize;
+    private final int cellRadius;
+
+    private final List<Entity> anchors = new ArrayList<>();
+    private List<Entity> cameras;
+
+    /** The x and y cell of each anchor, the cells of the previous update follow. */
+    private int[] anchorCells = new int[8];
+    private int[] previousAnchorCells = new int[8];
+    private int numOfAnchorCells;
+    private int numOfPreviousAnchorCells;
+
+    /** The entities this system suspended, may contain entities that have been resumed or removed since. */
+    private final List<Entity> suspended = new ArrayList<>();
+
+    private final Vector2D position = new Vector2D();
+
+    /**
+     * Creates a new instance
+     *
+     * @param family the family of entities that may be suspended
+     * @param cellSize the width and height of a grid cell in world units
+     * @param cellRadius the number of cells around the cell of an anchor that are active
+     * @throws NullPointerException in case the specified entity family is null
+     * @throws IllegalArgumentException if the cell size is not greater than zero or the radius is negative
+     */
+    public ActivitySystem(EntityFamily family, float cellSize, int cellRadius) {
+        super(family);
+        if (cellSize <= 0) throw new IllegalArgumentException("cell size must be greater than zero");
+        if (cellRadius < 0) throw new IllegalArgumentException("cell radius must not be negative");
+        this.cellSize = cellSize;
+        this.cellRadius = cellRadius;
+        setChangeFilter(Transform.class);
+        // resolving world positions may rebuild the cached matrices of transforms
+        reads(Camera.class);
+        writes(Transform.class);
+    }
+
+    @Override
+    public void addedToEngine(Engine e) {
+        super.addedToEngine(e);
+        cameras = e.getEntities(EntityFamily.cameraEF);
+        numOfPreviousAnchorCells = 0;
+    }
+
+    @Override
+    public void removedFromEngine(Engine e) {
+        for (Entity entity : suspended) {
+            if (entity.getEngine() == e) e.resumeEntity(entity);
+        }
+        suspended.clear();
+        cameras = null;
+        super.removedFromEngine(e);
+    }
+
+    @Override
+    public void update() {
+        updateAnchorCells();
+        if (numOfAnchorCells == 0) return;
+        if (anchorCellsChanged()) {
+            resumeEntities();
+            for (Entity entity : getEntityList()) {
+                processEntity(entity);
+            }
+        } else {
+            super.update();
+        }
+    }
+
+    @Override
+    protected void processEntity(Entity entity) {
+        if (isAnchor(entity) || isInside(entity, cellRadius + 1)) return;
+        getEngine().suspendEntity(entity);
+        suspended.add(entity);
+    }
+
+    private void resumeEntities() {
+        for (int i = suspended.size() - 1; i >= 0; i--) {
+            Entity entity = suspended.get(i);
+            if (entity.getEngine() == getEngine() && entity.isDormant()) {
+                if (!isInside(entity, cellRadius)) continue;
+                getEngine().resumeEntity(entity);
+            }
+            suspended.set(i, suspended.get(suspended.size() - 1));
+            suspended.remove(suspended.size() - 1);
+        }
+    }
+
+    private void updateAnchorCells() {
+        int[] swap = previousAnchorCells;
+        previousAnchorCells = anchorCells;
+        anchorCells = swap;
+        numOfPreviousAnchorCells = numOfAnchorCells;
+        numOfAnchorCells = 0;
+
+        for (Entity camera : cameras) {
+            Camera c = camera.getComponent(Camera.class);
+            camera.getComponent(Transform.class).getWorldPosition(position);
+            addAnchorCell(position.x + c.getSize().x / c.getZoomFactor() / 2, position.y + c.getSize().y / c.getZoomFactor() / 2);
+        }
+        for (Entity anchor : anchors) {
+            anchor.getComponent(Transform.class).getWorldPosition(position);
+            addAnchorCell(position.x, position.y);
+        }
+    }
+
+    private void addAnchorCell(float x, float y) {
+        if (numOfAnchorCells + 2 > anchorCells.length) anchorCells = Arrays.copyOf(anchorCells, anchorCells.length * 2);
+        anchorCells[numOfAnchorCells++] = toCell(x);
+        anchorCells[numOfAnchorCells++] = toCell(y);
+    }
+
+    private boolean anchorCellsChanged() {
+        if (numOfAnchorCells != numOfPreviousAnchorCells) return true;
+        for (int i = 0; i < numOfAnchorCells; i++) {
+            if (anchorCells[i] != previousAnchorCells[i]) return true;
+        }
+        return false;
+    }
+
+    private boolean isInside(Entity entity, int radius) {
+        entity.getComponent(Transform.class).getWorldPosition(position);
+        int x = toCell(position.x);
+        int y = toCell(position.y);
+        for (int i = 0; i < numOfAnchorCells; i += 2) {
+            if (Math.abs(x - anchorCells[i]) <= radius && Math.abs(y - anchorCells[i + 1]) <= radius) return true;
+        }
+        return false;
+    }
+
+    private boolean isAnchor(Entity entity) {
+        return anchors.contains(entity) || entity.hasComponent(Camera.class);
+    }
+
+    private int toCell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Adds an entity the active region is centered around, e.g. the player.
+     * Anchors are never suspended.
+     * @param anchor the anchor entity
+     */
+    public void addAnchor(Entity anchor) {
+        if (anchor == null) throw new NullPointerException("anchor must not be null");
+        if (!anchors.contains(anchor)) anchors.add(anchor);
+    }
+
+    public void removeAnchor(Entity anchor) {
+        anchors.remove(anchor);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getCellRadius() {
+        return cellRadius;
+    }
+}
@@ -1,11 +1,10 @@
 package blank2d.framework.ecs.system;
 
-import blank2d.framework.ecs.Entity;
-import blank2d.framework.ecs.EntityFamily;
-import blank2d.framework.ecs.IteratingSystem;
+import blank2d.framework.ecs.*;
 import blank2d.framework.ecs.component.rendering.AnimationController;
+import blank2d.framework.ecs.component.rendering.SpriteRenderer;
 
-public class AnimationSystem extends IteratingSystem {
+public class AnimationSystem extends ParallelIteratingSystem {
     /**
      * Creates a new instance
      *
@@ -14,6 +13,20 @@ public class AnimationSystem extends IteratingSystem {
      */
     public AnimationSystem(EntityFamily family) {
         super(family);
+        writes(AnimationController.class, SpriteRenderer.class);
+    }
+
+    @Override
+    protected void processChunk(Archetype archetype, ArchetypeChunk chunk, int from, int to) {
+        int column = archetype.getColumnIndex(AnimationController.class);
+        if (column < 0) {
+            super.processChunk(archetype, chunk, from, to);
+            return;
+        }
+        Component[] controllers = chunk.getColumn(column);
+        for (int i = from; i < to; i++) {
+            ((AnimationController) controllers[i]).update();
+        }
     }
 
     @Override
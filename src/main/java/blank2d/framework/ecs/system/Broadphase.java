@@ -0,0 +1,100 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.framework.ecs.Entity;
+import blank2d.framework.ecs.component.physics2d.collider.Collider;
+
+import java.util.List;
+
+/**
+ * Finds the colliders that may overlap an area without testing every collider
+ * of the world. The bounding box of a collider is centered on the position of
+ * its transform plus its offset, with the size of its box.
+ *
+ * <p>
+ * Results are reported in an order that only depends on the order of the
+ * calls made to the broadphase, so lockstep simulations stay reproducible.
+ * </p>
+ *
+ * @see SpatialHash
+ * @see DynamicAabbTree
+ */
+public interface Broadphase {
+
+    /**
+     * Adds the collider of the specified entity.
+     *
+     * @param entity
+     *            the entity with a collider
+     */
+    void add(Entity entity);
+
+    /**
+     * Removes the collider of the specified entity.
+     *
+     * @param entity
+     *            the entity
+     */
+    void remove(Entity entity);
+
+    /**
+     * Updates the bounding box of the collider of the specified entity after
+     * it moved or changed its size.
+     *
+     * @param entity
+     *            the entity
+     * @return false if the entity has not been added
+     */
+    boolean update(Entity entity);
+
+    /**
+     * Collects the colliders whose bounding box overlaps the specified area,
+     * each collider is added once. Pass the box swept by a moving collider to
+     * find everything it may hit during a step.
+     *
+     * @param minX
+     *            the left edge of the area
+     * @param minY
+     *            the top edge of the area
+     * @param maxX
+     *            the right edge of the area
+     * @param maxY
+     *            the bottom edge of the area
+     * @param result
+     *            the list receiving the colliders
+     * @return the specified list
+     */
+    List<Collider> query(float minX, float minY, float maxX, float maxY, List<Collider> result);
+
+    /**
+     * Collects every pair of colliders whose bounding boxes overlap. Both
+     * colliders of a pair are added one after the other, each pair is added
+     * once.
+     *
+     * @param result
+     *            the list receiving the pairs
+     * @return the specified list
+     */
+    List<Collider> findPairs(List<Collider> result);
+
+    /**
+     * Sets the listener notified whenever two bounding boxes start or stop
+     * overlapping, for broadphases that track their overlapping pairs. The
+     * default implementation does not track pairs.
+     *
+     * @param listener
+     *            the listener or null to remove it
+     * @return false if this broadphase does not track pairs
+     */
+    default boolean setOverlapListener(IOverlapListener listener) {
+        return false;
+    }
+
+    /**
+     * Removes all colliders.
+     */
+    void clear();
+
+    boolean contains(Entity entity);
+
+    int size();
+}
@@ -1,6 +1,7 @@
 package blank2d.framework.ecs.system;
 
 import blank2d.framework.ecs.*;
+import blank2d.framework.ecs.component.physics2d.Transform;
 import blank2d.framework.ecs.component.rendering.Camera;
 import blank2d.framework.screen.Screen;
 import blank2d.framework.Time;
@@ -24,6 +25,8 @@ public class CameraSystem extends IteratingSystem {
      */
     public CameraSystem(EntityFamily family) {
         super(family);
+        reads(Transform.class);
+        writes(Camera.class, Screen.class);
     }
 
     @Override
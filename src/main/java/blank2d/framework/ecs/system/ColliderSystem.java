@@ -1,22 +1,112 @@
 package blank2d.framework.ecs.system;
 
+import blank2d.framework.ecs.Engine;
 import blank2d.framework.ecs.Entity;
 import blank2d.framework.ecs.EntityFamily;
+import blank2d.framework.ecs.IEntityListener;
 import blank2d.framework.ecs.IteratingSystem;
 import blank2d.framework.ecs.component.physics2d.RigidBody;
 import blank2d.framework.ecs.component.physics2d.Transform;
 import blank2d.framework.ecs.component.physics2d.collider.Collider;
-import blank2d.util.Node;
+import blank2d.framework.ecs.event.EventChannel;
+import blank2d.framework.ecs.event.TriggerEvent;
+import blank2d.framework.screen.Screen;
+import blank2d.util.math.Ray;
 import blank2d.util.math.Vector2D;
-import javafx.util.Pair;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Keeps the colliders of the family in a {@link Broadphase}, so a rigid body
+ * only casts against the colliders its swept bounding box overlaps. A
+ * {@link SpatialHash} is used unless another broadphase is specified, a
+ * {@link DynamicAabbTree} suits worlds with colliders of very different sizes.
+ * Colliders are updated when a rigid body moves them and once per fixed update
+ * for colliders whose transform or collider has been marked as changed since,
+ * so the cost of a step follows the number of moving colliders rather than the
+ * size of the world. Code writing the public fields of a transform or the box
+ * of a collider directly has to call {@code markChanged()}, the
+ * {@link TransformSystem} does this for transforms it updates.
+ *
+ * <p>
+ * With a broadphase that tracks overlapping pairs, such as
+ * {@link SweepAndPrune}, trigger events are raised whenever the bounding box
+ * of any collider starts or stops overlapping a trigger. Otherwise they are
+ * raised when a moving rigid body is about to hit or leaves a trigger.
+ * </p>
+ */
 public class ColliderSystem extends IteratingSystem {
     public boolean colliderDebug = false;
 
+    /** The default width and height of a cell of the spatial hash. */
+    public static final float DEFAULT_CELL_SIZE = 64;
+
+    /** The component types whose changes move a collider in the broadphase. */
+    private static final Class<?>[] TRACKED_TYPES = {Transform.class, Collider.class};
+
+    private EventChannel<TriggerEvent> triggerEvents;
+
+    private final Broadphase broadphase;
+    private final List<Collider> candidates = new ArrayList<>();
+    private final List<Collider> exitedTriggers = new ArrayList<>();
+    private final List<Entity> changedEntities = new ArrayList<>();
+
+    //the contacts of the last call to collectContacts, sorted by contact time
+    private Collider[] contactColliders = new Collider[16];
+    private float[] contactTimes = new float[16];
+    private int numOfContacts;
+    private final Vector2D origin = new Vector2D();
+    private final Ray collisionRay = new Ray();
+    private final Vector2D contactPoint = new Vector2D();
+    private final Vector2D contactNormal = new Vector2D();
+
+    /** True if the broadphase reports its pair changes, trigger events are then raised from these changes. */
+    private final boolean pairTracking;
+    private boolean removing;
+
+    private final IOverlapListener overlapListener = new IOverlapListener() {
+        @Override
+        public void overlapBegan(Collider a, Collider b) {
+            if (a.isTrigger()) triggerEntered(a, b);
+            else if (b.isTrigger()) triggerEntered(b, a);
+        }
+
+        @Override
+        public void overlapEnded(Collider a, Collider b) {
+            if (removing) {
+                //no events for colliders leaving the engine, only keep the lists of the remaining collider in sync
+                a.colliderExited(b);
+                b.colliderExited(a);
+            } else if (a.isCurrentlyCollidingWith(b)) {
+                triggerExited(a, b);
+            } else if (b.isCurrentlyCollidingWith(a)) {
+                triggerExited(b, a);
+            }
+        }
+    };
+
+    private final IEntityListener memberListener = new IEntityListener() {
+        @Override
+        public void entityAdded(Entity e) {
+            broadphase.add(e);
+        }
+
+        @Override
+        public void entityRemoved(Entity e) {
+            removing = true;
+            try {
+                broadphase.remove(e);
+            } finally {
+                removing = false;
+            }
+            //a removed or suspended collider must not receive exit events later on,
+            //a collider removed from its entity clears its contacts when deactivated
+            if (e.hasComponent(Collider.class)) e.getComponent(Collider.class).clearContacts();
+        }
+    };
+
     /**
      * Creates a new instance
      *
@@ -24,9 +114,85 @@ public class ColliderSystem extends IteratingSystem {
      * @throws NullPointerException in case the specified entity family is null
      */
     public ColliderSystem(EntityFamily family) {
+        this(family, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates a new instance
+     *
+     * @param family the family of entity components this system processes
+     * @param cellSize the width and height of a cell of the spatial hash, about the size of a typical collider
+     * @throws NullPointerException in case the specified entity family is null
+     * @throws IllegalArgumentException if the cell size is not greater than zero
+     */
+    public ColliderSystem(EntityFamily family, float cellSize) {
+        this(family, new SpatialHash(cellSize));
+    }
+
+    /**
+     * Creates a new instance
+     *
+     * @param family the family of entity components this system processes
+     * @param broadphase the empty broadphase holding the colliders of the family
+     * @throws NullPointerException in case the specified entity family or broadphase is null
+     */
+    public ColliderSystem(EntityFamily family, Broadphase broadphase) {
         super(family);
+        if (broadphase == null) throw new NullPointerException("broadphase must not be null");
+        this.broadphase = broadphase;
+        pairTracking = broadphase.setOverlapListener(overlapListener);
+        reads(Collider.class, Transform.class);
+        writes(Screen.class);
+    }
 
+    @Override
+    public void addedToEngine(Engine e) {
+        super.addedToEngine(e);
+        triggerEvents = e.getEventBus().getChannel(TriggerEvent.class);
+        e.addEntityListener(memberListener, getFamily());
+        for (Entity entity : getEntityList()) broadphase.add(entity);
+    }
 
+    @Override
+    public void removedFromEngine(Engine e) {
+        e.removeEntityListener(memberListener, getFamily());
+        broadphase.clear();
+        Arrays.fill(contactColliders, null);
+        numOfContacts = 0;
+        triggerEvents = null;
+        super.removedFromEngine(e);
+    }
+
+    @Override
+    public void fixedUpdate() {
+        //pick up colliders that have been moved without a rigid body, e.g. by scripts,
+        //only the entities whose transform or collider changed since the last run are visited
+        changedEntities.clear();
+        getEngine().getChangedEntities(getFamily(), getLastRunTick(), changedEntities, TRACKED_TYPES);
+        for (int i = 0; i < changedEntities.size(); i++) broadphase.update(changedEntities.get(i));
+    }
+
+    /**
+     * Updates the bounds of the collider of the specified entity in the
+     * broadphase, called by rigid bodies once they moved.
+     * @param entity the entity whose collider moved
+     */
+    public void updateCollider(Entity entity) {
+        broadphase.update(entity);
+    }
+
+    /**
+     * Collects every pair of colliders whose bounding boxes overlap, both
+     * colliders of a pair are added one after the other.
+     * @param result the list receiving the pairs
+     * @return the specified list
+     */
+    public List<Collider> findOverlappingPairs(List<Collider> result) {
+        return broadphase.findPairs(result);
+    }
+
+    public Broadphase getBroadphase() {
+        return broadphase;
     }
 
     @Override
@@ -40,55 +206,142 @@ public class ColliderSystem extends IteratingSystem {
      * Returns a list of collider in the order they need to be resolved
      * @param rb Rigid body that we want to test the distances from
      * @return list of indices that point to the ColliderSystem's entityList
+     * @see #collectContacts(RigidBody)
      */
     public List<Collider> getOrderedListOfColliders(RigidBody rb){
-        List<Pair<Collider, Float>> unorderedColliderList = new ArrayList<>();
+        int numOfContacts = collectContacts(rb);
+        List<Collider> orderedColliderList = new ArrayList<>(numOfContacts);
+        for (int i = 0; i < numOfContacts; i++) orderedColliderList.add(contactColliders[i]);
+        return orderedColliderList;
+    }
 
-        Vector2D targetPos = new Vector2D();
-        Vector2D contactPoint = new Vector2D();
-        Vector2D contactNormal = new Vector2D();
-        Node<Float> contactTime = new Node<>();
+    /**
+     * Finds the colliders the rigid body hits during this step, in the order
+     * they need to be resolved, without allocating once the contact buffers
+     * have grown to the largest number of contacts. The contacts are read with
+     * {@link #getContactCollider(int)} and {@link #getContactTime(int)} and
+     * stay valid until the next call.
+     * @param rb Rigid body that we want to test the distances from
+     * @return the number of contacts
+     */
+    public int collectContacts(RigidBody rb){
+        Vector2D velocity = rb.getLinearVelocity();
+        return collectContacts(rb.getCollider(), velocity.x, velocity.y);
+    }
+
+    /**
+     * Finds the colliders a collider moving by the specified velocity hits
+     * during this step, in the order they need to be resolved.
+     * @param rbCollider the collider of the moving rigid body
+     * @param velocityX the x component of the velocity of the rigid body
+     * @param velocityY the y component of the velocity of the rigid body
+     * @return the number of contacts
+     * @see #collectContacts(RigidBody)
+     */
+    public int collectContacts(Collider rbCollider, float velocityX, float velocityY){
+        numOfContacts = 0;
 
-        for (Entity entity : getEntityList()) {
-            Collider collider = entity.getComponent(Collider.class);
-            Collider rbCollider = rb.getCollider();
+        //the bounding box swept by the rigid body during this step
+        Vector2D.add(origin, rbCollider.getOffset(), rbCollider.getEntity().getComponent(Transform.class).position);
+        Vector2D size = rbCollider.getBox().getSize();
+        float halfWidth = size.x / 2;
+        float halfHeight = size.y / 2;
+        candidates.clear();
+        broadphase.query(Math.min(origin.x, origin.x + velocityX) - halfWidth, Math.min(origin.y, origin.y + velocityY) - halfHeight,
+                Math.max(origin.x, origin.x + velocityX) + halfWidth, Math.max(origin.y, origin.y + velocityY) + halfHeight, candidates);
+
+        //triggers the rigid body left the cells of cannot be hit anymore
+        if (!pairTracking) {
+            exitedTriggers.clear();
+            List<Collider> overlappingTriggers = rbCollider.getOverlappingTriggers();
+            for (int i = 0; i < overlappingTriggers.size(); i++) {
+                Collider trigger = overlappingTriggers.get(i);
+                if (!candidates.contains(trigger)) exitedTriggers.add(trigger);
+            }
+            for (int i = 0; i < exitedTriggers.size(); i++) triggerExited(exitedTriggers.get(i), rbCollider);
+        }
+
+        collisionRay.getOrigin().setXY(origin);
+        collisionRay.getDirection().setXY(velocityX, velocityY);
+        for (int i = 0; i < candidates.size(); i++) {
+            Collider collider = candidates.get(i);
             //don't check against self
             if (rbCollider.equals(collider)) continue;
-            Vector2D.add(targetPos, collider.getOffset(), collider.getEntity().getComponent(Transform.class).position);
-            if (rb.detectCollision(collider.getBox(), targetPos, contactPoint, contactNormal, contactTime)) {
-                unorderedColliderList.add(new Pair<>(collider, contactTime.getData()));
-                if (collider.isTrigger() && !collider.isCurrentlyCollidingWith(rbCollider))
+            //cast against the target grown by the size of the moving collider
+            Vector2D position = collider.getEntity().getComponent(Transform.class).position;
+            Vector2D targetSize = collider.getBox().getSize();
+            float contactTime = collisionRay.rayCastTargetRect(targetSize.x + size.x, targetSize.y + size.y,
+                    collider.getOffset().x + position.x, collider.getOffset().y + position.y, contactPoint, contactNormal);
+            if (contactTime < 1.0f) {
+                addContact(collider, contactTime);
+                if (!pairTracking && collider.isTrigger() && !collider.isCurrentlyCollidingWith(rbCollider))
                     triggerEntered(collider, rbCollider);
-            } else if (collider.isTrigger() && collider.isCurrentlyCollidingWith(rbCollider)) {
+            } else if (!pairTracking && collider.isTrigger() && collider.isCurrentlyCollidingWith(rbCollider)) {
                 triggerExited(collider, rbCollider);
             }
         }
-        //sort the list of pairs base on the value, which is the contactTime
-        unorderedColliderList.sort(Comparator.comparing(Pair::getValue));
-        List<Collider> orderedColliderList = new ArrayList<>(unorderedColliderList.size());
-        for (Pair<Collider, Float> pair: unorderedColliderList) {
-            orderedColliderList.add(pair.getKey());
+        return numOfContacts;
+    }
+
+    //inserts the contact sorted by its time, after the contacts of the same time
+    private void addContact(Collider collider, float contactTime) {
+        if (numOfContacts == contactColliders.length) {
+            contactColliders = Arrays.copyOf(contactColliders, numOfContacts * 2);
+            contactTimes = Arrays.copyOf(contactTimes, numOfContacts * 2);
         }
-        return orderedColliderList;
+        int i = numOfContacts++;
+        for (; i > 0 && Float.compare(contactTimes[i - 1], contactTime) > 0; i--) {
+            contactColliders[i] = contactColliders[i - 1];
+            contactTimes[i] = contactTimes[i - 1];
+        }
+        contactColliders[i] = collider;
+        contactTimes[i] = contactTime;
+    }
+
+    /**
+     * Returns a collider found by the last call to {@link #collectContacts(RigidBody)}.
+     * @param index the index of the contact, contacts are sorted by their time
+     * @return the collider
+     * @throws IndexOutOfBoundsException if the index is not less than the number of contacts
+     */
+    public Collider getContactCollider(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= numOfContacts) throw new IndexOutOfBoundsException("index " + index + " out of " + numOfContacts);
+        return contactColliders[index];
+    }
+
+    /**
+     * Returns the time of a contact found by the last call to {@link #collectContacts(RigidBody)}.
+     * @param index the index of the contact, contacts are sorted by their time
+     * @return the time of contact, in fractions of the step
+     * @throws IndexOutOfBoundsException if the index is not less than the number of contacts
+     */
+    public float getContactTime(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= numOfContacts) throw new IndexOutOfBoundsException("index " + index + " out of " + numOfContacts);
+        return contactTimes[index];
     }
 
     //tells the system that a collider has entered collision with
+    //the trigger events are delivered once all systems have been updated
     public void triggerEntered(Collider trigger, Collider otherCollider){
-        trigger.getTriggerSignal().entered(otherCollider);
+        publish(trigger, otherCollider, true);
         trigger.colliderEntered(otherCollider);
         if(otherCollider.isTrigger()){
-            otherCollider.getTriggerSignal().entered(trigger);
+            publish(otherCollider, trigger, true);
             otherCollider.colliderEntered(trigger);
         }
     }
 
     public void triggerExited(Collider trigger, Collider otherCollider){
-        trigger.getTriggerSignal().exited(otherCollider);
+        publish(trigger, otherCollider, false);
         trigger.colliderExited(otherCollider);
         if(otherCollider.isTrigger()) {
-            otherCollider.getTriggerSignal().exited(trigger);
+            publish(otherCollider, trigger, false);
             otherCollider.colliderExited(trigger);
         }
     }
 
+    private void publish(Collider trigger, Collider otherCollider, boolean entered){
+        triggerEvents.publish(trigger.getEntity()).set(trigger, otherCollider, entered);
+    }
+
 }
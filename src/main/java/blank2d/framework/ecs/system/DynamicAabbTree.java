@@ -0,0 +1,458 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.framework.ecs.Entity;
+import blank2d.framework.ecs.component.physics2d.Transform;
+import blank2d.framework.ecs.component.physics2d.collider.Collider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A broadphase that keeps the colliders in a bounding volume hierarchy. Each
+ * leaf holds the bounding box of a collider enlarged by a margin, each inner
+ * node the union of its children. Unlike a grid, the tree adapts to colliders
+ * of very different sizes, such as huge static platforms next to tiny bullets.
+ *
+ * <p>
+ * A collider that moves within its enlarged box only updates its tight bounds,
+ * otherwise its leaf is removed and inserted again. Leaves are inserted next to
+ * the sibling that increases the perimeter of the tree the least and the
+ * ancestors of a changed leaf are refitted and balanced by rotations, so the
+ * height of the tree stays logarithmic.
+ * </p>
+ *
+ * <p>
+ * The nodes are stored in parallel arrays and recycled through a free list,
+ * so moving colliders does not allocate.
+ * </p>
+ */
+public final class DynamicAabbTree implements Broadphase {
+
+    /** The default margin the bounding box of a leaf is enlarged by on every side. */
+    public static final float DEFAULT_MARGIN = 4;
+
+    private static final int NULL = -1;
+
+    private final float margin;
+
+    private float[] minX = new float[16], minY = new float[16], maxX = new float[16], maxY = new float[16];
+    private int[] parent = new int[16], child1 = new int[16], child2 = new int[16], height = new int[16];
+    private Proxy[] leafProxies = new Proxy[16];
+    private int capacity = 16;
+    private int numOfNodes;
+    private int freeList = NULL;
+    private int root = NULL;
+
+    private final Map<Entity, Proxy> proxies = new IdentityHashMap<>();
+    /** The proxies in insertion order, pairs are enumerated in this order. */
+    private final List<Proxy> proxyList = new ArrayList<>();
+
+    private int[] stack = new int[64];
+    private final List<Proxy> found = new ArrayList<>();
+
+    /**
+     * Creates a new instance with the {@link #DEFAULT_MARGIN}.
+     */
+    public DynamicAabbTree() {
+        this(DEFAULT_MARGIN);
+    }
+
+    /**
+     * Creates a new instance
+     * @param margin the margin the bounding box of a leaf is enlarged by, larger margins
+     *               mean fewer reinsertions of moving colliders but more candidates per query
+     * @throws IllegalArgumentException if the margin is negative
+     */
+    public DynamicAabbTree(float margin) {
+        if (!(margin >= 0)) throw new IllegalArgumentException("margin must not be negative");
+        this.margin = margin;
+        initFreeList(0);
+    }
+
+    @Override
+    public void add(Entity entity) {
+        if (proxies.containsKey(entity)) {
+            update(entity);
+            return;
+        }
+        Proxy proxy = new Proxy(entity);
+        proxies.put(entity, proxy);
+        proxy.index = proxyList.size();
+        proxyList.add(proxy);
+        computeBounds(proxy);
+        proxy.leaf = allocateNode();
+        leafProxies[proxy.leaf] = proxy;
+        setFatBounds(proxy);
+        insertLeaf(proxy.leaf);
+    }
+
+    @Override
+    public void remove(Entity entity) {
+        Proxy proxy = proxies.remove(entity);
+        if (proxy == null) return;
+        removeLeaf(proxy.leaf);
+        freeNode(proxy.leaf);
+        Proxy last = proxyList.remove(proxyList.size() - 1);
+        if (last != proxy) {
+            last.index = proxy.index;
+            proxyList.set(proxy.index, last);
+        }
+    }
+
+    @Override
+    public boolean update(Entity entity) {
+        Proxy proxy = proxies.get(entity);
+        if (proxy == null) return false;
+        computeBounds(proxy);
+        int leaf = proxy.leaf;
+        if (minX[leaf] <= proxy.minX && minY[leaf] <= proxy.minY && maxX[leaf] >= proxy.maxX && maxY[leaf] >= proxy.maxY) return true;
+        removeLeaf(leaf);
+        setFatBounds(proxy);
+        insertLeaf(leaf);
+        return true;
+    }
+
+    @Override
+    public List<Collider> query(float minX, float minY, float maxX, float maxY, List<Collider> result) {
+        found.clear();
+        queryProxies(minX, minY, maxX, maxY, found);
+        for (int i = 0; i < found.size(); i++) result.add(found.get(i).collider);
+        return result;
+    }
+
+    @Override
+    public List<Collider> findPairs(List<Collider> result) {
+        for (int i = 0; i < proxyList.size(); i++) {
+            Proxy proxy = proxyList.get(i);
+            found.clear();
+            queryProxies(proxy.minX, proxy.minY, proxy.maxX, proxy.maxY, found);
+            for (int j = 0; j < found.size(); j++) {
+                Proxy other = found.get(j);
+                // report each pair from the proxy with the lower index only
+                if (other.index <= proxy.index) continue;
+                result.add(proxy.collider);
+                result.add(other.collider);
+            }
+        }
+        return result;
+    }
+
+    private void queryProxies(float qMinX, float qMinY, float qMaxX, float qMaxY, List<Proxy> result) {
+        if (root == NULL) return;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            if (minX[node] > qMaxX || maxX[node] < qMinX || minY[node] > qMaxY || maxY[node] < qMinY) continue;
+            if (child1[node] == NULL) {
+                Proxy proxy = leafProxies[node];
+                //the fat box overlaps, the collider itself may not
+                if (proxy.minX <= qMaxX && proxy.maxX >= qMinX && proxy.minY <= qMaxY && proxy.maxY >= qMinY) result.add(proxy);
+                continue;
+            }
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = child2[node];
+            stack[top++] = child1[node];
+        }
+    }
+
+    private void computeBounds(Proxy proxy) {
+        Collider collider = proxy.entity.getComponent(Collider.class);
+        proxy.collider = collider;
+        Transform transform = proxy.entity.getComponent(Transform.class);
+        float halfWidth = collider.getBox().getSize().x / 2;
+        float halfHeight = collider.getBox().getSize().y / 2;
+        float x = transform.position.x + collider.getOffset().x;
+        float y = transform.position.y + collider.getOffset().y;
+        proxy.minX = x - halfWidth;
+        proxy.minY = y - halfHeight;
+        proxy.maxX = x + halfWidth;
+        proxy.maxY = y + halfHeight;
+    }
+
+    private void setFatBounds(Proxy proxy) {
+        int leaf = proxy.leaf;
+        minX[leaf] = proxy.minX - margin;
+        minY[leaf] = proxy.minY - margin;
+        maxX[leaf] = proxy.maxX + margin;
+        maxY[leaf] = proxy.maxY + margin;
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        //find the sibling whose union with the leaf increases the perimeter of the tree the least
+        int index = root;
+        while (child1[index] != NULL) {
+            int c1 = child1[index];
+            int c2 = child2[index];
+            float area = perimeter(index);
+            float combinedArea = unionPerimeter(index, leaf);
+
+            //the cost of creating a new parent for this node and the leaf
+            float cost = 2 * combinedArea;
+            //the minimum cost of pushing the leaf further down the tree
+            float inheritanceCost = 2 * (combinedArea - area);
+
+            float cost1 = descentCost(c1, leaf) + inheritanceCost;
+            float cost2 = descentCost(c2, leaf) + inheritanceCost;
+            if (cost < cost1 && cost < cost2) break;
+            index = cost1 < cost2 ? c1 : c2;
+        }
+        int sibling = index;
+
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        setUnion(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling) child1[oldParent] = newParent;
+            else child2[oldParent] = newParent;
+        } else {
+            root = newParent;
+        }
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    private float descentCost(int child, int leaf) {
+        if (child1[child] == NULL) return unionPerimeter(child, leaf);
+        return unionPerimeter(child, leaf) - perimeter(child);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = child1[p] == leaf ? child2[p] : child1[p];
+        if (grandParent != NULL) {
+            if (child1[grandParent] == p) child1[grandParent] = sibling;
+            else child2[grandParent] = sibling;
+            parent[sibling] = grandParent;
+            freeNode(p);
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(p);
+        }
+    }
+
+    /**
+     * Balances and updates the bounds and heights of the specified node and
+     * its ancestors.
+     */
+    private void refit(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            int c1 = child1[index];
+            int c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            setUnion(index, c1, c2);
+            index = parent[index];
+        }
+    }
+
+    /**
+     * Rotates the higher child of node A up if the heights of its children
+     * differ by more than one.
+     * @return the node now at the position of A
+     */
+    private int balance(int a) {
+        if (child1[a] == NULL || height[a] < 2) return a;
+        int b = child1[a];
+        int c = child2[a];
+        int balance = height[c] - height[b];
+
+        if (balance > 1) {
+            int f = child1[c];
+            int g = child2[c];
+            child1[c] = a;
+            parent[c] = parent[a];
+            parent[a] = c;
+            replaceChild(parent[c], a, c);
+            if (height[f] > height[g]) {
+                child2[c] = f;
+                child2[a] = g;
+                parent[g] = a;
+                setUnion(a, b, g);
+                setUnion(c, a, f);
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            } else {
+                child2[c] = g;
+                child2[a] = f;
+                parent[f] = a;
+                setUnion(a, b, f);
+                setUnion(c, a, g);
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+            return c;
+        }
+
+        if (balance < -1) {
+            int d = child1[b];
+            int e = child2[b];
+            child1[b] = a;
+            parent[b] = parent[a];
+            parent[a] = b;
+            replaceChild(parent[b], a, b);
+            if (height[d] > height[e]) {
+                child2[b] = d;
+                child1[a] = e;
+                parent[e] = a;
+                setUnion(a, c, e);
+                setUnion(b, a, d);
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            } else {
+                child2[b] = e;
+                child1[a] = d;
+                parent[d] = a;
+                setUnion(a, c, d);
+                setUnion(b, a, e);
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+            return b;
+        }
+        return a;
+    }
+
+    private void replaceChild(int p, int oldChild, int newChild) {
+        if (p == NULL) {
+            root = newChild;
+        } else if (child1[p] == oldChild) {
+            child1[p] = newChild;
+        } else {
+            child2[p] = newChild;
+        }
+    }
+
+    private void setUnion(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+    }
+
+    private float perimeter(int node) {
+        return 2 * (maxX[node] - minX[node] + maxY[node] - minY[node]);
+    }
+
+    private float unionPerimeter(int a, int b) {
+        return 2 * (Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]) + Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]));
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL) {
+            int newCapacity = capacity * 2;
+            minX = Arrays.copyOf(minX, newCapacity);
+            minY = Arrays.copyOf(minY, newCapacity);
+            maxX = Arrays.copyOf(maxX, newCapacity);
+            maxY = Arrays.copyOf(maxY, newCapacity);
+            parent = Arrays.copyOf(parent, newCapacity);
+            child1 = Arrays.copyOf(child1, newCapacity);
+            child2 = Arrays.copyOf(child2, newCapacity);
+            height = Arrays.copyOf(height, newCapacity);
+            leafProxies = Arrays.copyOf(leafProxies, newCapacity);
+            int oldCapacity = capacity;
+            capacity = newCapacity;
+            initFreeList(oldCapacity);
+        }
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        numOfNodes++;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        leafProxies[node] = null;
+        parent[node] = freeList;
+        height[node] = -1;
+        freeList = node;
+        numOfNodes--;
+    }
+
+    /** Links the nodes from the specified index to the end of the arrays into the free list. */
+    private void initFreeList(int from) {
+        for (int i = from; i < capacity - 1; i++) {
+            parent[i] = i + 1;
+            height[i] = -1;
+        }
+        parent[capacity - 1] = NULL;
+        height[capacity - 1] = -1;
+        freeList = from;
+    }
+
+    @Override
+    public void clear() {
+        proxies.clear();
+        proxyList.clear();
+        Arrays.fill(leafProxies, null);
+        numOfNodes = 0;
+        root = NULL;
+        initFreeList(0);
+    }
+
+    @Override
+    public boolean contains(Entity entity) {
+        return proxies.containsKey(entity);
+    }
+
+    @Override
+    public int size() {
+        return proxies.size();
+    }
+
+    /**
+     * Returns the height of the tree, a leaf has the height zero.
+     * @return the height or -1 if the tree is empty
+     */
+    public int getHeight() {
+        return root == NULL ? -1 : height[root];
+    }
+
+    public int getNumOfNodes() {
+        return numOfNodes;
+    }
+
+    public float getMargin() {
+        return margin;
+    }
+
+    /**
+     * The entry of one collider, holding its tight bounds and its leaf.
+     */
+    private static final class Proxy {
+        final Entity entity;
+        Collider collider;
+        float minX, minY, maxX, maxY;
+        int leaf;
+        int index;
+
+        Proxy(Entity entity) {
+            this.entity = entity;
+        }
+    }
+}
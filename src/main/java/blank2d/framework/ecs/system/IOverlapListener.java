@@ -0,0 +1,14 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.framework.ecs.component.physics2d.collider.Collider;
+
+/**
+ * Receives the changes of the overlapping pairs tracked by a broadphase. The
+ * methods are called while the broadphase is updated and must not modify it.
+ *
+ * @see Broadphase#setOverlapListener(IOverlapListener)
+ */
+public interface IOverlapListener {
+    void overlapBegan(Collider a, Collider b);
+    void overlapEnded(Collider a, Collider b);
+}
@@ -1,19 +1,42 @@
 package blank2d.framework.ecs.system;
 
-import blank2d.framework.ecs.Entity;
-import blank2d.framework.ecs.EntityFamily;
-import blank2d.framework.ecs.IteratingSystem;
+import blank2d.framework.Time;
+import blank2d.framework.ecs.*;
 import blank2d.framework.ecs.component.physics2d.RigidBody;
+import blank2d.framework.ecs.component.physics2d.RigidBodyStore;
 import blank2d.util.math.Vector2D;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class PhysicsSystem extends IteratingSystem {
+/**
+ * Applies the global forces to the rigid bodies of the family and moves them
+ * once per fixed update. By default each rigid body component integrates and
+ * moves itself. With {@link #setStructureOfArrays(boolean)} the state of the
+ * bodies is kept in a {@link RigidBodyStore} instead and integrated in one
+ * loop over its columns.
+ */
+public class PhysicsSystem extends ParallelIteratingSystem {
 
-    public static Vector2D gravity = new Vector2D(0, 9.81f);
+    /** The gravity of this system, each engine has its own. */
+    private Vector2D gravity = new Vector2D(0, 9.81f);
     private final List<Vector2D> globalForces = new ArrayList<>();
 
+    /** Holds the state of the bodies in structure of arrays mode, null otherwise. */
+    private RigidBodyStore store;
+
+    private final IEntityListener memberListener = new IEntityListener() {
+        @Override
+        public void entityAdded(Entity e) {
+            store.add(e);
+        }
+
+        @Override
+        public void entityRemoved(Entity e) {
+            store.remove(e);
+        }
+    };
+
     /**
      * Creates a new instance
      *
@@ -22,11 +45,85 @@ public class PhysicsSystem extends IteratingSystem {
      */
     public PhysicsSystem(EntityFamily family) {
         super(family);
+        // moving a body resolves collisions against other bodies and runs trigger scripts,
+        // so this system stays exclusive and its fixed update sequential
+        setParallelFixedUpdate(false);
+    }
+
+    @Override
+    public void addedToEngine(Engine e) {
+        super.addedToEngine(e);
+        if (store != null) bind(e);
+    }
+
+    @Override
+    public void removedFromEngine(Engine e) {
+        if (store != null) unbind(e);
+        super.removedFromEngine(e);
+    }
+
+    private void bind(Engine e) {
+        e.addEntityListener(memberListener, getFamily());
+        List<Entity> entities = getEntityList();
+        for (int i = 0; i < entities.size(); i++) store.add(entities.get(i));
+    }
+
+    private void unbind(Engine e) {
+        e.removeEntityListener(memberListener, getFamily());
+        store.clear();
+    }
+
+    @Override
+    public void update() {
+        if (store == null) {
+            super.update();
+            return;
+        }
+        store.resetForces(globalForces);
+    }
+
+    @Override
+    public void fixedUpdate() {
+        if (store == null) {
+            super.fixedUpdate();
+            return;
+        }
+        float dt = (float) Time.nanoToSeconds(getEngine().getGame().getTimeBetweenFixedUpdates());
+        store.step(dt, gravity, getEngine());
+    }
+
+    @Override
+    protected void processChunk(Archetype archetype, ArchetypeChunk chunk, int from, int to) {
+        int column = archetype.getColumnIndex(RigidBody.class);
+        if (column < 0) {
+            super.processChunk(archetype, chunk, from, to);
+            return;
+        }
+        Component[] rigidBodies = chunk.getColumn(column);
+        for (int i = from; i < to; i++) {
+            applyGlobalForces((RigidBody) rigidBodies[i]);
+        }
+    }
+
+    @Override
+    protected void fixedProcessChunk(Archetype archetype, ArchetypeChunk chunk, int from, int to) {
+        int column = archetype.getColumnIndex(RigidBody.class);
+        if (column < 0) {
+            super.fixedProcessChunk(archetype, chunk, from, to);
+            return;
+        }
+        Component[] rigidBodies = chunk.getColumn(column);
+        for (int i = from; i < to; i++) {
+            ((RigidBody) rigidBodies[i]).fixedUpdate(gravity);
+        }
     }
 
     @Override
     protected void processEntity(Entity entity) {
-        RigidBody rb = entity.getComponent(RigidBody.class);
+        applyGlobalForces(entity.getComponent(RigidBody.class));
+    }
+
+    private void applyGlobalForces(RigidBody rb) {
         rb.forceReset();
         if(!rb.isKinematic())
             for (Vector2D globalForce: globalForces) {
@@ -36,14 +133,44 @@ public class PhysicsSystem extends IteratingSystem {
 
     @Override
     protected void fixedProcessEntity(Entity entity) {
-        entity.getComponent(RigidBody.class).fixedUpdate();
+        entity.getComponent(RigidBody.class).fixedUpdate(gravity);
+    }
+
+    /**
+     * Keeps the state of the rigid bodies in primitive columns, one array per
+     * value, instead of the rigid body components. The bodies are then
+     * integrated in one loop and resolved in the order they joined the family,
+     * which may differ from the order of the component path.
+     * @param structureOfArrays true to keep the state in a {@link RigidBodyStore}
+     */
+    public void setStructureOfArrays(boolean structureOfArrays) {
+        if (structureOfArrays == (store != null)) return;
+        Engine engine = getEngine();
+        if (structureOfArrays) {
+            store = new RigidBodyStore();
+            if (engine != null) bind(engine);
+        } else {
+            if (engine != null) unbind(engine);
+            store = null;
+        }
+    }
+
+    public boolean isStructureOfArrays() {
+        return store != null;
+    }
+
+    /**
+     * @return the store holding the state of the rigid bodies, null unless the structure of arrays mode is enabled
+     */
+    public RigidBodyStore getStore() {
+        return store;
     }
 
     public Vector2D getGravity() {
-        return PhysicsSystem.gravity;
+        return gravity;
     }
     public void setGravity(Vector2D gravity) {
-        PhysicsSystem.gravity = gravity;
+        this.gravity = gravity;
     }
     public List<Vector2D> getGlobalForces() {
         return globalForces;
@@ -1,11 +1,9 @@
 package blank2d.framework.ecs.system;
 
-import blank2d.framework.ecs.Entity;
-import blank2d.framework.ecs.EntityFamily;
-import blank2d.framework.ecs.IteratingSystem;
+import blank2d.framework.ecs.*;
 import blank2d.framework.ecs.component.physics2d.Transform;
-import blank2d.framework.ecs.component.physics2d.collider.Collider;
 import blank2d.framework.ecs.component.rendering.SpriteRenderer;
+import blank2d.framework.screen.Screen;
 
 public class RendererSystem extends IteratingSystem {
 
@@ -17,6 +15,29 @@ public class RendererSystem extends IteratingSystem {
      */
     public RendererSystem(EntityFamily family) {
         super(family);
+        reads(SpriteRenderer.class);
+        // rendering brings the cached world matrices of the transforms up to date
+        writes(Screen.class, Transform.class);
+    }
+
+    @Override
+    public void update() {
+        for (Archetype archetype : getArchetypeList()) {
+            int rendererColumn = archetype.getColumnIndex(SpriteRenderer.class);
+            int transformColumn = archetype.getColumnIndex(Transform.class);
+            if (rendererColumn < 0 || transformColumn < 0) {
+                processArchetype(archetype);
+                continue;
+            }
+            for (int c = 0; c < archetype.getNumOfChunks(); c++) {
+                ArchetypeChunk chunk = archetype.getChunk(c);
+                Component[] renderers = chunk.getColumn(rendererColumn);
+                Component[] transforms = chunk.getColumn(transformColumn);
+                for (int i = 0; i < chunk.size(); i++) {
+                    ((SpriteRenderer) renderers[i]).render((Transform) transforms[i]);
+                }
+            }
+        }
     }
 
     @Override
@@ -1,17 +1,43 @@
 package blank2d.framework.ecs.system;
 
 
-import blank2d.Game;
+import blank2d.framework.ecs.Engine;
 import blank2d.framework.ecs.Entity;
 import blank2d.framework.ecs.EntityFamily;
+import blank2d.framework.ecs.IEntityListener;
 import blank2d.framework.ecs.IteratingSystem;
 import blank2d.framework.ecs.component.script.EntityScript;
 import blank2d.framework.ecs.component.script.IEntityScript;
+import blank2d.framework.ecs.event.IEventListener;
+import blank2d.framework.ecs.event.TriggerEvent;
 
 import java.util.List;
 
 public class ScriptSystem extends IteratingSystem {
 
+    /** Forwards trigger events to the script of the trigger entity. */
+    private final IEventListener<TriggerEvent> triggerListener = event -> {
+        EntityScript script = event.getTarget().getComponent(EntityScript.class);
+        if (event.isEntered()) {
+            script.onTriggerEnter(event.getOther());
+        } else {
+            script.onTriggerExit(event.getOther());
+        }
+    };
+
+    /** Registers the trigger listener for each scripted entity while it is a member of this system. */
+    private final IEntityListener memberListener = new IEntityListener() {
+        @Override
+        public void entityAdded(Entity e) {
+            getEngine().getEventBus().addListener(TriggerEvent.class, e, triggerListener);
+        }
+
+        @Override
+        public void entityRemoved(Entity e) {
+            getEngine().getEventBus().removeListener(TriggerEvent.class, e, triggerListener);
+        }
+    };
+
     /**
      * Creates a new instance
      *
@@ -20,6 +46,21 @@ public class ScriptSystem extends IteratingSystem {
      */
     public ScriptSystem(EntityFamily family) {
         super(family);
+        // scripts may access any entity or system, so this system stays exclusive
+    }
+
+    @Override
+    public void addedToEngine(Engine e) {
+        super.addedToEngine(e);
+        e.addEntityListener(memberListener, getFamily());
+        for (Entity entity : getEntityList()) e.getEventBus().addListener(TriggerEvent.class, entity, triggerListener);
+    }
+
+    @Override
+    public void removedFromEngine(Engine e) {
+        e.removeEntityListener(memberListener, getFamily());
+        for (Entity entity : getEntityList()) e.getEventBus().removeListener(TriggerEvent.class, entity, triggerListener);
+        super.removedFromEngine(e);
     }
 
     @Override
@@ -7,6 +7,11 @@ public class SoundSystem extends EngineSystem {
 
     private final AssetManager assetManager = AssetManager.getInstance();
 
+    public SoundSystem() {
+        // sounds are played by other systems, the update methods access nothing
+        reads();
+    }
+
     public void play(String assetID){
         assetManager.getSoundEffect(assetID).play();
     }
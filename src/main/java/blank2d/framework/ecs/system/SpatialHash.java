@@ -0,0 +1,323 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.framework.ecs.Entity;
+import blank2d.framework.ecs.component.physics2d.Transform;
+import blank2d.framework.ecs.component.physics2d.collider.Collider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform grid broadphase for colliders. The world is divided into square
+ * cells, each collider is stored in the cells its bounding box overlaps and a
+ * query only visits the cells of the queried area. The cells are hashed into
+ * a fixed number of buckets, so the grid is unbounded while its memory only
+ * depends on the number of colliders. The bucket table doubles when it holds
+ * more colliders than buckets.
+ *
+ * <p>
+ * The bounding box of a collider is centered on the position of its transform
+ * plus its offset, with the size of its box. Colliders spanning more than
+ * {@link #MAX_CELLS_PER_COLLIDER} cells, such as the ground of a level, are
+ * not stored in cells and take part in every query.
+ * </p>
+ */
+public final class SpatialHash implements Broadphase {
+
+    /** The maximum number of cells a collider is stored in. */
+    public static final int MAX_CELLS_PER_COLLIDER = 64;
+
+    private static final int MIN_BUCKETS = 256;
+
+    private float cellSize;
+    private float inverseCellSize;
+
+    private Proxy[][] buckets = newBuckets(MIN_BUCKETS);
+    private int[] bucketSizes = new int[MIN_BUCKETS];
+    private int mask = MIN_BUCKETS - 1;
+
+    private final Map<Entity, Proxy> proxies = new IdentityHashMap<>();
+    /** The proxies in insertion order, iterated instead of the map so the order of query results is reproducible. */
+    private final List<Proxy> proxyList = new ArrayList<>();
+    private final List<Proxy> oversized = new ArrayList<>();
+
+    /** Marks the proxies found by the current query, so colliders stored in several cells are reported once. */
+    private int queryStamp;
+    private final List<Proxy> found = new ArrayList<>();
+
+    /**
+     * Creates a new instance
+     * @param cellSize the width and height of a cell in world units
+     * @throws IllegalArgumentException if the cell size is not greater than zero
+     */
+    public SpatialHash(float cellSize) {
+        setCellSize(cellSize);
+    }
+
+    /**
+     * Adds the collider of the specified entity.
+     * @param entity the entity with a collider
+     */
+    @Override
+    public void add(Entity entity) {
+        if (proxies.containsKey(entity)) {
+            update(entity);
+            return;
+        }
+        Proxy proxy = new Proxy(entity);
+        proxies.put(entity, proxy);
+        proxy.index = proxyList.size();
+        proxyList.add(proxy);
+        computeBounds(proxy);
+        insert(proxy);
+        if (proxies.size() > buckets.length) resize(buckets.length * 2);
+    }
+
+    /**
+     * Removes the collider of the specified entity.
+     * @param entity the entity
+     */
+    @Override
+    public void remove(Entity entity) {
+        Proxy proxy = proxies.remove(entity);
+        if (proxy == null) return;
+        erase(proxy);
+        Proxy last = proxyList.remove(proxyList.size() - 1);
+        if (last != proxy) {
+            last.index = proxy.index;
+            proxyList.set(proxy.index, last);
+        }
+    }
+
+    /**
+     * Moves the collider of the specified entity to the cells of its current
+     * bounding box. Colliders that did not leave their cells only have their
+     * bounds updated.
+     * @param entity the entity
+     * @return false if the entity has not been added
+     */
+    @Override
+    public boolean update(Entity entity) {
+        Proxy proxy = proxies.get(entity);
+        if (proxy == null) return false;
+        int minX = proxy.minCellX, minY = proxy.minCellY, maxX = proxy.maxCellX, maxY = proxy.maxCellY;
+        boolean wasOversized = proxy.oversized;
+        computeBounds(proxy);
+        if (minX == proxy.minCellX && minY == proxy.minCellY && maxX == proxy.maxCellX && maxY == proxy.maxCellY) return true;
+
+        int newMinX = proxy.minCellX, newMinY = proxy.minCellY, newMaxX = proxy.maxCellX, newMaxY = proxy.maxCellY;
+        boolean isOversized = proxy.oversized;
+        proxy.setCells(minX, minY, maxX, maxY, wasOversized);
+        erase(proxy);
+        proxy.setCells(newMinX, newMinY, newMaxX, newMaxY, isOversized);
+        insert(proxy);
+        return true;
+    }
+
+    @Override
+    public List<Collider> query(float minX, float minY, float maxX, float maxY, List<Collider> result) {
+        found.clear();
+        queryProxies(minX, minY, maxX, maxY, found);
+        for (int i = 0; i < found.size(); i++) result.add(found.get(i).collider);
+        return result;
+    }
+
+    @Override
+    public List<Collider> findPairs(List<Collider> result) {
+        for (int i = 0; i < proxyList.size(); i++) {
+            Proxy proxy = proxyList.get(i);
+            found.clear();
+            queryProxies(proxy.minX, proxy.minY, proxy.maxX, proxy.maxY, found);
+            for (int j = 0; j < found.size(); j++) {
+                Proxy other = found.get(j);
+                // report each pair from the proxy with the lower index only
+                if (other.index <= proxy.index) continue;
+                result.add(proxy.collider);
+                result.add(other.collider);
+            }
+        }
+        return result;
+    }
+
+    private void queryProxies(float minX, float minY, float maxX, float maxY, List<Proxy> result) {
+        queryStamp++;
+        for (int i = 0; i < oversized.size(); i++) collect(oversized.get(i), minX, minY, maxX, maxY, result);
+
+        int minCellX = toCell(minX), minCellY = toCell(minY), maxCellX = toCell(maxX), maxCellY = toCell(maxY);
+        long numOfCells = ((long) maxCellX - minCellX + 1) * ((long) maxCellY - minCellY + 1);
+        if (numOfCells > proxies.size()) {
+            // visiting the cells would cost more than testing every collider
+            for (int i = 0; i < proxyList.size(); i++) {
+                Proxy proxy = proxyList.get(i);
+                if (!proxy.oversized) collect(proxy, minX, minY, maxX, maxY, result);
+            }
+            return;
+        }
+        for (int y = minCellY; y <= maxCellY; y++) {
+            for (int x = minCellX; x <= maxCellX; x++) {
+                int bucket = bucketOf(x, y);
+                Proxy[] proxies = buckets[bucket];
+                for (int i = bucketSizes[bucket] - 1; i >= 0; i--) collect(proxies[i], minX, minY, maxX, maxY, result);
+            }
+        }
+    }
+
+    private void collect(Proxy proxy, float minX, float minY, float maxX, float maxY, List<Proxy> result) {
+        if (proxy.stamp == queryStamp) return;
+        proxy.stamp = queryStamp;
+        if (proxy.minX <= maxX && proxy.maxX >= minX && proxy.minY <= maxY && proxy.maxY >= minY) result.add(proxy);
+    }
+
+    private void computeBounds(Proxy proxy) {
+        Collider collider = proxy.entity.getComponent(Collider.class);
+        proxy.collider = collider;
+        Transform transform = proxy.entity.getComponent(Transform.class);
+        float halfWidth = collider.getBox().getSize().x / 2;
+        float halfHeight = collider.getBox().getSize().y / 2;
+        float x = transform.position.x + collider.getOffset().x;
+        float y = transform.position.y + collider.getOffset().y;
+        proxy.minX = x - halfWidth;
+        proxy.minY = y - halfHeight;
+        proxy.maxX = x + halfWidth;
+        proxy.maxY = y + halfHeight;
+
+        int minCellX = toCell(proxy.minX), minCellY = toCell(proxy.minY), maxCellX = toCell(proxy.maxX), maxCellY = toCell(proxy.maxY);
+        long numOfCells = ((long) maxCellX - minCellX + 1) * ((long) maxCellY - minCellY + 1);
+        proxy.setCells(minCellX, minCellY, maxCellX, maxCellY, numOfCells > MAX_CELLS_PER_COLLIDER);
+    }
+
+    private void insert(Proxy proxy) {
+        if (proxy.oversized) {
+            oversized.add(proxy);
+            return;
+        }
+        for (int y = proxy.minCellY; y <= proxy.maxCellY; y++) {
+            for (int x = proxy.minCellX; x <= proxy.maxCellX; x++) {
+                int bucket = bucketOf(x, y);
+                // neighbouring cells of one collider may share a bucket
+                if (indexOf(bucket, proxy) >= 0) continue;
+                Proxy[] proxies = buckets[bucket];
+                if (bucketSizes[bucket] == proxies.length) proxies = buckets[bucket] = Arrays.copyOf(proxies, proxies.length * 2);
+                proxies[bucketSizes[bucket]++] = proxy;
+            }
+        }
+    }
+
+    private void erase(Proxy proxy) {
+        if (proxy.oversized) {
+            oversized.remove(proxy);
+            return;
+        }
+        for (int y = proxy.minCellY; y <= proxy.maxCellY; y++) {
+            for (int x = proxy.minCellX; x <= proxy.maxCellX; x++) {
+                int bucket = bucketOf(x, y);
+                int index = indexOf(bucket, proxy);
+                if (index < 0) continue;
+                Proxy[] proxies = buckets[bucket];
+                int last = --bucketSizes[bucket];
+                proxies[index] = proxies[last];
+                proxies[last] = null;
+            }
+        }
+    }
+
+    private int indexOf(int bucket, Proxy proxy) {
+        Proxy[] proxies = buckets[bucket];
+        for (int i = bucketSizes[bucket] - 1; i >= 0; i--) {
+            if (proxies[i] == proxy) return i;
+        }
+        return -1;
+    }
+
+    private void resize(int numOfBuckets) {
+        buckets = newBuckets(numOfBuckets);
+        bucketSizes = new int[numOfBuckets];
+        mask = numOfBuckets - 1;
+        oversized.clear();
+        for (int i = 0; i < proxyList.size(); i++) insert(proxyList.get(i));
+    }
+
+    //every bucket gets its array up front, so moving into an empty cell does not allocate
+    private static Proxy[][] newBuckets(int numOfBuckets) {
+        Proxy[][] buckets = new Proxy[numOfBuckets][];
+        for (int i = 0; i < numOfBuckets; i++) buckets[i] = new Proxy[4];
+        return buckets;
+    }
+
+    private int bucketOf(int x, int y) {
+        int h = x * 73856093 ^ y * 19349663;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    private int toCell(float coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    @Override
+    public void clear() {
+        proxies.clear();
+        proxyList.clear();
+        oversized.clear();
+        buckets = newBuckets(MIN_BUCKETS);
+        bucketSizes = new int[MIN_BUCKETS];
+        mask = MIN_BUCKETS - 1;
+    }
+
+    @Override
+    public boolean contains(Entity entity) {
+        return proxies.containsKey(entity);
+    }
+
+    @Override
+    public int size() {
+        return proxies.size();
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Sets the width and height of a cell and redistributes all colliders. The
+     * cell size should be about the size of the typical collider, so most
+     * colliders occupy one to four cells.
+     * @param cellSize the cell size in world units
+     * @throws IllegalArgumentException if the cell size is not greater than zero
+     */
+    public void setCellSize(float cellSize) throws IllegalArgumentException {
+        if (!(cellSize > 0)) throw new IllegalArgumentException("cell size must be greater than zero");
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1 / cellSize;
+        for (int i = 0; i < proxyList.size(); i++) computeBounds(proxyList.get(i));
+        resize(buckets.length);
+    }
+
+    /**
+     * The entry of one collider, holding its bounds and the range of cells it
+     * is stored in.
+     */
+    private static final class Proxy {
+        final Entity entity;
+        Collider collider;
+        float minX, minY, maxX, maxY;
+        int minCellX, minCellY, maxCellX, maxCellY;
+        boolean oversized;
+        int stamp;
+        int index;
+
+        Proxy(Entity entity) {
+            this.entity = entity;
+        }
+
+        void setCells(int minCellX, int minCellY, int maxCellX, int maxCellY, boolean oversized) {
+            this.minCellX = minCellX;
+            this.minCellY = minCellY;
+            this.maxCellX = maxCellX;
+            this.maxCellY = maxCellY;
+            this.oversized = oversized;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.framework.ecs.Entity;
+import blank2d.framework.ecs.component.physics2d.Transform;
+import blank2d.framework.ecs.component.physics2d.collider.Collider;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A broadphase that keeps the start and end points of all bounding boxes
+ * sorted along the x and the y axis and tracks the pairs of overlapping boxes.
+ * Colliders move only a little between two steps, so their end points are
+ * moved to their new place by insertion sort with few swaps. Two boxes can
+ * only start or stop overlapping when the end point of one passes the end
+ * point of the other, so the pairs are updated by these swaps alone and the
+ * cost of an update is proportional to the movement instead of the size of
+ * the world.
+ *
+ * <p>
+ * Every pair that starts or stops overlapping is reported to the
+ * {@link IOverlapListener}, which lets the collider system raise trigger
+ * events from the pair changes. Boxes that only touch overlap.
+ * </p>
+ *
+ * <p>
+ * Adding and removing a collider takes time linear in the number of
+ * colliders. Area queries scan the x axis, starting at the query minus the
+ * widest box ever added, so they suit worlds without huge colliders.
+ * </p>
+ */
+public final class SweepAndPrune implements Broadphase {
+
+    private static final int X = 0;
+    private static final int Y = 1;
+
+    /** The end points of each axis, the id of the proxy shifted left by one, the lowest bit set for maximum points. */
+    private final int[][] endpoints = {new int[32], new int[32]};
+    private final float[][] values = {new float[32], new float[32]};
+    private int numOfEndpoints;
+
+    private Proxy[] proxiesById = new Proxy[16];
+    private int[] freeIds = new int[16];
+    private int numOfFreeIds;
+    private int nextId;
+
+    private final Map<Entity, Proxy> proxies = new IdentityHashMap<>();
+    private float maxWidth;
+
+    private IOverlapListener overlapListener;
+
+    @Override
+    public void add(Entity entity) {
+        if (proxies.containsKey(entity)) {
+            update(entity);
+            return;
+        }
+        Proxy proxy = new Proxy(entity, allocateId());
+        proxiesById[proxy.id] = proxy;
+        proxies.put(entity, proxy);
+        computeBounds(proxy);
+
+        if (numOfEndpoints + 2 > endpoints[X].length) {
+            int capacity = endpoints[X].length * 2;
+            for (int axis = X; axis <= Y; axis++) {
+                endpoints[axis] = Arrays.copyOf(endpoints[axis], capacity);
+                values[axis] = Arrays.copyOf(values[axis], capacity);
+            }
+        }
+        //append the points behind all others, where the box overlaps nothing, and sort them in
+        int min = numOfEndpoints;
+        int max = numOfEndpoints + 1;
+        numOfEndpoints += 2;
+        for (int axis = X; axis <= Y; axis++) {
+            setEndpoint(axis, min, proxy.id << 1, proxy.min[axis]);
+            setEndpoint(axis, max, proxy.id << 1 | 1, proxy.max[axis]);
+            sortDown(axis, min);
+            sortDown(axis, proxy.maxIndex[axis]);
+        }
+    }
+
+    @Override
+    public void remove(Entity entity) {
+        Proxy proxy = proxies.remove(entity);
+        if (proxy == null) return;
+        while (proxy.numOfNeighbours > 0) {
+            removePair(proxy, proxiesById[proxy.neighbours[proxy.numOfNeighbours - 1]]);
+        }
+        for (int axis = X; axis <= Y; axis++) {
+            int[] points = endpoints[axis];
+            float[] v = values[axis];
+            int to = proxy.minIndex[axis];
+            for (int from = to; from < numOfEndpoints; from++) {
+                if (points[from] >>> 1 == proxy.id) continue;
+                setEndpoint(axis, to++, points[from], v[from]);
+            }
+        }
+        numOfEndpoints -= 2;
+        proxiesById[proxy.id] = null;
+        if (numOfFreeIds == freeIds.length) freeIds = Arrays.copyOf(freeIds, numOfFreeIds * 2);
+        freeIds[numOfFreeIds++] = proxy.id;
+    }
+
+    @Override
+    public boolean update(Entity entity) {
+        Proxy proxy = proxies.get(entity);
+        if (proxy == null) return false;
+        float minX = proxy.min[X], minY = proxy.min[Y], maxX = proxy.max[X], maxY = proxy.max[Y];
+        computeBounds(proxy);
+        if (minX == proxy.min[X] && minY == proxy.min[Y] && maxX == proxy.max[X] && maxY == proxy.max[Y]) return true;
+
+        updateAxis(proxy, X, minX, maxX);
+        updateAxis(proxy, Y, minY, maxY);
+        return true;
+    }
+
+    private void updateAxis(Proxy proxy, int axis, float oldMin, float oldMax) {
+        int min = proxy.minIndex[axis];
+        int max = proxy.maxIndex[axis];
+        values[axis][min] = proxy.min[axis];
+        values[axis][max] = proxy.max[axis];
+        //growing points first, so a box moving along the axis never passes itself
+        if (proxy.min[axis] < oldMin) sortDown(axis, min);
+        if (proxy.max[axis] > oldMax) sortUp(axis, proxy.maxIndex[axis]);
+        if (proxy.min[axis] > oldMin) sortUp(axis, proxy.minIndex[axis]);
+        if (proxy.max[axis] < oldMax) sortDown(axis, proxy.maxIndex[axis]);
+    }
+
+    /**
+     * Moves the end point at the specified index towards the start of the
+     * axis until it is in order, updating the pairs of the boxes it passes.
+     */
+    private void sortDown(int axis, int index) {
+        int[] points = endpoints[axis];
+        float[] v = values[axis];
+        int point = points[index];
+        float value = v[index];
+        boolean isMax = (point & 1) != 0;
+        Proxy proxy = proxiesById[point >>> 1];
+        while (index > 0) {
+            int previous = points[index - 1];
+            float previousValue = v[index - 1];
+            boolean previousIsMax = (previous & 1) != 0;
+            //points with equal values keep minimum points first
+            if (previousValue < value || previousValue == value && (!previousIsMax || isMax)) break;
+            Proxy other = proxiesById[previous >>> 1];
+            if (other != proxy && isMax != previousIsMax) {
+                if (isMax) {
+                    if (!overlaps(proxy, other)) removePair(proxy, other);
+                } else if (overlaps(proxy, other)) {
+                    addPair(proxy, other);
+                }
+            }
+            setEndpoint(axis, index, previous, previousValue);
+            index--;
+        }
+        setEndpoint(axis, index, point, value);
+    }
+
+    /**
+     * Moves the end point at the specified index towards the end of the axis
+     * until it is in order, updating the pairs of the boxes it passes.
+     */
+    private void sortUp(int axis, int index) {
+        int[] points = endpoints[axis];
+        float[] v = values[axis];
+        int point = points[index];
+        float value = v[index];
+        boolean isMax = (point & 1) != 0;
+        Proxy proxy = proxiesById[point >>> 1];
+        while (index < numOfEndpoints - 1) {
+            int next = points[index + 1];
+            float nextValue = v[index + 1];
+            boolean nextIsMax = (next & 1) != 0;
+            if (nextValue > value || nextValue == value && (nextIsMax || !isMax)) break;
+            Proxy other = proxiesById[next >>> 1];
+            if (other != proxy && isMax != nextIsMax) {
+                if (isMax) {
+                    if (overlaps(proxy, other)) addPair(proxy, other);
+                } else if (!overlaps(proxy, other)) {
+                    removePair(proxy, other);
+                }
+            }
+            setEndpoint(axis, index, next, nextValue);
+            index++;
+        }
+        setEndpoint(axis, index, point, value);
+    }
+
+    private void setEndpoint(int axis, int index, int point, float value) {
+        endpoints[axis][index] = point;
+        values[axis][index] = value;
+        Proxy proxy = proxiesById[point >>> 1];
+        if ((point & 1) != 0) proxy.maxIndex[axis] = index;
+        else proxy.minIndex[axis] = index;
+    }
+
+    private static boolean overlaps(Proxy a, Proxy b) {
+        return a.min[X] <= b.max[X] && a.max[X] >= b.min[X] && a.min[Y] <= b.max[Y] && a.max[Y] >= b.min[Y];
+    }
+
+    private void addPair(Proxy a, Proxy b) {
+        if (a.indexOfNeighbour(b.id) >= 0) return;
+        a.addNeighbour(b.id);
+        b.addNeighbour(a.id);
+        if (overlapListener != null) overlapListener.overlapBegan(a.collider, b.collider);
+    }
+
+    private void removePair(Proxy a, Proxy b) {
+        if (!a.removeNeighbour(b.id)) return;
+        b.removeNeighbour(a.id);
+        if (overlapListener != null) overlapListener.overlapEnded(a.collider, b.collider);
+    }
+
+    @Override
+    public List<Collider> query(float minX, float minY, float maxX, float maxY, List<Collider> result) {
+        int[] points = endpoints[X];
+        float[] v = values[X];
+        //a box overlapping the area starts at most the widest box before it
+        float start = minX - maxWidth;
+        int lo = 0, hi = numOfEndpoints;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (v[mid] < start) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int i = lo; i < numOfEndpoints && v[i] <= maxX; i++) {
+            if ((points[i] & 1) != 0) continue;
+            Proxy proxy = proxiesById[points[i] >>> 1];
+            if (proxy.max[X] >= minX && proxy.min[Y] <= maxY && proxy.max[Y] >= minY) result.add(proxy.collider);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Collider> findPairs(List<Collider> result) {
+        for (int id = 0; id < nextId; id++) {
+            Proxy proxy = proxiesById[id];
+            if (proxy == null) continue;
+            for (int i = 0; i < proxy.numOfNeighbours; i++) {
+                // report each pair from the proxy with the lower id only
+                if (proxy.neighbours[i] <= id) continue;
+                result.add(proxy.collider);
+                result.add(proxiesById[proxy.neighbours[i]].collider);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean setOverlapListener(IOverlapListener listener) {
+        overlapListener = listener;
+        return true;
+    }
+
+    private void computeBounds(Proxy proxy) {
+        Collider collider = proxy.entity.getComponent(Collider.class);
+        proxy.collider = collider;
+        Transform transform = proxy.entity.getComponent(Transform.class);
+        float halfWidth = collider.getBox().getSize().x / 2;
+        float halfHeight = collider.getBox().getSize().y / 2;
+        float x = transform.position.x + collider.getOffset().x;
+        float y = transform.position.y + collider.getOffset().y;
+        proxy.min[X] = x - halfWidth;
+        proxy.min[Y] = y - halfHeight;
+        proxy.max[X] = x + halfWidth;
+        proxy.max[Y] = y + halfHeight;
+        maxWidth = Math.max(maxWidth, proxy.max[X] - proxy.min[X]);
+    }
+
+    private int allocateId() {
+        if (numOfFreeIds > 0) return freeIds[--numOfFreeIds];
+        if (nextId == proxiesById.length) proxiesById = Arrays.copyOf(proxiesById, nextId * 2);
+        return nextId++;
+    }
+
+    /**
+     * Removes all colliders without notifying the overlap listener.
+     */
+    @Override
+    public void clear() {
+        proxies.clear();
+        Arrays.fill(proxiesById, null);
+        numOfFreeIds = 0;
+        nextId = 0;
+        numOfEndpoints = 0;
+        maxWidth = 0;
+    }
+
+    @Override
+    public boolean contains(Entity entity) {
+        return proxies.containsKey(entity);
+    }
+
+    @Override
+    public int size() {
+        return proxies.size();
+    }
+
+    /**
+     * Returns the number of pairs of overlapping bounding boxes.
+     * @return the number of pairs
+     */
+    public int getNumOfPairs() {
+        int sum = 0;
+        for (int id = 0; id < nextId; id++) {
+            if (proxiesById[id] != null) sum += proxiesById[id].numOfNeighbours;
+        }
+        return sum / 2;
+    }
+
+    /**
+     * The entry of one collider, holding its bounds, the indices of its end
+     * points and the ids of the proxies it overlaps.
+     */
+    private static final class Proxy {
+        final Entity entity;
+        final int id;
+        Collider collider;
+        final float[] min = new float[2];
+        final float[] max = new float[2];
+        final int[] minIndex = new int[2];
+        final int[] maxIndex = new int[2];
+        int[] neighbours = new int[4];
+        int numOfNeighbours;
+
+        Proxy(Entity entity, int id) {
+            this.entity = entity;
+            this.id = id;
+        }
+
+        int indexOfNeighbour(int id) {
+            for (int i = 0; i < numOfNeighbours; i++) {
+                if (neighbours[i] == id) return i;
+            }
+            return -1;
+        }
+
+        void addNeighbour(int id) {
+            if (numOfNeighbours == neighbours.length) neighbours = Arrays.copyOf(neighbours, numOfNeighbours * 2);
+            neighbours[numOfNeighbours++] = id;
+        }
+
+        boolean removeNeighbour(int id) {
+            int index = indexOfNeighbour(id);
+            if (index < 0) return false;
+            neighbours[index] = neighbours[--numOfNeighbours];
+            return true;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.framework.ecs.*;
+import blank2d.framework.ecs.component.physics2d.Transform;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Brings the cached world matrices of all transforms up to date once per
+ * frame. Transforms are kept in an array sorted by their depth within the
+ * transform hierarchy, so every parent is updated before its children and a
+ * single pass propagates changes breadth-first. Transforms that did not change
+ * and whose ancestors did not change only cost a comparison of their local
+ * values. Transforms whose world matrix changed are marked as changed, which
+ * also covers direct modifications of their public fields.
+ */
+public class TransformSystem extends IteratingSystem {
+
+    private static final Comparator<Transform> BY_DEPTH = Comparator.comparingInt(Transform::getDepth);
+
+    private Transform[] sorted = new Transform[64];
+    private int size;
+    private boolean membersChanged = true;
+    private int sortedHierarchyVersion;
+
+    private final IEntityListener memberListener = new IEntityListener() {
+        @Override
+        public void entityAdded(Entity e) {
+            membersChanged = true;
+        }
+
+        @Override
+        public void entityRemoved(Entity e) {
+            membersChanged = true;
+        }
+    };
+
+    /**
+     * Creates a new instance
+     *
+     * @param family the family of entity components this system processes
+     * @throws NullPointerException in case the specified entity family is null
+     */
+    public TransformSystem(EntityFamily family) {
+        super(family);
+        writes(Transform.class);
+    }
+
+    @Override
+    public void addedToEngine(Engine e) {
+        super.addedToEngine(e);
+        e.addEntityListener(memberListener, getFamily());
+        membersChanged = true;
+    }
+
+    @Override
+    public void removedFromEngine(Engine e) {
+        e.removeEntityListener(memberListener, getFamily());
+        super.removedFromEngine(e);
+        Arrays.fill(sorted, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public void update() {
+        if (membersChanged || sortedHierarchyVersion != getEngine().getHierarchyVersion()) sort();
+        for (int i = 0; i < size; i++) {
+            if (sorted[i].updateWorldMatrix()) sorted[i].markChanged();
+        }
+    }
+
+    private void sort() {
+        Arrays.fill(sorted, 0, size, null);
+        size = 0;
+        for (Entity entity : getEntityList()) {
+            if (size == sorted.length) sorted = Arrays.copyOf(sorted, size * 2);
+            sorted[size++] = entity.getComponent(Transform.class);
+        }
+        Arrays.sort(sorted, 0, size, BY_DEPTH);
+        membersChanged = false;
+        sortedHierarchyVersion = getEngine().getHierarchyVersion();
+    }
+}
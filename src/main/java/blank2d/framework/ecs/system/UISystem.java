@@ -2,6 +2,7 @@ package blank2d.framework.ecs.system;
 
 import blank2d.framework.ecs.EntityFamily;
 import blank2d.framework.ecs.IteratingSystem;
+import blank2d.framework.ecs.component.ui.UIElement;
 
 public class UISystem extends IteratingSystem {
     /**
@@ -12,6 +13,7 @@ public class UISystem extends IteratingSystem {
      */
     public UISystem(EntityFamily family) {
         super(family);
+        reads(UIElement.class);
     }
 
 
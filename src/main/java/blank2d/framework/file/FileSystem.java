@@ -3,6 +3,9 @@ package blank2d.framework.file;
 import javax.swing.filechooser.FileSystemView;
 import java.io.*;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public abstract class FileSystem {
 
@@ -67,6 +70,23 @@ public abstract class FileSystem {
         return null;
     }
 
+    /**
+     * opens a channel for binary files, a file opened for writing is created or truncated
+     * @param filePath the file path relative to the local directory
+     * @param write true to open the file for writing, false to open it for reading
+     * @return the channel or null if the file could not be opened
+     */
+    public static FileChannel getChannel(String filePath, boolean write) {
+        try {
+            if(write) return FileChannel.open(Paths.get(getPath(filePath)), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            File file = new File(getPath(filePath));
+            if(file.exists() && file.canRead()) return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (IOException | URISyntaxException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     public static String getPath(String filePath) throws URISyntaxException {
         String path = "";
         try {
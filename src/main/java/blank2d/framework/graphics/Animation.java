@@ -5,19 +5,20 @@ import blank2d.util.Queue;
 
 import java.util.Iterator;
 
+/**
+ * The frames of an animation cut from a sprite strip. Animations are shared
+ * assets, the playback position is kept by each {@link
+ * blank2d.framework.ecs.component.rendering.AnimationController}.
+ */
 public class Animation extends Asset {
 
     private final Queue<Sprite> frameQueue = new Queue<>();
-    private final Iterator<Sprite> frameIterator;
-    private Sprite currentFrame;
     private float frameRate = 1;
 
     public Animation(String animationAssetID, String spriteAssetID, int spriteWidth, float frameRate, boolean loop){
         super(animationAssetID);
         generateSpriteQueue(spriteAssetID,  spriteWidth);
         frameQueue.loop(loop);
-        frameIterator = frameQueue.iterator();
-        currentFrame = frameQueue.peekHead();
         this.frameRate = frameRate;
     }
 
@@ -30,20 +31,20 @@ public class Animation extends Asset {
         for(int i = 0; i < numFrames; i++){
             frameQueue.enqueue(Sprite.subSprite(spriteStrip, spriteWidth * i, 0, spriteWidth, spriteHeight));
         }
-        currentFrame = frameQueue.peekHead();
     }
 
-    public Sprite getCurrentFrameSprite() {
-        return currentFrame;
+    public Sprite getFirstFrameSprite() {
+        return frameQueue.peekHead();
     }
 
-    public boolean nextFrame(){
-        if(frameIterator.hasNext()){
-            currentFrame = frameIterator.next();
-            return true;
-        }else{
-            return false;
-        }
+    /**
+     * Creates a new playback position at the first frame, each call of next
+     * returns the following frame. A looping animation never runs out of
+     * frames.
+     * @return the iterator over the frames after the first frame
+     */
+    public Iterator<Sprite> frameIterator() {
+        return frameQueue.iterator();
     }
 
     public float getFrameRate() {
@@ -60,8 +61,8 @@ public class Animation extends Asset {
     }
 
     public static void scaleAnimation(Animation animation, float scale){
-        int newWidth = (int) (animation.getCurrentFrameSprite().getWidth() * scale);
-        int newHeight = (int) (animation.getCurrentFrameSprite().getHeight() * scale);
+        int newWidth = (int) (animation.getFirstFrameSprite().getWidth() * scale);
+        int newHeight = (int) (animation.getFirstFrameSprite().getHeight() * scale);
         Animation.scaleAnimation(animation, newWidth, newHeight, Sprite.SpriteScaleMethod.NearestNeighbor);
     }
 
@@ -77,7 +78,6 @@ public class Animation extends Asset {
     public String toString() {
         return "Animation{" +
                 ", frameQueue=" + frameQueue +
-                ", currentFrame=" + currentFrame +
                 ", frameRate=" + frameRate +
                 '}';
     }
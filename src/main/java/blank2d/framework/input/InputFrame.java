@@ -0,0 +1,82 @@
+package blank2d.framework.input;
+
+import java.util.Arrays;
+
+/**
+ * The complete input of one fixed tick: the state of every key and mouse
+ * button, the mouse position and the characters typed during the tick. In
+ * lockstep mode the {@link InputManager} samples the hardware input into a
+ * frame once per tick and applies it before the tick is simulated, so a tick
+ * only ever sees the input of its frame.
+ */
+public final class InputFrame {
+
+    public static final int NUM_OF_KEYS = 256;
+    public static final int MAX_MOUSE_BUTTONS = 16;
+
+    final boolean[] keys = new boolean[NUM_OF_KEYS];
+    final boolean[] buttons = new boolean[MAX_MOUSE_BUTTONS];
+    float mouseX, mouseY;
+
+    char[] typed = new char[16];
+    int numOfTyped;
+
+    public boolean isKeyDown(int key) {
+        return keys[key];
+    }
+
+    public void setKey(int key, boolean down) {
+        keys[key] = down;
+    }
+
+    public boolean isButtonDown(int button) {
+        return buttons[button];
+    }
+
+    public void setButton(int button, boolean down) {
+        buttons[button] = down;
+    }
+
+    public float getMouseX() {
+        return mouseX;
+    }
+
+    public float getMouseY() {
+        return mouseY;
+    }
+
+    public void setMousePosition(float x, float y) {
+        mouseX = x;
+        mouseY = y;
+    }
+
+    public void addTyped(char c) {
+        if (numOfTyped == typed.length) typed = Arrays.copyOf(typed, typed.length * 2);
+        typed[numOfTyped++] = c;
+    }
+
+    public char getTyped(int index) {
+        return typed[index];
+    }
+
+    public int getNumOfTyped() {
+        return numOfTyped;
+    }
+
+    public void clearTyped() {
+        numOfTyped = 0;
+    }
+
+    /**
+     * Copies the state of this frame into the specified frame.
+     * @param target the frame receiving the state
+     */
+    public void copyTo(InputFrame target) {
+        System.arraycopy(keys, 0, target.keys, 0, NUM_OF_KEYS);
+        System.arraycopy(buttons, 0, target.buttons, 0, MAX_MOUSE_BUTTONS);
+        target.mouseX = mouseX;
+        target.mouseY = mouseY;
+        target.numOfTyped = 0;
+        for (int i = 0; i < numOfTyped; i++) target.addTyped(typed[i]);
+    }
+}
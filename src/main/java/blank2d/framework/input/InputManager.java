@@ -1,6 +1,7 @@
 package blank2d.framework.input;
 
 import blank2d.Game;
+import blank2d.framework.WorldContext;
 import blank2d.framework.screen.Screen;
 import blank2d.util.Queue;
 import blank2d.util.math.Vector2D;
@@ -21,7 +22,7 @@ public final class InputManager extends MouseAdapter implements KeyListener {
     private final List<Boolean> keyOldState = new ArrayList<>(numKeys);
     public final List<ButtonState> keyboardState = new ArrayList<>(numKeys);
 
-    private final int numOfMouseButtons = (MouseInfo.getNumberOfButtons() == -1)? 3:MouseInfo.getNumberOfButtons();
+    private final int numOfMouseButtons = detectNumOfMouseButtons();
 
     private final List<Boolean> mouseNewState = new ArrayList<>(numOfMouseButtons);
     private final List<Boolean> mouseOldState = new ArrayList<>(numOfMouseButtons);
@@ -45,9 +46,22 @@ public final class InputManager extends MouseAdapter implements KeyListener {
     //variable that indicates that some button was released this frame.
     private boolean buttonReleased = false; //cleared every frame.
 
+    //in lockstep mode the hardware events are collected here and applied once per tick
+    private boolean lockstep = false;
+    private final InputFrame liveFrame = new InputFrame();
+
     private static final InputManager instance = new InputManager();
     public static InputManager getInstance() {
-        return instance;
+        WorldContext context = WorldContext.current();
+        return context != null ? context.getInputManager() : instance;
+    }
+
+    /**
+     * Creates an input manager independent of the shared instance, for a {@link WorldContext}.
+     * @return the new input manager
+     */
+    public static InputManager create() {
+        return new InputManager();
     }
     private Game game;
 
@@ -65,6 +79,16 @@ public final class InputManager extends MouseAdapter implements KeyListener {
         }
     }
 
+    //there is no mouse without a display, headless games still get the default buttons
+    private static int detectNumOfMouseButtons(){
+        try {
+            int buttons = MouseInfo.getNumberOfButtons();
+            return buttons == -1 ? 3 : buttons;
+        } catch (HeadlessException e) {
+            return 3;
+        }
+    }
+
     public void init(Game game){
         this.game = game;
     }
@@ -113,9 +137,71 @@ public final class InputManager extends MouseAdapter implements KeyListener {
         keyNewState.set(key, state);
     }
 
+    /**
+     * Enables or disables lockstep mode. In lockstep mode hardware events no
+     * longer change the input state directly, they are collected and sampled
+     * once per tick by {@link #captureFrame}, the game applies the sampled or
+     * replayed frame with {@link #applyFrame}.
+     * @param lockstep true to enable lockstep mode
+     */
+    public void setLockstep(boolean lockstep){
+        synchronized (liveFrame) {
+            this.lockstep = lockstep;
+            liveFrame.clearTyped();
+        }
+    }
+
+    public boolean isLockstep() {
+        return lockstep;
+    }
+
+    /**
+     * Copies the hardware input collected since the previous tick into the
+     * specified frame.
+     * @param frame the frame receiving the input
+     */
+    public void captureFrame(InputFrame frame){
+        synchronized (liveFrame) {
+            liveFrame.copyTo(frame);
+            liveFrame.clearTyped();
+        }
+    }
+
+    /**
+     * Makes the specified frame the hardware state of the next {@link #update}.
+     * @param frame the input of the tick
+     */
+    public void applyFrame(InputFrame frame){
+        for (int i = 0; i < numKeys; i++) {
+            boolean down = frame.isKeyDown(i);
+            if(down != keyNewState.get(i)) {
+                if(down) keyPressed = true;
+                else keyReleased = true;
+                updateKeyState(i, down);
+            }
+        }
+        for (int i = 0; i < numOfMouseButtons && i < InputFrame.MAX_MOUSE_BUTTONS; i++) {
+            boolean down = frame.isButtonDown(i);
+            if(down != mouseNewState.get(i)) {
+                if(down) buttonPressed = true;
+                else buttonReleased = true;
+                updateMouseState(i, down);
+            }
+        }
+        mousePosition.setXY(frame.getMouseX(), frame.getMouseY());
+        keyQueue.clear();
+        for (int i = 0; i < frame.getNumOfTyped(); i++) keyQueue.enqueue(frame.getTyped(i));
+    }
+
     public void keyPressed(KeyEvent e) {
         //System.out.println("InputManager: A key has been pressed code=" + e.getKeyCode());
         int keyCode = e.getKeyCode();
+        if(lockstep) {
+            synchronized (liveFrame) {
+                if(keyCode >= 0 && keyCode < numKeys) liveFrame.setKey(keyCode, true);
+            }
+            return;
+        }
         if( keyCode >= 0 && keyCode < numKeys) {
             updateKeyState(keyCode, true);
             keyPressed = true;
@@ -125,6 +211,12 @@ public final class InputManager extends MouseAdapter implements KeyListener {
     public void keyReleased(KeyEvent e) {
         //System.out.println("InputManager: A key has been released code=" + e.getKeyCode());
         int keyCode = e.getKeyCode();
+        if(lockstep) {
+            synchronized (liveFrame) {
+                if(keyCode >= 0 && keyCode < numKeys) liveFrame.setKey(keyCode, false);
+            }
+            return;
+        }
         if( keyCode >= 0 && keyCode < numKeys) {
             updateKeyState(keyCode, false);
             keyReleased = true;
@@ -132,6 +224,12 @@ public final class InputManager extends MouseAdapter implements KeyListener {
     }
 
     public void keyTyped(KeyEvent e) {
+        if(lockstep) {
+            synchronized (liveFrame) {
+                liveFrame.addTyped(e.getKeyChar());
+            }
+            return;
+        }
         keyQueue.enqueue(e.getKeyChar());
     }
     public int getNextKeyCodeTyped(){
@@ -160,12 +258,18 @@ public final class InputManager extends MouseAdapter implements KeyListener {
 
     @Override
     public void mouseMoved(MouseEvent e) {
+        if(lockstep) {
+            synchronized (liveFrame) {
+                liveFrame.setMousePosition(e.getX(), e.getY());
+            }
+            return;
+        }
         mousePosition.setXY(e.getX(), e.getY());
     }
 
     @Override
     public void mouseDragged(MouseEvent e) {
-        mousePosition.setXY(e.getX(), e.getY());
+        mouseMoved(e);
     }
 
     @Override
@@ -176,7 +280,13 @@ public final class InputManager extends MouseAdapter implements KeyListener {
     @Override
     public void mousePressed(MouseEvent e) {
         int buttonNumber = e.getButton();
-        if( buttonNumber >= 0 && buttonNumber < MouseInfo.getNumberOfButtons()) {
+        if(lockstep) {
+            synchronized (liveFrame) {
+                if(buttonNumber >= 0 && buttonNumber < InputFrame.MAX_MOUSE_BUTTONS) liveFrame.setButton(buttonNumber, true);
+            }
+            return;
+        }
+        if( buttonNumber >= 0 && buttonNumber < numOfMouseButtons) {
             updateMouseState(buttonNumber, true);
             buttonPressed = true;
         }
@@ -185,7 +295,13 @@ public final class InputManager extends MouseAdapter implements KeyListener {
     @Override
     public void mouseReleased(MouseEvent e) {
         int buttonNumber = e.getButton();
-        if( buttonNumber >= 0 && buttonNumber < MouseInfo.getNumberOfButtons()) {
+        if(lockstep) {
+            synchronized (liveFrame) {
+                if(buttonNumber >= 0 && buttonNumber < InputFrame.MAX_MOUSE_BUTTONS) liveFrame.setButton(buttonNumber, false);
+            }
+            return;
+        }
+        if( buttonNumber >= 0 && buttonNumber < numOfMouseButtons) {
             updateMouseState(buttonNumber, false);
             buttonReleased = true;
         }
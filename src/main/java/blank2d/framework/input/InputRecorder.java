@@ -0,0 +1,154 @@
+package blank2d.framework.input;
+
+import blank2d.framework.file.FileSystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streams the input frame of every fixed tick to a binary log that can be
+ * replayed by {@link InputReplayer}. Each tick is stored as the difference to
+ * the previous tick, so a tick without new input takes a single byte.
+ *
+ * <pre>
+ * game.setInputRecorder(InputRecorder.open("replays/session.b2di", game.getGameHertz()));
+ * </pre>
+ *
+ * <p>
+ * The log starts with a header holding the magic number, the version and the
+ * tick rate. Every tick starts with a flag byte telling which of the following
+ * records are present: the toggled keys, the toggled mouse buttons, the mouse
+ * position and the typed characters.
+ * </p>
+ */
+public final class InputRecorder implements AutoCloseable {
+
+    static final int MAGIC = 0x42324449; // "B2DI"
+    static final short VERSION = 1;
+
+    static final int KEYS = 1;
+    static final int BUTTONS = 1 << 1;
+    static final int MOUSE = 1 << 2;
+    static final int TYPED = 1 << 3;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final InputFrame previous = new InputFrame();
+    private long numOfTicks;
+
+    private InputRecorder(FileChannel channel, double gameHertz) {
+        this.channel = channel;
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putDouble(gameHertz);
+    }
+
+    /**
+     * Creates a recorder writing to the specified file.
+     * @param filePath the path of the log relative to the local directory
+     * @param gameHertz the fixed tick rate of the recorded game
+     * @return the recorder or null if the file could not be opened
+     */
+    public static InputRecorder open(String filePath, double gameHertz) {
+        FileChannel channel = FileSystem.getChannel(filePath, true);
+        if (channel == null) return null;
+        return new InputRecorder(channel, gameHertz);
+    }
+
+    /**
+     * Appends the input of the next tick.
+     * @param frame the input frame of the tick
+     * @throws IOException if writing to the log fails
+     */
+    public void record(InputFrame frame) throws IOException {
+        int numOfKeys = countToggled(previous.keys, frame.keys, InputFrame.NUM_OF_KEYS);
+        int numOfButtons = countToggled(previous.buttons, frame.buttons, InputFrame.MAX_MOUSE_BUTTONS);
+        boolean mouseMoved = frame.mouseX != previous.mouseX || frame.mouseY != previous.mouseY;
+
+        int flags = 0;
+        int size = 1;
+        if (numOfKeys > 0) {
+            flags |= KEYS;
+            size += 2 + numOfKeys;
+        }
+        if (numOfButtons > 0) {
+            flags |= BUTTONS;
+            size += 1 + numOfButtons;
+        }
+        if (mouseMoved) {
+            flags |= MOUSE;
+            size += 8;
+        }
+        if (frame.numOfTyped > 0) {
+            flags |= TYPED;
+            size += 2 + frame.numOfTyped * 2;
+        }
+
+        ensureWritable(size);
+        buffer.put((byte) flags);
+        if (numOfKeys > 0) {
+            buffer.putShort((short) numOfKeys);
+            putToggled(previous.keys, frame.keys, InputFrame.NUM_OF_KEYS);
+        }
+        if (numOfButtons > 0) {
+            buffer.put((byte) numOfButtons);
+            putToggled(previous.buttons, frame.buttons, InputFrame.MAX_MOUSE_BUTTONS);
+        }
+        if (mouseMoved) {
+            buffer.putFloat(frame.mouseX);
+            buffer.putFloat(frame.mouseY);
+        }
+        if (frame.numOfTyped > 0) {
+            buffer.putShort((short) frame.numOfTyped);
+            for (int i = 0; i < frame.numOfTyped; i++) buffer.putChar(frame.typed[i]);
+        }
+        frame.copyTo(previous);
+        numOfTicks++;
+    }
+
+    private static int countToggled(boolean[] previous, boolean[] current, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (previous[i] != current[i]) count++;
+        }
+        return count;
+    }
+
+    private void putToggled(boolean[] previous, boolean[] current, int length) {
+        for (int i = 0; i < length; i++) {
+            if (previous[i] != current[i]) buffer.put((byte) i);
+        }
+    }
+
+    private void ensureWritable(int size) throws IOException {
+        if (buffer.remaining() >= size) return;
+        flush();
+        if (buffer.remaining() < size) throw new IOException("tick of " + size + " bytes exceeds the buffer size");
+    }
+
+    /**
+     * Writes all buffered ticks to the log.
+     * @throws IOException if writing to the log fails
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    public long getNumOfTicks() {
+        return numOfTicks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
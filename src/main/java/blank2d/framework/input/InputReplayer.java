@@ -0,0 +1,114 @@
+package blank2d.framework.input;
+
+import blank2d.framework.file.FileSystem;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static blank2d.framework.input.InputRecorder.*;
+
+/**
+ * Reads the input frames of a log written by {@link InputRecorder}, one frame
+ * per fixed tick. The log is read into memory when the replayer is opened.
+ *
+ * <pre>
+ * Game game = new Game("replay", 320, 240, FrameSink.NONE);
+ * game.setThrottled(false);
+ * game.setInputReplayer(InputReplayer.open("replays/session.b2di"));
+ * game.start(new PlayState());
+ * </pre>
+ */
+public final class InputReplayer implements AutoCloseable {
+
+    private final ByteBuffer buffer;
+    private final double gameHertz;
+    private final InputFrame current = new InputFrame();
+    private long tick;
+
+    private InputReplayer(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.remaining() < 14 || buffer.getInt() != MAGIC) throw new IOException("not an input log");
+        short version = buffer.getShort();
+        if (version != VERSION) throw new IOException("unsupported input log version " + version);
+        gameHertz = buffer.getDouble();
+    }
+
+    /**
+     * Opens the specified log.
+     * @param filePath the path of the log relative to the local directory
+     * @return the replayer or null if the file could not be read
+     */
+    public static InputReplayer open(String filePath) {
+        FileChannel channel = FileSystem.getChannel(filePath, false);
+        if (channel == null) return null;
+        try (FileChannel c = channel) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) c.size());
+            while (buffer.hasRemaining() && c.read(buffer) >= 0) ;
+            buffer.flip();
+            return new InputReplayer(buffer);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the input of the next tick into the specified frame.
+     * @param frame the frame receiving the input
+     * @return false if the log has ended
+     * @throws IOException if the log is corrupt
+     */
+    public boolean next(InputFrame frame) throws IOException {
+        if (!buffer.hasRemaining()) return false;
+        try {
+            int flags = buffer.get();
+            if ((flags & KEYS) != 0) {
+                int count = buffer.getShort();
+                for (int i = 0; i < count; i++) toggle(current.keys, buffer.get() & 0xFF);
+            }
+            if ((flags & BUTTONS) != 0) {
+                int count = buffer.get();
+                for (int i = 0; i < count; i++) toggle(current.buttons, buffer.get() & 0xFF);
+            }
+            if ((flags & MOUSE) != 0) {
+                current.mouseX = buffer.getFloat();
+                current.mouseY = buffer.getFloat();
+            }
+            current.clearTyped();
+            if ((flags & TYPED) != 0) {
+                int count = buffer.getShort();
+                for (int i = 0; i < count; i++) current.addTyped(buffer.getChar());
+            }
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("input log is corrupt at tick " + tick, e);
+        }
+        current.copyTo(frame);
+        tick++;
+        return true;
+    }
+
+    private static void toggle(boolean[] states, int index) {
+        states[index] = !states[index];
+    }
+
+    /**
+     * @return the fixed tick rate the log has been recorded with
+     */
+    public double getGameHertz() {
+        return gameHertz;
+    }
+
+    /**
+     * @return the number of ticks replayed so far
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    @Override
+    public void close() {
+        buffer.position(buffer.limit());
+    }
+}
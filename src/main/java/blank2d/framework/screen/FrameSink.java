@@ -0,0 +1,23 @@
+package blank2d.framework.screen;
+
+/**
+ * Receives the frames rendered by a headless game, e.g. to encode a video,
+ * compare frames in regression tests or discard them on a server.
+ */
+public interface FrameSink {
+
+    /** A sink that discards every frame. */
+    FrameSink NONE = (frameNumber, pixels, uiPixels, width, height) -> {};
+
+    /**
+     * Invoked once per rendered frame. The arrays are reused for the next
+     * frame, so they must be copied if they are kept.
+     *
+     * @param frameNumber the number of the frame, starting at zero
+     * @param pixels the RGB pixels of the frame, row by row
+     * @param uiPixels the ARGB pixels of the UI layer or null if the layer is inactive
+     * @param width the width of the frame in pixels
+     * @param height the height of the frame in pixels
+     */
+    void frame(long frameNumber, int[] pixels, int[] uiPixels, int width, int height);
+}
@@ -1,6 +1,7 @@
 package blank2d.framework.screen;
 
 import blank2d.Game;
+import blank2d.framework.WorldContext;
 import blank2d.framework.asset.AssetManager;
 import blank2d.framework.ecs.component.physics2d.Transform;
 import blank2d.framework.ecs.component.ui.UIElement;
@@ -15,9 +16,18 @@ import java.util.Arrays;
 public class Screen {
 
     private static final Screen instance = new Screen();
-    public static Screen getInstance() { return instance; }
+    public static Screen getInstance() {
+        WorldContext context = WorldContext.current();
+        return context != null ? context.getScreen() : instance;
+    }
     protected Screen() { }
 
+    /**
+     * Creates a screen independent of the shared instance, for a {@link WorldContext}.
+     * @return the new screen
+     */
+    public static Screen create() { return new Screen(); }
+
     /**
      * pointer to the game instance
      */
@@ -30,10 +40,8 @@ public class Screen {
     private final Matrix3x3 matrixFinal = new Matrix3x3();
     private final Matrix3x3 matrixFinalInv = new Matrix3x3();
     private final Matrix3x3 matrixA = new Matrix3x3();
-    private final Matrix3x3 matrixB = new Matrix3x3();
     private final Matrix3x3 translateMatrix = new Matrix3x3();
     private final Matrix3x3 scaleMatrix = new Matrix3x3();
-    private final Matrix3x3 rotationMatrix = new Matrix3x3();
     private final Vector2D xyForward = new Vector2D();
 
     private int width = 100;
@@ -337,17 +345,14 @@ public class Screen {
     public void drawSprite(Sprite sprite, Transform transform, ScreenLayer screenLayer) {
 
         Vector2D spriteSize = new Vector2D(sprite.getWidth(), sprite.getHeight());
-        Vector2D offset = Vector2D.add(transform.position, Vector2D.negate(getCameraOffset()));
-        Vector2D cameraOffset = Vector2D.negate(Vector2D.divide(Vector2D.multiply(spriteSize, transform.scale), 2.0f));
-
-        translateMatrix.translate(cameraOffset.x, cameraOffset.y);
-        scaleMatrix.scale(transform.scale.x, transform.scale.y);
-        rotationMatrix.rotate(transform.angle);
+        Vector2D cameraOffset = getCameraOffset();
 
-        Matrix.multiply(matrixA, translateMatrix, scaleMatrix);
-        Matrix.multiply(matrixB, rotationMatrix, matrixA);
-        translateMatrix.translate(offset.x, offset.y);
-        Matrix.multiply(matrixFinal, translateMatrix, matrixB);
+        //the cached world matrix already holds the position, rotation and scale of the transform and its parents,
+        //center the sprite on it and move it into camera space
+        translateMatrix.translate(-spriteSize.x / 2.0f, -spriteSize.y / 2.0f);
+        Matrix.multiply(matrixA, transform.getWorldMatrix(), translateMatrix);
+        translateMatrix.translate(-cameraOffset.x, -cameraOffset.y);
+        Matrix.multiply(matrixFinal, translateMatrix, matrixA);
 
         //get the inverse of the final matrix
         Matrix3x3.invert(matrixFinal, matrixFinalInv);
@@ -0,0 +1,119 @@
+package blank2d.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable set of bits backed by a {@code long[]}. Unlike
+ * {@link java.util.BitSet} the subset and intersection tests do not allocate,
+ * which makes it suitable for signature tests in hot code.
+ */
+public class BitMask {
+
+    private long[] words;
+
+    public BitMask(){
+        this(64);
+    }
+
+    public BitMask(int numOfBits){
+        words = new long[Math.max(1, (numOfBits + 63) >>> 6)];
+    }
+
+    public BitMask(BitMask bitMask){
+        words = Arrays.copyOf(bitMask.words, bitMask.words.length);
+    }
+
+    public void set(int bit){
+        int word = bit >>> 6;
+        if(word >= words.length) words = Arrays.copyOf(words, Math.max(words.length * 2, word + 1));
+        words[word] |= 1L << bit;
+    }
+
+    public void clear(int bit){
+        int word = bit >>> 6;
+        if(word < words.length) words[word] &= ~(1L << bit);
+    }
+
+    public boolean get(int bit){
+        int word = bit >>> 6;
+        return word < words.length && (words[word] & (1L << bit)) != 0;
+    }
+
+    public void clear(){
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Sets all bits that are set in the specified mask.
+     * @param other the mask to be combined with this mask
+     */
+    public void or(BitMask other){
+        if(other.words.length > words.length) words = Arrays.copyOf(words, other.words.length);
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * @param other the mask to test against
+     * @return true if every bit set in the other mask is also set in this mask
+     */
+    public boolean containsAll(BitMask other){
+        for (int i = 0; i < other.words.length; i++) {
+            long word = i < words.length ? words[i] : 0L;
+            if((other.words[i] & ~word) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param other the mask to test against
+     * @return true if at least one bit is set in both masks
+     */
+    public boolean intersects(BitMask other){
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if((words[i] & other.words[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    public boolean isEmpty(){
+        for (long word : words) {
+            if(word != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("BitMask{");
+        boolean first = true;
+        for (int i = 0; i < words.length * 64; i++) {
+            if(!get(i)) continue;
+            if(!first) s.append(", ");
+            s.append(i);
+            first = false;
+        }
+        return s.append('}').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BitMask other = (BitMask) o;
+        return containsAll(other) && other.containsAll(this);
+    }
+
+    @Override
+    public int hashCode() {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) length--;
+        int hash = 7;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + Long.hashCode(words[i]);
+        }
+        return hash;
+    }
+}
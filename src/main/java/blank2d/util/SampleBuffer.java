@@ -0,0 +1,108 @@
+package blank2d.util;
+
+import java.util.Arrays;
+
+/**
+ * A preallocated ring buffer of {@code long} samples. Once the buffer is full
+ * the oldest sample is overwritten, so all statistics are computed over a
+ * sliding window of the most recent samples. Adding a sample never allocates.
+ */
+public class SampleBuffer {
+
+    private final long[] samples;
+    private final long[] sorted;
+    private int next;
+    private int size;
+
+    /** The total number of samples ever added. */
+    private long count;
+
+    public SampleBuffer(int capacity){
+        if(capacity <= 0) throw new IllegalArgumentException("capacity must be greater than zero");
+        samples = new long[capacity];
+        sorted = new long[capacity];
+    }
+
+    public void add(long sample){
+        samples[next] = sample;
+        next = (next + 1) % samples.length;
+        if(size < samples.length) size++;
+        count++;
+    }
+
+    public void clear(){
+        next = 0;
+        size = 0;
+        count = 0;
+    }
+
+    /**
+     * @return the number of samples within the window
+     */
+    public int size(){
+        return size;
+    }
+
+    public int capacity(){
+        return samples.length;
+    }
+
+    /**
+     * @return the total number of samples ever added
+     */
+    public long getCount(){
+        return count;
+    }
+
+    /**
+     * @return the most recent sample or 0 if the buffer is empty
+     */
+    public long getLast(){
+        return size == 0 ? 0 : samples[(next - 1 + samples.length) % samples.length];
+    }
+
+    public long getMin(){
+        if(size == 0) return 0;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) min = Math.min(min, samples[i]);
+        return min;
+    }
+
+    public long getMax(){
+        if(size == 0) return 0;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) max = Math.max(max, samples[i]);
+        return max;
+    }
+
+    public double getMean(){
+        if(size == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < size; i++) sum += samples[i];
+        return sum / size;
+    }
+
+    /**
+     * Returns the nearest rank percentile of the samples within the window.
+     * @param percentile the percentile between 0 and 100
+     * @return the sample at the percentile or 0 if the buffer is empty
+     */
+    public long getPercentile(double percentile){
+        if(percentile < 0 || percentile > 100) throw new IllegalArgumentException("percentile must be between 0 and 100");
+        if(size == 0) return 0;
+        System.arraycopy(samples, 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        int rank = (int) Math.ceil(percentile / 100.0 * size);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "SampleBuffer{" +
+                "size=" + size +
+                ", min=" + getMin() +
+                ", mean=" + getMean() +
+                ", max=" + getMax() +
+                '}';
+    }
+}
@@ -25,6 +25,24 @@ public class Matrix3x3 extends Matrix {
     }
 
 
+    /**
+     * sets this matrix to translate(x, y) * rotate(theta) * scale(scaleX, scaleY)
+     * without building the intermediate matrices
+     */
+    public void transform(float x, float y, float theta, float scaleX, float scaleY){
+        float cos = (float) Math.cos(theta);
+        float sin = (float) Math.sin(theta);
+        matrix[0][0] = cos * scaleX;  matrix[1][0] = sin * scaleY; matrix[2][0] = x;
+        matrix[0][1] = -sin * scaleX; matrix[1][1] = cos * scaleY; matrix[2][1] = y;
+        matrix[0][2] = 0.0f;          matrix[1][2] = 0.0f;         matrix[2][2] = 1.0f;
+    }
+
+    public void set(Matrix3x3 other){
+        for (int c = 0; c < 3; c++) {
+            System.arraycopy(other.matrix[c], 0, matrix[c], 0, 3);
+        }
+    }
+
     public Vector2D forward(float x, float y){
         return forward(x, y, null);
     }
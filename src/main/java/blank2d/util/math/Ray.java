@@ -9,9 +9,8 @@ public class Ray{
     public Vector2D origin = new Vector2D();
     public Vector2D direction = new Vector2D();
 
-    Vector2D targetPosition = new Vector2D();
-    Vector2D tNear = new Vector2D();
-    Vector2D tFar = new Vector2D();
+    //the exit time of the last hit
+    private float farTime;
 
     public Ray(Vector2D origin, float angleRad){
         this.origin.setXY(origin);
@@ -26,51 +25,80 @@ public class Ray{
     public Ray(){ }
 
     public boolean rayCastTargetRect(Rect target, Vector2D targetPosIn, Vector2D contactPoint, Vector2D contactNormal, Node<Float> tHitNear){
-        targetPosition.setXY(targetPosIn);
-        targetPosition.subtract(Vector2D.divide(target.size, 2));
-        Vector2D.divide(tNear, Vector2D.subtract(targetPosition, origin), direction);
-        Vector2D.divide(tFar, Vector2D.subtract(Vector2D.add(targetPosition, target.size), origin), direction);
-
-        if (Float.isNaN(tFar.y) || Float.isNaN(tFar.x)) return false;
-        if (Float.isNaN(tNear.y) || Float.isNaN(tNear.x)) return false;
-
-        if(tNear.x > tFar.x){
-            float tempFarX = tFar.x;
-            tFar.x = tNear.x;
-            tNear.x = tempFarX;
+        float contactTime = rayCastTargetRect(target.size.x, target.size.y, targetPosIn.x, targetPosIn.y, contactPoint, contactNormal);
+        if(Float.isNaN(contactTime)) return false;
+        tHitNear.setData(contactTime);
+        Node<Float> node = new Node<>();
+        node.setData(farTime);
+        tHitNear.setChild(node);
+        return true;
+    }
+
+    /**
+     * Casts this ray against a rect centered on the target position without
+     * allocating. The contact normal is left unchanged if the ray hits a
+     * corner exactly.
+     * @param targetWidth the width of the rect
+     * @param targetHeight the height of the rect
+     * @param targetX the x coordinate of the center of the rect
+     * @param targetY the y coordinate of the center of the rect
+     * @param contactPoint receives the point where the ray enters the rect
+     * @param contactNormal receives the normal of the side the ray enters through
+     * @return the time the ray enters the rect in multiples of its direction, NaN if it misses the rect
+     */
+    public float rayCastTargetRect(float targetWidth, float targetHeight, float targetX, float targetY, Vector2D contactPoint, Vector2D contactNormal){
+        float left = targetX - targetWidth / 2;
+        float top = targetY - targetHeight / 2;
+        float nearX = (left - origin.x) / direction.x;
+        float nearY = (top - origin.y) / direction.y;
+        float farX = (left + targetWidth - origin.x) / direction.x;
+        float farY = (top + targetHeight - origin.y) / direction.y;
+
+        if (Float.isNaN(farY) || Float.isNaN(farX)) return Float.NaN;
+        if (Float.isNaN(nearY) || Float.isNaN(nearX)) return Float.NaN;
+
+        if(nearX > farX){
+            float tempFarX = farX;
+            farX = nearX;
+            nearX = tempFarX;
         }
 
-        if(tNear.y > tFar.y){
-            float tempFarY = tFar.y;
-            tFar.y = tNear.y;
-            tNear.y = tempFarY;
+        if(nearY > farY){
+            float tempFarY = farY;
+            farY = nearY;
+            nearY = tempFarY;
         }
 
-        if(tNear.x > tFar.y || tNear.y > tFar.x) return false;
+        if(nearX > farY || nearY > farX) return Float.NaN;
 
-        tHitNear.setData(Math.max(tNear.x, tNear.y));
-        Node<Float> node = new Node<>();
-        node.setData(Math.min(tFar.x, tFar.y));
-        tHitNear.setChild(node);
+        float hitNear = Math.max(nearX, nearY);
+        farTime = Math.min(farX, farY);
 
-        if(tHitNear.getChild().getData() < 0) return false;
+        if(farTime < 0) return Float.NaN;
 
-        Vector2D.add(contactPoint, origin, Vector2D.multiply(direction, tHitNear.getData()));
+        contactPoint.setXY(origin.x + direction.x * hitNear, origin.y + direction.y * hitNear);
 
-        if(tNear.x > tNear.y){
+        if(nearX > nearY){
             if(direction.x < 0){
                 contactNormal.setXY(1, 0);
             }else{
                 contactNormal.setXY(-1, 0);
             }
-        } else if(tNear.x < tNear.y){
+        } else if(nearX < nearY){
             if(direction.y < 0){
                 contactNormal.setXY(0, 1);
             }else{
                 contactNormal.setXY(0, -1);
             }
         }
-        return true;
+        return hitNear;
+    }
+
+    /**
+     * @return the time the ray left the rect of the last hit
+     */
+    public float getFarTime() {
+        return farTime;
     }
 
 
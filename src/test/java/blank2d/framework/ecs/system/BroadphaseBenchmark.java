@@ -0,0 +1,205 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.framework.ecs.Entity;
+import blank2d.framework.ecs.component.physics2d.Transform;
+import blank2d.framework.ecs.component.physics2d.collider.BoxCollider;
+import blank2d.framework.ecs.component.physics2d.collider.Collider;
+import blank2d.util.math.Vector2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the broadphases of {@link ColliderSystem} with the brute force
+ * search it used before, which tested every collider of the world. Run with
+ * {@code mvn -P benchmark test-compile exec:exec}.
+ *
+ * <p>
+ * The uniform world holds small bodies only, the uneven world adds large
+ * static platforms, which a uniform grid has to keep out of its cells.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadphaseBenchmark {
+
+    private static final int NUM_OF_BODIES = 5000;
+    private static final int NUM_OF_PLATFORMS = 300;
+    private static final float WORLD_SIZE = 4000;
+    private static final int MOVES_PER_INVOCATION = 256;
+
+    @Param({"grid", "tree", "sap", "brute"})
+    public String broadphase;
+
+    @Param({"uniform", "uneven"})
+    public String world;
+
+    private Broadphase phase;
+    private Entity[] bodies;
+    private float[] velocityX, velocityY;
+    private int next;
+    private final List<Collider> result = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        switch (broadphase) {
+            case "grid": phase = new SpatialHash(ColliderSystem.DEFAULT_CELL_SIZE); break;
+            case "tree": phase = new DynamicAabbTree(); break;
+            case "sap": phase = new SweepAndPrune(); break;
+            default: phase = new BruteForce(); break;
+        }
+        Random random = new Random(42);
+        if (world.equals("uneven")) {
+            for (int i = 0; i < NUM_OF_PLATFORMS; i++) {
+                float width = 200 + random.nextFloat() * 1800;
+                phase.add(collider(random.nextFloat() * WORLD_SIZE, random.nextFloat() * WORLD_SIZE, width, 16));
+            }
+        }
+        bodies = new Entity[NUM_OF_BODIES];
+        velocityX = new float[NUM_OF_BODIES];
+        velocityY = new float[NUM_OF_BODIES];
+        for (int i = 0; i < NUM_OF_BODIES; i++) {
+            float size = 4 + random.nextFloat() * 8;
+            bodies[i] = collider(random.nextFloat() * WORLD_SIZE, random.nextFloat() * WORLD_SIZE, size, size);
+            velocityX[i] = random.nextFloat() * 8 - 4;
+            velocityY[i] = random.nextFloat() * 8 - 4;
+            phase.add(bodies[i]);
+        }
+    }
+
+    private static Entity collider(float x, float y, float width, float height) {
+        Entity entity = new Entity();
+        entity.getComponent(Transform.class).position.setXY(x, y);
+        entity.addComponent(new BoxCollider(new Vector2D(width, height)));
+        return entity;
+    }
+
+    /**
+     * Moves a body, updates the broadphase and queries the box it sweeps
+     * during its next step, as a rigid body does.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MOVES_PER_INVOCATION)
+    public int moveAndQuery() {
+        int found = 0;
+        for (int n = 0; n < MOVES_PER_INVOCATION; n++) {
+            int i = next;
+            next = (next + 1) % NUM_OF_BODIES;
+            Vector2D position = bodies[i].getComponent(Transform.class).position;
+            position.add(velocityX[i], velocityY[i]);
+            if (position.x < 0 || position.x > WORLD_SIZE) velocityX[i] = -velocityX[i];
+            if (position.y < 0 || position.y > WORLD_SIZE) velocityY[i] = -velocityY[i];
+            phase.update(bodies[i]);
+
+            float halfSize = bodies[i].getComponent(Collider.class).getBox().getSize().x / 2;
+            float toX = position.x + velocityX[i], toY = position.y + velocityY[i];
+            result.clear();
+            phase.query(Math.min(position.x, toX) - halfSize, Math.min(position.y, toY) - halfSize,
+                    Math.max(position.x, toX) + halfSize, Math.max(position.y, toY) + halfSize, result);
+            found += result.size();
+        }
+        return found;
+    }
+
+    /**
+     * Enumerates every overlapping pair of the world, as trigger handling does.
+     */
+    @Benchmark
+    public int findPairs() {
+        result.clear();
+        return phase.findPairs(result).size();
+    }
+
+    /**
+     * The search used before the broadphases, every query and pair test visits
+     * every collider.
+     */
+    static final class BruteForce implements Broadphase {
+
+        private final List<Entity> entities = new ArrayList<>();
+
+        @Override
+        public void add(Entity entity) {
+            if (!entities.contains(entity)) entities.add(entity);
+        }
+
+        @Override
+        public void remove(Entity entity) {
+            entities.remove(entity);
+        }
+
+        @Override
+        public boolean update(Entity entity) {
+            return true;
+        }
+
+        @Override
+        public List<Collider> query(float minX, float minY, float maxX, float maxY, List<Collider> result) {
+            for (int i = 0; i < entities.size(); i++) {
+                Entity entity = entities.get(i);
+                if (overlaps(entity, minX, minY, maxX, maxY)) result.add(entity.getComponent(Collider.class));
+            }
+            return result;
+        }
+
+        @Override
+        public List<Collider> findPairs(List<Collider> result) {
+            for (int i = 0; i < entities.size(); i++) {
+                Entity a = entities.get(i);
+                Collider collider = a.getComponent(Collider.class);
+                Vector2D size = collider.getBox().getSize();
+                Vector2D position = a.getComponent(Transform.class).position;
+                float x = position.x + collider.getOffset().x, y = position.y + collider.getOffset().y;
+                for (int j = i + 1; j < entities.size(); j++) {
+                    Entity b = entities.get(j);
+                    if (overlaps(b, x - size.x / 2, y - size.y / 2, x + size.x / 2, y + size.y / 2)) {
+                        result.add(collider);
+                        result.add(b.getComponent(Collider.class));
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static boolean overlaps(Entity entity, float minX, float minY, float maxX, float maxY) {
+            Collider collider = entity.getComponent(Collider.class);
+            Vector2D size = collider.getBox().getSize();
+            Vector2D position = entity.getComponent(Transform.class).position;
+            float x = position.x + collider.getOffset().x, y = position.y + collider.getOffset().y;
+            return x - size.x / 2 <= maxX && x + size.x / 2 >= minX && y - size.y / 2 <= maxY && y + size.y / 2 >= minY;
+        }
+
+        @Override
+        public void clear() {
+            entities.clear();
+        }
+
+        @Override
+        public boolean contains(Entity entity) {
+            return entities.contains(entity);
+        }
+
+        @Override
+        public int size() {
+            return entities.size();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package blank2d.framework.ecs.system;
+
+import blank2d.Game;
+import blank2d.framework.ecs.Engine;
+import blank2d.framework.ecs.Entity;
+import blank2d.framework.ecs.EntityFamily;
+import blank2d.framework.ecs.component.physics2d.RigidBody;
+import blank2d.framework.ecs.component.physics2d.Transform;
+import blank2d.framework.ecs.component.physics2d.collider.BoxCollider;
+import blank2d.framework.screen.FrameSink;
+import blank2d.util.math.Vector2D;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Counts the bytes allocated by the fixed step of the engine once the world
+ * has settled. Stacks of boxes rest on a kinematic floor, so every tick
+ * integrates gravity, queries the broadphase and resolves collisions without
+ * the world growing.
+ */
+class PhysicsAllocationTest {
+
+    private static final int WARM_UP_TICKS = 2000;
+    private static final int MEASURED_TICKS = 200;
+
+    @Test
+    void spatialHashStepDoesNotAllocate() {
+        assertNoAllocation(() -> new SpatialHash(16), false, false);
+    }
+
+    @Test
+    void dynamicAabbTreeStepDoesNotAllocate() {
+        assertNoAllocation(DynamicAabbTree::new, false, false);
+    }
+
+    @Test
+    void sweepAndPruneStepDoesNotAllocate() {
+        assertNoAllocation(SweepAndPrune::new, false, false);
+    }
+
+    @Test
+    void rigidBodyStoreStepDoesNotAllocate() {
+        assertNoAllocation(() -> new SpatialHash(16), true, false);
+    }
+
+    @Test
+    void concurrentStepDoesNotAllocate() {
+        assertNoAllocation(() -> new SpatialHash(16), false, true);
+    }
+
+    /**
+     * Steps an engine running the collider and physics systems. The concurrent
+     * engine also runs an animation system, which shares a level with the
+     * collider system, on a pool of its own.
+     */
+    private static void assertNoAllocation(Supplier<Broadphase> broadphase, boolean structureOfArrays, boolean concurrent) {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        Engine engine = new Engine(new Game("allocation test", 64, 48, FrameSink.NONE));
+        engine.setConcurrentSystems(concurrent);
+        ForkJoinPool pool = concurrent ? new ForkJoinPool(2) : null;
+        if (pool != null) {
+            engine.setPool(pool);
+            engine.addSystem(new AnimationSystem(EntityFamily.animationEF));
+        }
+        engine.addSystem(new ColliderSystem(EntityFamily.colliderEF, broadphase.get()));
+        PhysicsSystem physicsSystem = new PhysicsSystem(EntityFamily.rigidBodyEF);
+        physicsSystem.setStructureOfArrays(structureOfArrays);
+        engine.addSystem(physicsSystem);
+        buildStacks(engine);
+
+        try {
+            // lets the bodies come to rest and the buffers reach their final size
+            for (int i = 0; i < WARM_UP_TICKS; i++) engine.fixedUpdate();
+
+            long thread = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < MEASURED_TICKS; i++) engine.fixedUpdate();
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+            assertEquals(0L, allocated, "bytes allocated by " + MEASURED_TICKS + " fixed steps");
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean, "allocation counters not available");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "allocation counters not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private static void buildStacks(Engine engine) {
+        for (int x = 0; x < 40; x++) {
+            Entity floor = new Entity();
+            floor.getComponent(Transform.class).setPositionXY(x * 10, 200);
+            floor.addComponent(new BoxCollider(new Vector2D(10, 10)));
+            floor.addComponent(new RigidBody(true));
+            engine.addEntity(floor);
+            for (int y = 0; y < 10; y++) {
+                Entity box = new Entity();
+                box.getComponent(Transform.class).setPositionXY(x * 10, 180 - y * 12);
+                box.addComponent(new BoxCollider(new Vector2D(8, 8)));
+                box.addComponent(new RigidBody());
+                engine.addEntity(box);
+            }
+        }
+    }
+}